@@ -5,6 +5,7 @@ import org.netcrusher.core.meter.RateMeters;
 import java.io.Closeable;
 import java.net.InetSocketAddress;
 import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
 
 public interface NetCrusher extends NetFreezer, Closeable {
 
@@ -24,6 +25,13 @@ public interface NetCrusher extends NetFreezer, Closeable {
     @Override
     void close();
 
+    /**
+     * Closes the crusher and it's sockets without waiting for selector threads
+     * @return Future which is completed when the crusher and all its clients are closed
+     * @see NetCrusher#close()
+     */
+    CompletableFuture<Void> closeAsync();
+
     /**
      * Closes and then reopens the crusher again
      * @throws IllegalStateException Throwed if the crusher is not open
@@ -72,6 +80,14 @@ public interface NetCrusher extends NetFreezer, Closeable {
      */
     boolean closeClient(InetSocketAddress clientAddress);
 
+    /**
+     * Close facilities for the specified client without waiting for selector threads
+     * @param clientAddress Client address
+     * @return Future with true if client is closed or with false if client is not found
+     * @see NetCrusher#closeClient(InetSocketAddress)
+     */
+    CompletableFuture<Boolean> closeClientAsync(InetSocketAddress clientAddress);
+
     /**
      * Get the total number of registered client since last crusher opening
      * @return Total number of clients
@@ -1,5 +1,7 @@
 package org.netcrusher;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface NetFreezer {
 
     /**
@@ -16,6 +18,20 @@ public interface NetFreezer {
      */
     void unfreeze();
 
+    /**
+     * Freezes all activity on the component without waiting for selector threads
+     * @return Future which is completed when the component is frozen
+     * @see NetFreezer#freeze()
+     */
+    CompletableFuture<Void> freezeAsync();
+
+    /**
+     * Unfreezes activity on component without waiting for selector threads
+     * @return Future which is completed when the component is unfrozen
+     * @see NetFreezer#unfreeze()
+     */
+    CompletableFuture<Void> unfreezeAsync();
+
     /**
      * Checks is the component frozen
      * @return Return <em>true</em> if the crusher is frozen (or is closed)
@@ -0,0 +1,56 @@
+package org.netcrusher.core.buffer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Borrows buffers of the crusher's geometry from the selector's pool within the crusher's quota
+ */
+public class BufferAllocator {
+
+    private final BufferPool pool;
+
+    private final BufferQuota quota;
+
+    private final int size;
+
+    private final boolean direct;
+
+    public BufferAllocator(BufferPool pool, BufferQuota quota, int size, boolean direct) {
+        this.pool = pool;
+        this.quota = quota;
+        this.size = size;
+        this.direct = direct;
+    }
+
+    public BufferAllocator(BufferPool pool, BufferQuota quota, BufferOptions bufferOptions) {
+        this(pool, quota, bufferOptions.getSize(), bufferOptions.isDirect());
+    }
+
+    /**
+     * Borrow a buffer
+     * @param forced Set true to ignore the quota
+     * @return Buffer or null if the quota is exhausted
+     */
+    public ByteBuffer allocate(boolean forced) {
+        if (forced) {
+            quota.acquire(size);
+        } else if (!quota.tryAcquire(size)) {
+            return null;
+        }
+
+        return pool.borrow(size, direct);
+    }
+
+    /**
+     * Return the buffer
+     * @param bb Buffer previously borrowed from this allocator
+     */
+    public void release(ByteBuffer bb) {
+        quota.release(size);
+        pool.release(bb);
+    }
+
+    public int getSize() {
+        return size;
+    }
+}
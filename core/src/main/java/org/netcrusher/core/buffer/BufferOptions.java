@@ -18,12 +18,18 @@ public class BufferOptions implements Serializable {
 
     private boolean direct;
 
+    private long limitBytes;
+
+    private boolean contiguous;
+
     public BufferOptions copy() {
         BufferOptions copy = new BufferOptions();
 
         copy.count = this.count;
         copy.size = this.size;
         copy.direct = this.direct;
+        copy.limitBytes = this.limitBytes;
+        copy.contiguous = this.contiguous;
 
         return copy;
     }
@@ -52,6 +58,22 @@ public class BufferOptions implements Serializable {
         this.direct = direct;
     }
 
+    public long getLimitBytes() {
+        return limitBytes;
+    }
+
+    public void setLimitBytes(long limitBytes) {
+        this.limitBytes = limitBytes;
+    }
+
+    public boolean isContiguous() {
+        return contiguous;
+    }
+
+    public void setContiguous(boolean contiguous) {
+        this.contiguous = contiguous;
+    }
+
     public void checkTcpSocket(Socket socket) throws SocketException {
         final long sizeTotal = count * size;
 
@@ -0,0 +1,138 @@
+package org.netcrusher.core.buffer;
+
+import org.netcrusher.core.meter.RateMeter;
+import org.netcrusher.core.meter.RateMeterImpl;
+import org.netcrusher.core.nio.NioUtils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Pool of byte buffers shared by all queues of a selector loop. Queues borrow buffers on demand and return them
+ * when drained, so idle connections hold no buffer memory at all. The pool is not thread-safe and should be used
+ * from the owner selector's thread only, counters can be read from any thread
+ */
+public class BufferPool {
+
+    public static final long DEFAULT_MAX_RETAINED_BYTES = 64L * 1024 * 1024;
+
+    private final long maxRetainedBytes;
+
+    private final RateMeterImpl hitMeter;
+
+    private final RateMeterImpl missMeter;
+
+    private Arena[] arenas;
+
+    private volatile long retainedBytes;
+
+    private volatile long borrowedBytes;
+
+    /**
+     * Create a new pool
+     * @param maxRetainedBytes How many bytes of returned buffers the pool keeps for reuse
+     */
+    public BufferPool(long maxRetainedBytes) {
+        this.maxRetainedBytes = maxRetainedBytes;
+        this.hitMeter = new RateMeterImpl();
+        this.missMeter = new RateMeterImpl();
+        this.arenas = new Arena[0];
+        this.retainedBytes = 0;
+        this.borrowedBytes = 0;
+    }
+
+    // Internal method
+    public ByteBuffer borrow(int capacity, boolean direct) {
+        final Arena arena = findArena(capacity, direct);
+
+        ByteBuffer bb = arena.buffers.pollLast();
+        if (bb != null) {
+            retainedBytes -= capacity;
+            hitMeter.increment();
+        } else {
+            bb = NioUtils.allocaleByteBuffer(capacity, direct);
+            missMeter.increment();
+        }
+
+        borrowedBytes += capacity;
+
+        return bb;
+    }
+
+    // Internal method
+    public void release(ByteBuffer bb) {
+        final int capacity = bb.capacity();
+
+        borrowedBytes -= capacity;
+
+        if (retainedBytes + capacity <= maxRetainedBytes) {
+            bb.clear();
+            findArena(capacity, bb.isDirect()).buffers.addLast(bb);
+            retainedBytes += capacity;
+        }
+    }
+
+    private Arena findArena(int capacity, boolean direct) {
+        for (Arena arena : arenas) {
+            if (arena.capacity == capacity && arena.direct == direct) {
+                return arena;
+            }
+        }
+
+        // the pool is usually shared by crushers with the same buffer options so arenas are rarely added
+        final Arena arena = new Arena(capacity, direct);
+        arenas = Arrays.copyOf(arenas, arenas.length + 1);
+        arenas[arenas.length - 1] = arena;
+
+        return arena;
+    }
+
+    /**
+     * Get meter of borrowings served by a previously returned buffer
+     * @return Hit meter
+     */
+    public RateMeter getHitMeter() {
+        return hitMeter;
+    }
+
+    /**
+     * Get meter of borrowings which required a new buffer to be allocated
+     * @return Miss meter
+     */
+    public RateMeter getMissMeter() {
+        return missMeter;
+    }
+
+    /**
+     * Get size of returned buffers kept for reuse
+     * @return Size in bytes
+     */
+    public long getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    /**
+     * Get size of buffers currently borrowed by queues
+     * @return Size in bytes
+     */
+    public long getBorrowedBytes() {
+        return borrowedBytes;
+    }
+
+    private static final class Arena {
+
+        private final int capacity;
+
+        private final boolean direct;
+
+        private final Deque<ByteBuffer> buffers;
+
+        private Arena(int capacity, boolean direct) {
+            this.capacity = capacity;
+            this.direct = direct;
+            this.buffers = new ArrayDeque<>();
+        }
+    }
+}
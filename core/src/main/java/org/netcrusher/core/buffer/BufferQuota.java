@@ -0,0 +1,83 @@
+package org.netcrusher.core.buffer;
+
+import org.netcrusher.core.meter.RateMeter;
+import org.netcrusher.core.meter.RateMeterImpl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Soft cap on buffer memory borrowed by all queues of a crusher. The cap is soft: a queue holding no buffers
+ * always gets one, so a connection never stalls while others keep the memory
+ */
+public class BufferQuota {
+
+    private final long limitBytes;
+
+    private final AtomicLong usedBytes;
+
+    private final RateMeterImpl deniedMeter;
+
+    /**
+     * Create a new quota
+     * @param limitBytes Limit in bytes. If set to 0 the memory is not limited
+     */
+    public BufferQuota(long limitBytes) {
+        this.limitBytes = limitBytes;
+        this.usedBytes = new AtomicLong(0);
+        this.deniedMeter = new RateMeterImpl();
+    }
+
+    // Internal method
+    public boolean tryAcquire(long bytes) {
+        if (limitBytes <= 0) {
+            usedBytes.addAndGet(bytes);
+            return true;
+        }
+
+        while (true) {
+            final long used = usedBytes.get();
+            if (used + bytes > limitBytes) {
+                deniedMeter.increment();
+                return false;
+            }
+
+            if (usedBytes.compareAndSet(used, used + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    // Internal method
+    public void acquire(long bytes) {
+        usedBytes.addAndGet(bytes);
+    }
+
+    // Internal method
+    public void release(long bytes) {
+        usedBytes.addAndGet(-bytes);
+    }
+
+    /**
+     * Get the limit
+     * @return Limit in bytes or 0 if the memory is not limited
+     */
+    public long getLimitBytes() {
+        return limitBytes;
+    }
+
+    /**
+     * Get size of buffers currently borrowed by queues of the crusher
+     * @return Size in bytes
+     */
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    /**
+     * Get meter of borrowings denied due to the limit
+     * @return Denial meter
+     */
+    public RateMeter getDeniedMeter() {
+        return deniedMeter;
+    }
+}
@@ -3,10 +3,12 @@ package org.netcrusher.core.main;
 import org.netcrusher.NetCrusher;
 import org.netcrusher.core.nio.NioUtils;
 import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.reactor.NioReactorOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
+import java.nio.channels.spi.SelectorProvider;
 import java.nio.charset.Charset;
 import java.util.Scanner;
 import java.util.function.Consumer;
@@ -59,13 +61,39 @@ public abstract class AbstractCrusherMain<T extends NetCrusher> {
         final long tickMs = Integer.getInteger("crusher.tick", 10);
         LOGGER.debug("Reactor tick = {} ms", tickMs);
 
-        return run(bindAddress, connectAddress, tickMs);
+        final NioReactorOptions reactorOptions = new NioReactorOptions();
+        reactorOptions.setTickMs(tickMs);
+
+        withIntProperty("crusher.selectors", reactorOptions::setSelectorCount);
+        withBoolProperty("crusher.acceptor.dedicated", reactorOptions::setDedicatedAcceptor);
+        withBoolProperty("crusher.tickless", reactorOptions::setTickless);
+        withBoolProperty("crusher.selectedkeys.optimized", reactorOptions::setOptimizedSelectedKeys);
+        withLongProperty("crusher.busypoll.us", reactorOptions::setBusyPollUs);
+        withStrProperty("crusher.selector.provider", (className) -> {
+            try {
+                reactorOptions.setSelectorProvider((SelectorProvider) Class.forName(className)
+                    .getDeclaredConstructor().newInstance());
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                LOGGER.error("Fail to create selector provider {}", className, e);
+            }
+        });
+
+        return run(bindAddress, connectAddress, reactorOptions);
     }
 
     protected int run(InetSocketAddress bindAddress, InetSocketAddress connectAddress, long tickMs) {
+        final NioReactorOptions reactorOptions = new NioReactorOptions();
+        reactorOptions.setTickMs(tickMs);
+
+        return run(bindAddress, connectAddress, reactorOptions);
+    }
+
+    protected int run(InetSocketAddress bindAddress, InetSocketAddress connectAddress,
+                      NioReactorOptions reactorOptions)
+    {
         final NioReactor reactor;
         try {
-            reactor = new NioReactor(tickMs);
+            reactor = new NioReactor(reactorOptions);
         } catch (Exception e) {
             LOGGER.error("Fail to create reactor", e);
             return ERR_EXIT_INITIALIZATION;
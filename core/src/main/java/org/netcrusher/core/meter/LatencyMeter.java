@@ -0,0 +1,26 @@
+package org.netcrusher.core.meter;
+
+/**
+ * Total and period latency statistics (number of events, min/max/average duration)
+ */
+public interface LatencyMeter {
+
+    /**
+     * Request total count of measured events
+     * @return Number of events for all time
+     */
+    long getTotalCount();
+
+    /**
+     * Get latency statistics for all time
+     * @return Total statistics
+     */
+    LatencyMeterPeriod getTotal();
+
+    /**
+     * Request latency statistics from the last reset
+     * @param reset true if period should be reset
+     * @return Period statistics
+     */
+    LatencyMeterPeriod getPeriod(boolean reset);
+}
@@ -0,0 +1,44 @@
+package org.netcrusher.core.meter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Merged statistics of several latency meters, e.g. of all shards of a crusher
+ */
+public class LatencyMeterGroup implements LatencyMeter {
+
+    private final List<LatencyMeter> meters;
+
+    public LatencyMeterGroup(Collection<? extends LatencyMeter> meters) {
+        this.meters = new ArrayList<>(meters);
+    }
+
+    @Override
+    public long getTotalCount() {
+        long count = 0;
+        for (LatencyMeter meter : meters) {
+            count += meter.getTotalCount();
+        }
+        return count;
+    }
+
+    @Override
+    public LatencyMeterPeriod getTotal() {
+        LatencyMeterPeriod total = new LatencyMeterPeriod(0, 0, 0, 0);
+        for (LatencyMeter meter : meters) {
+            total = total.merge(meter.getTotal());
+        }
+        return total;
+    }
+
+    @Override
+    public LatencyMeterPeriod getPeriod(boolean reset) {
+        LatencyMeterPeriod period = new LatencyMeterPeriod(0, 0, 0, 0);
+        for (LatencyMeter meter : meters) {
+            period = period.merge(meter.getPeriod(reset));
+        }
+        return period;
+    }
+}
@@ -0,0 +1,77 @@
+package org.netcrusher.core.meter;
+
+public class LatencyMeterImpl implements LatencyMeter {
+
+    private final Accumulator total;
+
+    private final Accumulator period;
+
+    public LatencyMeterImpl() {
+        this.total = new Accumulator();
+        this.period = new Accumulator();
+    }
+
+    @Override
+    public synchronized long getTotalCount() {
+        return total.count;
+    }
+
+    @Override
+    public synchronized LatencyMeterPeriod getTotal() {
+        return total.toPeriod();
+    }
+
+    @Override
+    public synchronized LatencyMeterPeriod getPeriod(boolean reset) {
+        LatencyMeterPeriod result = period.toPeriod();
+
+        if (reset) {
+            period.reset();
+        }
+
+        return result;
+    }
+
+    public synchronized void update(long durationNs) {
+        final long value = Math.max(0, durationNs);
+
+        total.add(value);
+        period.add(value);
+    }
+
+    private static final class Accumulator {
+
+        private long count;
+
+        private long sumNs;
+
+        private long minNs;
+
+        private long maxNs;
+
+        private void add(long durationNs) {
+            if (count == 0) {
+                minNs = durationNs;
+                maxNs = durationNs;
+            } else {
+                minNs = Math.min(minNs, durationNs);
+                maxNs = Math.max(maxNs, durationNs);
+            }
+
+            count++;
+            sumNs += durationNs;
+        }
+
+        private void reset() {
+            count = 0;
+            sumNs = 0;
+            minNs = 0;
+            maxNs = 0;
+        }
+
+        private LatencyMeterPeriod toPeriod() {
+            return new LatencyMeterPeriod(count, sumNs, minNs, maxNs);
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+package org.netcrusher.core.meter;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency statistics for period (total or specific time)
+ */
+public class LatencyMeterPeriod implements Serializable {
+
+    private final long count;
+
+    private final long sumNs;
+
+    private final long minNs;
+
+    private final long maxNs;
+
+    LatencyMeterPeriod(long count, long sumNs, long minNs, long maxNs) {
+        this.count = count;
+        this.sumNs = sumNs;
+        this.minNs = minNs;
+        this.maxNs = maxNs;
+    }
+
+    LatencyMeterPeriod merge(LatencyMeterPeriod other) {
+        if (other.count == 0) {
+            return this;
+        } else if (this.count == 0) {
+            return other;
+        } else {
+            return new LatencyMeterPeriod(count + other.count, sumNs + other.sumNs,
+                Math.min(minNs, other.minNs), Math.max(maxNs, other.maxNs));
+        }
+    }
+
+    /**
+     * Get count of measured events
+     * @return Counter
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the shortest duration
+     * @return Duration in nanoseconds or 0 if there were no events
+     */
+    public long getMinNs() {
+        return minNs;
+    }
+
+    /**
+     * Get the longest duration
+     * @return Duration in nanoseconds or 0 if there were no events
+     */
+    public long getMaxNs() {
+        return maxNs;
+    }
+
+    /**
+     * Get average duration
+     * @return Duration in nanoseconds or NaN if there were no events
+     */
+    public double getAverageNs() {
+        if (count > 0) {
+            return 1.0 * sumNs / count;
+        } else {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Get average duration in specified time units
+     * @param timeUnit Time unit
+     * @return Average duration or NaN if there were no events
+     */
+    public double getAverage(TimeUnit timeUnit) {
+        return getAverageNs() / timeUnit.toNanos(1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, min=%d us, max=%d us, avg=%.3f us",
+            getCount(), TimeUnit.NANOSECONDS.toMicros(getMinNs()), TimeUnit.NANOSECONDS.toMicros(getMaxNs()),
+            getAverage(TimeUnit.MICROSECONDS));
+    }
+}
@@ -0,0 +1,55 @@
+package org.netcrusher.core.meter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Sum of several rate meters, e.g. of all shards of a crusher
+ */
+public class RateMeterGroup implements RateMeter {
+
+    private final List<RateMeter> meters;
+
+    public RateMeterGroup(Collection<? extends RateMeter> meters) {
+        this.meters = new ArrayList<>(meters);
+    }
+
+    @Override
+    public long getTotalCount() {
+        long count = 0;
+        for (RateMeter meter : meters) {
+            count += meter.getTotalCount();
+        }
+        return count;
+    }
+
+    @Override
+    public long getTotalElapsedMs() {
+        long elapsedMs = 0;
+        for (RateMeter meter : meters) {
+            elapsedMs = Math.max(elapsedMs, meter.getTotalElapsedMs());
+        }
+        return elapsedMs;
+    }
+
+    @Override
+    public RateMeterPeriod getTotal() {
+        return new RateMeterPeriod(getTotalCount(), getTotalElapsedMs());
+    }
+
+    @Override
+    public RateMeterPeriod getPeriod(boolean reset) {
+        long count = 0;
+        long elapsedMs = 0;
+
+        for (RateMeter meter : meters) {
+            RateMeterPeriod period = meter.getPeriod(reset);
+
+            count += period.getCount();
+            elapsedMs = Math.max(elapsedMs, period.getElapsedMs());
+        }
+
+        return new RateMeterPeriod(count, elapsedMs);
+    }
+}
@@ -0,0 +1,33 @@
+package org.netcrusher.core.nio;
+
+/**
+ * Counts interest set updates of selection keys
+ */
+public interface InterestOpsCounter {
+
+    /**
+     * Counter which ignores all updates
+     */
+    InterestOpsCounter NONE = new InterestOpsCounter() {
+        @Override
+        public void changed() {
+            // nothing to count
+        }
+
+        @Override
+        public void skipped() {
+            // nothing to count
+        }
+    };
+
+    /**
+     * Called when the interest set of the key is really changed
+     */
+    void changed();
+
+    /**
+     * Called when the update is skipped as the interest set already has the requested value
+     */
+    void skipped();
+
+}
@@ -6,8 +6,10 @@ import org.slf4j.LoggerFactory;
 import java.io.Closeable;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.net.SocketOption;
 import java.net.StandardSocketOptions;
 import java.nio.ByteBuffer;
+import java.nio.channels.NetworkChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.nio.channels.spi.AbstractSelectableChannel;
@@ -18,9 +20,44 @@ public final class NioUtils {
 
     private static final int BYTE_MASK = 0xFF;
 
+    private static final SocketOption<Boolean> SO_REUSEPORT = findReusePortOption();
+
     private NioUtils() {
     }
 
+    @SuppressWarnings("unchecked")
+    private static SocketOption<Boolean> findReusePortOption() {
+        // the option is known since Java 9 so it is looked up at runtime to keep Java 8 compatibility
+        try {
+            return (SocketOption<Boolean>) StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Check whether the channel could share its bind address with other channels with SO_REUSEPORT
+     * @param channel Channel
+     * @return Returns 'true' if SO_REUSEPORT is supported
+     */
+    public static boolean isReusePortSupported(NetworkChannel channel) {
+        return SO_REUSEPORT != null && channel.supportedOptions().contains(SO_REUSEPORT);
+    }
+
+    /**
+     * Set SO_REUSEPORT so several channels could listen on the same bind address
+     * @param channel Channel which is not bound yet
+     * @throws IOException Exception on error
+     * @throws UnsupportedOperationException If the JVM or the platform doesn't support SO_REUSEPORT
+     */
+    public static void setupReusePort(NetworkChannel channel) throws IOException {
+        if (!isReusePortSupported(channel)) {
+            throw new UnsupportedOperationException("SO_REUSEPORT is not supported on this platform");
+        }
+
+        channel.setOption(SO_REUSEPORT, true);
+    }
+
     public static ByteBuffer allocaleByteBuffer(int capacity, boolean direct) {
         return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
     }
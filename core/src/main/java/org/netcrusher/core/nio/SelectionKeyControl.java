@@ -6,16 +6,30 @@ public class SelectionKeyControl {
 
     private final SelectionKey selectionKey;
 
+    private final InterestOpsCounter counter;
+
+    private int interestOps;
+
     public SelectionKeyControl(SelectionKey selectionKey) {
+        this(selectionKey, InterestOpsCounter.NONE);
+    }
+
+    public SelectionKeyControl(SelectionKey selectionKey, InterestOpsCounter counter) {
         this.selectionKey = selectionKey;
+        this.counter = counter;
+        this.interestOps = selectionKey.interestOps();
     }
 
     public boolean isValid() {
         return selectionKey.isValid();
     }
 
+    public int getInterestOps() {
+        return interestOps;
+    }
+
     public void enable(int operations) {
-        NioUtils.setupInterestOps(selectionKey, operations);
+        set(interestOps | operations);
     }
 
     public void enableReads() {
@@ -27,7 +41,7 @@ public class SelectionKeyControl {
     }
 
     public void disable(int operations) {
-        NioUtils.clearInterestOps(selectionKey, operations);
+        set(interestOps & ~operations);
     }
 
     public void disableReads() {
@@ -39,7 +53,14 @@ public class SelectionKeyControl {
     }
 
     public void set(int operations) {
-        selectionKey.interestOps(operations);
+        // the cached value saves the selector from redundant updates (each one is a syscall on some platforms)
+        if (interestOps != operations) {
+            selectionKey.interestOps(operations);
+            interestOps = operations;
+            counter.changed();
+        } else {
+            counter.skipped();
+        }
     }
 
     public void setNone() {
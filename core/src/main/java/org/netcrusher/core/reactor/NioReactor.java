@@ -5,17 +5,23 @@ import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class NioReactor implements Closeable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(NioReactor.class);
 
-    private static final long DEFAULT_TICK_MS = 20;
-
-    private final NioSelector selector;
+    private final NioSelector[] selectors;
 
     private final NioScheduler scheduler;
 
+    private final AtomicInteger selectorCounter;
+
+    private final int workerOffset;
+
     private volatile boolean open;
 
     /**
@@ -23,22 +29,78 @@ public class NioReactor implements Closeable {
      * @throws IOException Exception on error
      */
     public NioReactor() throws IOException {
-        this(DEFAULT_TICK_MS);
+        this(new NioReactorOptions());
     }
 
     /**
      * Create NIO reactor with specific settings. The same reactor can be shared across multiple crushers.
      * @param tickMs Selector's timeout granularity in milliseconds. Determines throttling precision.
-     *               Default value is 50 milliseconds.
+     *               Default value is 20 milliseconds.
      * @throws IOException Exception on error
      */
     public NioReactor(long tickMs) throws IOException {
-        this.selector = new NioSelector(tickMs);
+        this(optionsWithTick(tickMs));
+    }
+
+    /**
+     * Create NIO reactor with specific settings. The same reactor can be shared across multiple crushers.
+     * @param options Reactor options
+     * @throws IOException Exception on error
+     * @see NioReactorBuilder
+     */
+    public NioReactor(NioReactorOptions options) throws IOException {
+        if (options == null) {
+            throw new IllegalArgumentException("Options are not set");
+        }
+
+        options.validate();
+
+        final int workerCount = options.getSelectorCount();
+
+        this.workerOffset = options.isDedicatedAcceptor() ? 1 : 0;
+        this.selectors = new NioSelector[workerOffset + workerCount];
+        try {
+            if (options.isDedicatedAcceptor()) {
+                this.selectors[0] = new NioSelector("NetCrusher acceptor event loop", options);
+            }
+
+            for (int i = 0; i < workerCount; i++) {
+                String name = "NetCrusher selector event loop";
+                if (workerCount > 1) {
+                    name += " #" + i;
+                }
+
+                this.selectors[workerOffset + i] = new NioSelector(name, options);
+            }
+        } catch (IOException e) {
+            for (NioSelector selector : selectors) {
+                if (selector != null) {
+                    selector.close();
+                }
+            }
+            throw e;
+        }
+
+        this.selectorCounter = new AtomicInteger(0);
         this.scheduler = new NioScheduler();
 
         this.open = true;
 
-        LOGGER.debug("Reactor has been created with tick={}ms", tickMs);
+        LOGGER.debug("Reactor has been created with tick={}, busy poll={}us, provider={}, {} selector(s)"
+                + " and {} acceptor selector",
+            new Object[] {
+                options.isTickless() ? "none" : options.getTickMs() + "ms",
+                options.getBusyPollUs(),
+                options.getSelectorProvider().getClass().getName(),
+                workerCount,
+                options.isDedicatedAcceptor() ? "dedicated" : "shared"
+            });
+    }
+
+    private static NioReactorOptions optionsWithTick(long tickMs) {
+        NioReactorOptions options = new NioReactorOptions();
+        options.setTickMs(tickMs);
+        return options;
     }
 
     /**
@@ -47,7 +109,10 @@ public class NioReactor implements Closeable {
     @Override
     public synchronized void close() {
         if (open) {
-            selector.close();
+            for (NioSelector selector : selectors) {
+                selector.close();
+            }
+
             scheduler.close();
 
             open = false;
@@ -65,11 +130,55 @@ public class NioReactor implements Closeable {
     }
 
     /**
-     * Get selector controller (used for internal purpose)
+     * Get the primary selector controller which serializes crusher control operations
+     * and serves listening sockets (used for internal purpose). With a dedicated acceptor
+     * the primary selector doesn't serve data transfer at all
      * @return Selector controller
      */
     public NioSelector getSelector() {
-        return selector;
+        return selectors[0];
+    }
+
+    /**
+     * Get the selector controller a new channel (or a group of linked channels) should be placed on.
+     * Selectors are picked in a round-robin manner (used for internal purpose)
+     * @return Selector controller
+     */
+    public NioSelector nextSelector() {
+        final int workerCount = selectors.length - workerOffset;
+        if (workerCount == 1) {
+            return selectors[workerOffset];
+        } else {
+            int index = Math.floorMod(selectorCounter.getAndIncrement(), workerCount);
+            return selectors[workerOffset + index];
+        }
+    }
+
+    /**
+     * Get the selector controller serving a shard of sockets which share the same bind address.
+     * Shards are spread over the selectors serving data transfer (used for internal purpose)
+     * @param shard Shard index
+     * @return Selector controller
+     */
+    public NioSelector getShardSelector(int shard) {
+        final int workerCount = selectors.length - workerOffset;
+        return selectors[workerOffset + Math.floorMod(shard, workerCount)];
+    }
+
+    /**
+     * Get all selector controllers of the reactor (including the dedicated acceptor one if any)
+     * @return List of selector controllers
+     */
+    public List<NioSelector> getSelectors() {
+        return Collections.unmodifiableList(Arrays.asList(selectors));
+    }
+
+    /**
+     * Check whether listening sockets are served by a selector loop of their own
+     * @return Returns 'true' if the reactor has a dedicated acceptor selector
+     */
+    public boolean hasDedicatedAcceptor() {
+        return workerOffset > 0;
     }
 
     /**
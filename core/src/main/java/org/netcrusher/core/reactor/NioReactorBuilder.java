@@ -0,0 +1,128 @@
+package org.netcrusher.core.reactor;
+
+import java.io.IOException;
+import java.nio.channels.spi.SelectorProvider;
+
+/**
+ * Builder for NioReactor instance
+ */
+public final class NioReactorBuilder {
+
+    private final NioReactorOptions options;
+
+    private NioReactorBuilder() {
+        this.options = new NioReactorOptions();
+    }
+
+    /**
+     * Creates a new builder
+     * @return A new builder instance
+     */
+    public static NioReactorBuilder builder() {
+        return new NioReactorBuilder();
+    }
+
+    /**
+     * Set selector's timeout granularity. Determines throttling precision.
+     * @param tickMs Tick period in milliseconds
+     * @return This builder instance to chain with other methods
+     */
+    public NioReactorBuilder withTickMs(long tickMs) {
+        this.options.setTickMs(tickMs);
+        return this;
+    }
+
+    /**
+     * Set how many selector event loops (threads) the reactor runs. New channels are spread across
+     * the loops in a round-robin manner, both channels of a TCP pair always share the same loop.
+     * @param selectorCount Count of selector loops
+     * @return This builder instance to chain with other methods
+     */
+    public NioReactorBuilder withSelectorCount(int selectorCount) {
+        this.options.setSelectorCount(selectorCount);
+        return this;
+    }
+
+    /**
+     * Set whether the reactor runs an extra selector loop dedicated to listening sockets and crusher control
+     * operations. In this mode the acceptor never shares its thread with data transfer: every new pair
+     * is handed off to one of the worker loops, so connection storms don't stall established pairs.
+     * @param dedicatedAcceptor Set true to run acceptors on their own selector loop
+     * @return This builder instance to chain with other methods
+     */
+    public NioReactorBuilder withDedicatedAcceptor(boolean dedicatedAcceptor) {
+        this.options.setDedicatedAcceptor(dedicatedAcceptor);
+        return this;
+    }
+
+    /**
+     * Set whether selectors wait exactly until the earliest scheduled operation instead of waking up
+     * every tick. Throttled and delayed transfers resume at their real deadline (with millisecond precision)
+     * and an idle reactor doesn't wake up at all. The tick period is ignored in this mode
+     * @param tickless Set true to compute select() timeout from the earliest deadline
+     * @return This builder instance to chain with other methods
+     */
+    public NioReactorBuilder withTickless(boolean tickless) {
+        this.options.setTickless(tickless);
+        return this;
+    }
+
+    /**
+     * Set whether selectors replace the JDK's hash-based selected-key set with an array-backed one so
+     * dispatching ready keys neither hashes nor allocates an iterator. The replacement relies on reflection
+     * and silently falls back to the JDK's set when the selector implementation doesn't allow it
+     * (on Java 9+ it requires <code>--add-opens java.base/sun.nio.ch=ALL-UNNAMED</code>). Default is true
+     * @param optimizedSelectedKeys Set false to always use the JDK's selected-key set
+     * @return This builder instance to chain with other methods
+     */
+    public NioReactorBuilder withOptimizedSelectedKeys(boolean optimizedSelectedKeys) {
+        this.options.setOptimizedSelectedKeys(optimizedSelectedKeys);
+        return this;
+    }
+
+    /**
+     * Set how long selectors spin on non-blocking selectNow() before they back off to a blocking select().
+     * Events arriving within the period are served without the wake-up latency of a blocked thread, so the
+     * latency added by the proxy is lower and more predictable at the cost of a busy core per selector loop.
+     * If set to 0 selectors always block (default)
+     * @param busyPollUs Spin period in microseconds
+     * @return This builder instance to chain with other methods
+     */
+    public NioReactorBuilder withBusyPollUs(long busyPollUs) {
+        this.options.setBusyPollUs(busyPollUs);
+        return this;
+    }
+
+    /**
+     * Set how many bytes of returned transfer buffers each selector keeps for reuse. Buffers are borrowed
+     * by connections on demand and returned when drained, buffers above the limit are left to the garbage collector
+     * @param bufferPoolMaxBytes Size in bytes
+     * @return This builder instance to chain with other methods
+     */
+    public NioReactorBuilder withBufferPoolMaxBytes(long bufferPoolMaxBytes) {
+        this.options.setBufferPoolMaxBytes(bufferPoolMaxBytes);
+        return this;
+    }
+
+    /**
+     * Set the transport of the reactor. Selectors and all channels of crushers built on the reactor
+     * are opened by the provider, so an alternative transport (e.g. a native library) can be plugged in
+     * without changes in crushers. By default the JVM-wide provider is used
+     * @param selectorProvider Selector provider
+     * @return This builder instance to chain with other methods
+     */
+    public NioReactorBuilder withSelectorProvider(SelectorProvider selectorProvider) {
+        this.options.setSelectorProvider(selectorProvider);
+        return this;
+    }
+
+    /**
+     * Builds a new NioReactor instance
+     * @return NioReactor instance
+     * @throws IOException Exception on error
+     */
+    public NioReactor build() throws IOException {
+        return new NioReactor(options);
+    }
+
+}
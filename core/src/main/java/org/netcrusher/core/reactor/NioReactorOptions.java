@@ -0,0 +1,126 @@
+package org.netcrusher.core.reactor;
+
+import org.netcrusher.core.buffer.BufferPool;
+
+import java.nio.channels.spi.SelectorProvider;
+
+public class NioReactorOptions {
+
+    public static final long DEFAULT_TICK_MS = 20;
+
+    public static final int DEFAULT_SELECTOR_COUNT = 1;
+
+    private long tickMs;
+
+    private int selectorCount;
+
+    private boolean dedicatedAcceptor;
+
+    private boolean tickless;
+
+    private boolean optimizedSelectedKeys;
+
+    private long busyPollUs;
+
+    private long bufferPoolMaxBytes;
+
+    private SelectorProvider selectorProvider;
+
+    public NioReactorOptions() {
+        this.tickMs = DEFAULT_TICK_MS;
+        this.selectorCount = DEFAULT_SELECTOR_COUNT;
+        this.dedicatedAcceptor = false;
+        this.tickless = false;
+        this.optimizedSelectedKeys = true;
+        this.busyPollUs = 0;
+        this.bufferPoolMaxBytes = BufferPool.DEFAULT_MAX_RETAINED_BYTES;
+        this.selectorProvider = SelectorProvider.provider();
+    }
+
+    public void validate() {
+        if (tickMs <= 0) {
+            throw new IllegalArgumentException("Tick period must be positive");
+        }
+
+        if (selectorCount <= 0) {
+            throw new IllegalArgumentException("Selector count must be positive");
+        }
+
+        if (busyPollUs < 0) {
+            throw new IllegalArgumentException("Busy poll period must not be negative");
+        }
+
+        if (bufferPoolMaxBytes < 0) {
+            throw new IllegalArgumentException("Buffer pool size must not be negative");
+        }
+
+        if (selectorProvider == null) {
+            throw new IllegalArgumentException("Selector provider is not set");
+        }
+    }
+
+    public long getTickMs() {
+        return tickMs;
+    }
+
+    public void setTickMs(long tickMs) {
+        this.tickMs = tickMs;
+    }
+
+    public int getSelectorCount() {
+        return selectorCount;
+    }
+
+    public void setSelectorCount(int selectorCount) {
+        this.selectorCount = selectorCount;
+    }
+
+    public boolean isDedicatedAcceptor() {
+        return dedicatedAcceptor;
+    }
+
+    public void setDedicatedAcceptor(boolean dedicatedAcceptor) {
+        this.dedicatedAcceptor = dedicatedAcceptor;
+    }
+
+    public boolean isTickless() {
+        return tickless;
+    }
+
+    public void setTickless(boolean tickless) {
+        this.tickless = tickless;
+    }
+
+    public boolean isOptimizedSelectedKeys() {
+        return optimizedSelectedKeys;
+    }
+
+    public void setOptimizedSelectedKeys(boolean optimizedSelectedKeys) {
+        this.optimizedSelectedKeys = optimizedSelectedKeys;
+    }
+
+    public long getBusyPollUs() {
+        return busyPollUs;
+    }
+
+    public void setBusyPollUs(long busyPollUs) {
+        this.busyPollUs = busyPollUs;
+    }
+
+    public long getBufferPoolMaxBytes() {
+        return bufferPoolMaxBytes;
+    }
+
+    public void setBufferPoolMaxBytes(long bufferPoolMaxBytes) {
+        this.bufferPoolMaxBytes = bufferPoolMaxBytes;
+    }
+
+    public SelectorProvider getSelectorProvider() {
+        return selectorProvider;
+    }
+
+    public void setSelectorProvider(SelectorProvider selectorProvider) {
+        this.selectorProvider = selectorProvider;
+    }
+
+}
@@ -0,0 +1,128 @@
+package org.netcrusher.core.reactor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Array-backed replacement for the selected-key set of JDK selector. JDK selector only adds keys
+ * to the set and checks for presence while the set is cleared after every select() so neither hashing
+ * nor iterator allocation is required.
+ */
+final class NioSelectedKeySet extends AbstractSet<SelectionKey> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NioSelectedKeySet.class);
+
+    private static final String SELECTOR_IMPL_CLASS = "sun.nio.ch.SelectorImpl";
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private SelectionKey[] keys;
+
+    private int size;
+
+    private NioSelectedKeySet() {
+        this.keys = new SelectionKey[DEFAULT_CAPACITY];
+        this.size = 0;
+    }
+
+    /**
+     * Swaps the selected-key set of the selector with an array-backed one
+     * @param selector Selector which was just opened
+     * @return Installed set or null if the selector implementation doesn't allow to replace the set
+     */
+    static NioSelectedKeySet install(Selector selector) {
+        try {
+            Class<?> selectorImplClass = Class.forName(SELECTOR_IMPL_CLASS, false, ClassLoader.getSystemClassLoader());
+            if (!selectorImplClass.isAssignableFrom(selector.getClass())) {
+                LOGGER.debug("Selector {} is not supported for key set optimization", selector.getClass());
+                return null;
+            }
+
+            Field selectedKeysField = selectorImplClass.getDeclaredField("selectedKeys");
+            Field publicSelectedKeysField = selectorImplClass.getDeclaredField("publicSelectedKeys");
+
+            selectedKeysField.setAccessible(true);
+            publicSelectedKeysField.setAccessible(true);
+
+            NioSelectedKeySet keySet = new NioSelectedKeySet();
+
+            selectedKeysField.set(selector, keySet);
+            publicSelectedKeysField.set(selector, keySet);
+
+            return keySet;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // since Java 9 the access is denied unless --add-opens java.base/sun.nio.ch is set
+            LOGGER.debug("Selected key set optimization is not available: {}", e.toString());
+            return null;
+        }
+    }
+
+    @Override
+    public boolean add(SelectionKey selectionKey) {
+        if (selectionKey == null) {
+            return false;
+        }
+
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size << 1);
+        }
+
+        keys[size++] = selectionKey;
+
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        // the set is always reset after processing so any key is new for the current select()
+        return false;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<SelectionKey> iterator() {
+        return new Iterator<SelectionKey>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public SelectionKey next() {
+                if (index < size) {
+                    return keys[index++];
+                } else {
+                    throw new NoSuchElementException();
+                }
+            }
+        };
+    }
+
+    SelectionKey get(int index) {
+        return keys[index];
+    }
+
+    void reset() {
+        Arrays.fill(keys, 0, size, null);
+        size = 0;
+    }
+}
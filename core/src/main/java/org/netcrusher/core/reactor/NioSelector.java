@@ -1,6 +1,7 @@
 package org.netcrusher.core.reactor;
 
 import org.netcrusher.NetCrusherException;
+import org.netcrusher.core.buffer.BufferPool;
 import org.netcrusher.core.nio.SelectionKeyCallback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,14 +11,17 @@ import java.nio.channels.ClosedSelectorException;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
-import java.util.Comparator;
+import java.nio.channels.spi.SelectorProvider;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
-import java.util.PriorityQueue;
-import java.util.Queue;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class NioSelector {
 
@@ -25,37 +29,55 @@ public class NioSelector {
 
     private static final long THREAD_TERMINATION_TIMEOUT_MS = 5000;
 
-    private static final Comparator<NioSelectorScheduledOp> SCHEDULE_COMPARATOR =
-        (o1, o2) -> Long.compare(o1.getScheduledNs(), o2.getScheduledNs());
-
     private final Thread thread;
 
+    private final SelectorProvider provider;
+
     private final Selector selector;
 
-    private final Queue<NioSelectorPostOp> postOperationQueue;
+    private final NioSelectorPostQueue postOperationQueue;
 
-    private final Queue<NioSelectorScheduledOp> scheduledOperationQueue;
+    private final AtomicBoolean wakeupPending;
+
+    private final NioTimingWheel timingWheel;
 
     private final long tickMs;
 
+    private final boolean tickless;
+
+    private final long busyPollNs;
+
+    private final NioSelectedKeySet selectedKeySet;
+
+    private final NioSelectorStats stats;
+
+    private final BufferPool bufferPool;
+
     private volatile boolean open;
 
-    NioSelector(long tickMs) throws IOException {
-        if (tickMs <= 0) {
+    NioSelector(String name, NioReactorOptions options) throws IOException {
+        if (options.getTickMs() <= 0) {
             throw new IllegalArgumentException("Tick period must be positive");
         }
 
-        this.selector = Selector.open();
-        this.postOperationQueue = new ConcurrentLinkedQueue<>();
-        this.scheduledOperationQueue = new PriorityQueue<>(SCHEDULE_COMPARATOR);
+        this.provider = options.getSelectorProvider();
+        this.selector = provider.openSelector();
+        this.selectedKeySet = options.isOptimizedSelectedKeys() ? NioSelectedKeySet.install(selector) : null;
+        this.stats = new NioSelectorStats();
+        this.bufferPool = new BufferPool(options.getBufferPoolMaxBytes());
+        this.postOperationQueue = new NioSelectorPostQueue();
+        this.wakeupPending = new AtomicBoolean(false);
+        this.timingWheel = new NioTimingWheel(this, System.nanoTime());
+
+        this.tickMs = options.getTickMs();
+        this.tickless = options.isTickless();
+        this.busyPollNs = TimeUnit.MICROSECONDS.toNanos(options.getBusyPollUs());
+        this.open = true;
 
         this.thread = new Thread(this::loop);
-        this.thread.setName("NetCrusher selector event loop");
+        this.thread.setName(name);
         this.thread.setDaemon(false);
         this.thread.start();
-
-        this.tickMs = tickMs;
-        this.open = true;
     }
 
     synchronized void close() {
@@ -63,9 +85,7 @@ public class NioSelector {
             LOGGER.debug("Selector is closing");
             boolean interrupted = false;
 
-            postOperationQueue.clear();
-
-            wakeup();
+            selector.wakeup();
 
             if (thread.isAlive()) {
                 thread.interrupt();
@@ -81,6 +101,11 @@ public class NioSelector {
                 }
             }
 
+            // the queue has the only consumer so it's drained when the loop is over
+            if (!thread.isAlive()) {
+                cancelPostOperations();
+            }
+
             int activeSelectionKeys = selector.keys().size();
             if (activeSelectionKeys > 0) {
                 LOGGER.warn("Selector still has {} selection keys. Have you closed all linked crushers before?",
@@ -110,9 +135,17 @@ public class NioSelector {
     }
 
     // Internal method
-    public int wakeup() {
+    public void wakeup() {
         // fixes some strange behaviour on Windows: http://stackoverflow.com/a/39657002/827139
-        return execute(selector::selectNow);
+        if (Thread.currentThread().equals(thread)) {
+            try {
+                selector.selectNow();
+            } catch (IOException e) {
+                LOGGER.error("Error on selectNow()", e);
+            }
+        } else {
+            post(this::wakeup);
+        }
     }
 
     // Internal method
@@ -126,9 +159,9 @@ public class NioSelector {
                 }
             } else {
                 NioSelectorPostOp<T> postOperation = new NioSelectorPostOp<>(callable);
-                postOperationQueue.add(postOperation);
+                postOperationQueue.offer(postOperation);
 
-                selector.wakeup();
+                wakeupSelector();
 
                 try {
                     return postOperation.await();
@@ -144,17 +177,138 @@ public class NioSelector {
     }
 
     // Internal method
-    public void schedule(Runnable runnable, long delayNs) {
-        if (tickMs == 0) {
-            throw new IllegalStateException("Tick value should be set on selector");
+    public <T> CompletableFuture<T> submit(Callable<T> callable) {
+        if (open) {
+            NioSelectorPostOp<T> postOperation = new NioSelectorPostOp<>(callable);
+
+            if (Thread.currentThread().equals(thread)) {
+                postOperation.run();
+            } else {
+                postOperationQueue.offer(postOperation);
+
+                wakeupSelector();
+            }
+
+            return postOperation.getFuture();
+        } else {
+            throw new IllegalStateException("Selector is closed");
         }
-        if (!Thread.currentThread().equals(thread)) {
-            throw new IllegalStateException("Scheduling only should be made fron selector's thread");
+    }
+
+    // Internal method
+    public <T> List<CompletableFuture<T>> submitAll(Collection<? extends Callable<T>> callables) {
+        if (open) {
+            final boolean selectorThread = Thread.currentThread().equals(thread);
+            final List<CompletableFuture<T>> futures = new ArrayList<>(callables.size());
+
+            for (Callable<T> callable : callables) {
+                NioSelectorPostOp<T> postOperation = new NioSelectorPostOp<>(callable);
+
+                if (selectorThread) {
+                    postOperation.run();
+                } else {
+                    postOperationQueue.offer(postOperation);
+                }
+
+                futures.add(postOperation.getFuture());
+            }
+
+            // the whole batch shares the only wakeup
+            if (!selectorThread && !futures.isEmpty()) {
+                wakeupSelector();
+            }
+
+            return futures;
+        } else {
+            throw new IllegalStateException("Selector is closed");
         }
+    }
 
-        long nowNs = System.nanoTime();
+    // Internal method
+    public void post(Runnable runnable) {
+        if (open) {
+            postOperationQueue.offer(new NioSelectorPostOp<>(() -> {
+                try {
+                    runnable.run();
+                } catch (Exception e) {
+                    LOGGER.error("Exception in posted selector op", e);
+                }
+                return true;
+            }));
 
-        scheduledOperationQueue.add(new NioSelectorScheduledOp(nowNs + delayNs, runnable));
+            wakeupSelector();
+        } else {
+            throw new IllegalStateException("Selector is closed");
+        }
+    }
+
+    private void wakeupSelector() {
+        // all submissions made before the loop drains the queue share the only wakeup
+        if (wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    // Internal method
+    public void schedule(Runnable runnable, long delayNs) {
+        checkSelectorThread();
+
+        timingWheel.schedule(runnable, System.nanoTime(), delayNs);
+    }
+
+    /**
+     * Check whether the selector dispatches ready keys from an array-backed set instead of the JDK's hash set
+     * @return Returns 'true' if the selected-key set has been replaced
+     */
+    public boolean isOptimizedSelectedKeys() {
+        return selectedKeySet != null;
+    }
+
+    /**
+     * Get the provider which channels registered on this selector must be opened by
+     * @return Selector provider
+     */
+    public SelectorProvider getProvider() {
+        return provider;
+    }
+
+    /**
+     * Get statistics of the selector event loop
+     * @return Selector statistics
+     */
+    public NioSelectorStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Get the pool of transfer buffers used by channels of this selector
+     * @return Buffer pool
+     */
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    // Internal method
+    public NioSelectorTimer createTimer(Runnable runnable) {
+        return new NioSelectorTimer(this, runnable, false);
+    }
+
+    void schedule(NioSelectorTimer timer, long delayNs) {
+        checkSelectorThread();
+
+        timingWheel.schedule(timer, System.nanoTime(), delayNs);
+    }
+
+    void cancel(NioSelectorTimer timer) {
+        checkSelectorThread();
+
+        timingWheel.cancel(timer);
+    }
+
+    private void checkSelectorThread() {
+        if (!Thread.currentThread().equals(thread)) {
+            throw new IllegalStateException("Scheduling only should be made fron selector's thread");
+        }
     }
 
     private void loop() {
@@ -164,7 +318,7 @@ public class NioSelector {
             // block on getting selection keys ready to act
             int count;
             try {
-                count = selector.select(tickMs);
+                count = select();
             } catch (ClosedSelectorException e) {
                 break;
             } catch (Exception e) {
@@ -174,43 +328,109 @@ public class NioSelector {
 
             // execute all selection key callbacks
             if (count > 0) {
-                Set<SelectionKey> keys = selector.selectedKeys();
-
-                Iterator<SelectionKey> keyIterator = keys.iterator();
-                while (keyIterator.hasNext()) {
-                    SelectionKey selectionKey = keyIterator.next();
-
-                    if (selectionKey.isValid()) {
-                        SelectionKeyCallback callback = (SelectionKeyCallback) selectionKey.attachment();
-                        try {
-                            callback.execute(selectionKey);
-                        } catch (Exception e) {
-                            LOGGER.error("Error while executing selection key callback", e);
-                        }
-                    } else {
-                        LOGGER.debug("Selection key is invalid: {}", selectionKey);
-                    }
-
-                    keyIterator.remove();
+                if (selectedKeySet != null) {
+                    processSelectedKeysOptimized();
+                } else {
+                    processSelectedKeysPlain();
                 }
             }
 
             runScheduledOperations();
 
+            // submissions after this point should wake the selector up again
+            wakeupPending.set(false);
+
             runPostOperations();
+
+            stats.completeLoop();
         }
 
         LOGGER.debug("Selector event loop has finished");
     }
 
+    private void processSelectedKeysPlain() {
+        Set<SelectionKey> keys = selector.selectedKeys();
+
+        Iterator<SelectionKey> keyIterator = keys.iterator();
+        while (keyIterator.hasNext()) {
+            SelectionKey selectionKey = keyIterator.next();
+            keyIterator.remove();
+
+            processSelectedKey(selectionKey);
+        }
+    }
+
+    private void processSelectedKeysOptimized() {
+        // the size is re-read as callbacks may call selectNow() which appends keys to the set
+        for (int i = 0; i < selectedKeySet.size(); i++) {
+            processSelectedKey(selectedKeySet.get(i));
+        }
+
+        selectedKeySet.reset();
+    }
+
+    private void processSelectedKey(SelectionKey selectionKey) {
+        if (selectionKey.isValid()) {
+            SelectionKeyCallback callback = (SelectionKeyCallback) selectionKey.attachment();
+            final long startedNs = System.nanoTime();
+            try {
+                callback.execute(selectionKey);
+            } catch (Exception e) {
+                LOGGER.error("Error while executing selection key callback", e);
+            }
+            stats.callbackCompleted(System.nanoTime() - startedNs);
+        } else {
+            LOGGER.debug("Selection key is invalid: {}", selectionKey);
+        }
+    }
+
+    private int select() throws IOException {
+        if (busyPollNs > 0) {
+            final int count = busyPoll();
+            if (count > 0 || wakeupPending.get()) {
+                return count;
+            }
+        }
+
+        if (tickless) {
+            final long timeoutNs = timingWheel.getTimeoutNs(System.nanoTime());
+            if (timeoutNs < 0) {
+                return selector.select();
+            } else if (timeoutNs == 0) {
+                return selector.selectNow();
+            } else {
+                // select() has millisecond granularity so the timeout is rounded up to not wake up too early
+                return selector.select(-Math.floorDiv(-timeoutNs, TimeUnit.MILLISECONDS.toNanos(1)));
+            }
+        } else {
+            return selector.select(tickMs);
+        }
+    }
+
+    private int busyPoll() throws IOException {
+        final long startedNs = System.nanoTime();
+
+        // spinning never outlasts the earliest timer so timers expire in time
+        final long timeoutNs = timingWheel.getTimeoutNs(startedNs);
+        final long spinNs = timeoutNs < 0 ? busyPollNs : Math.min(timeoutNs, busyPollNs);
+
+        int count;
+        do {
+            count = selector.selectNow();
+        } while (count == 0 && !wakeupPending.get() && System.nanoTime() - startedNs < spinNs);
+
+        return count;
+    }
+
     private void runScheduledOperations() {
+        timingWheel.expire(System.nanoTime());
+    }
+
+    private void cancelPostOperations() {
         while (true) {
-            NioSelectorScheduledOp scheduledOperation = scheduledOperationQueue.peek();
-            if (scheduledOperation != null && scheduledOperation.isReady()) {
-                scheduledOperation = scheduledOperationQueue.poll();
-                if (scheduledOperation != null) {
-                    scheduledOperation.run();
-                }
+            NioSelectorPostOp postOperation = postOperationQueue.poll();
+            if (postOperation != null) {
+                postOperation.cancel();
             } else {
                 break;
             }
@@ -12,6 +12,8 @@ public class NioSelectorPostOp<T> implements Runnable {
 
     private final Callable<T> delegate;
 
+    private volatile NioSelectorPostOp<?> next;
+
     NioSelectorPostOp(Callable<T> delegate) {
         this.delegate = delegate;
         this.future = new CompletableFuture<>();
@@ -27,6 +29,22 @@ public class NioSelectorPostOp<T> implements Runnable {
         }
     }
 
+    NioSelectorPostOp<?> getNext() {
+        return next;
+    }
+
+    void setNext(NioSelectorPostOp<?> next) {
+        this.next = next;
+    }
+
+    void cancel() {
+        future.completeExceptionally(new IllegalStateException("Selector is closed"));
+    }
+
+    CompletableFuture<T> getFuture() {
+        return future;
+    }
+
     T await() throws InterruptedException, ExecutionException {
         return future.get();
     }
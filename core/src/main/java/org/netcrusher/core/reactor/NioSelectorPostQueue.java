@@ -0,0 +1,41 @@
+package org.netcrusher.core.reactor;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Intrusive lock-free multi-producer single-consumer queue of post operations. Any thread could offer,
+ * only the selector's thread polls. Operations are linked through their own field so offering doesn't allocate
+ */
+final class NioSelectorPostQueue {
+
+    private final AtomicReference<NioSelectorPostOp<?>> head;
+
+    private NioSelectorPostOp<?> tail;
+
+    NioSelectorPostQueue() {
+        NioSelectorPostOp<?> stub = new NioSelectorPostOp<>(null);
+
+        this.head = new AtomicReference<>(stub);
+        this.tail = stub;
+    }
+
+    void offer(NioSelectorPostOp<?> postOperation) {
+        postOperation.setNext(null);
+
+        NioSelectorPostOp<?> prev = head.getAndSet(postOperation);
+        prev.setNext(postOperation);
+    }
+
+    NioSelectorPostOp<?> poll() {
+        final NioSelectorPostOp<?> next = tail.getNext();
+        if (next != null) {
+            // the polled operation stays in the queue as a stub until the next poll
+            tail = next;
+            return next;
+        } else {
+            // the queue is empty or a producer is in the middle of offering
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,207 @@
+package org.netcrusher.core.reactor;
+
+import org.netcrusher.core.nio.InterestOpsCounter;
+
+/**
+ * Statistics of a selector event loop. Values are collected by the selector's thread during a loop iteration
+ * and published when the iteration is over, so they can be read from any thread
+ */
+public final class NioSelectorStats implements InterestOpsCounter {
+
+    private volatile long loopCount;
+
+    private volatile long interestChangeCount;
+
+    private volatile long interestSkipCount;
+
+    private volatile long maxInterestChangesPerLoop;
+
+    private volatile long callbackCount;
+
+    private volatile long callbackDurationNs;
+
+    private volatile long maxCallbackDurationNs;
+
+    private volatile long maxLoopCallbackDurationNs;
+
+    private volatile long yieldCount;
+
+    private long loopInterestChanges;
+
+    private long loopInterestSkips;
+
+    private long loopCallbacks;
+
+    private long loopCallbackDurationNs;
+
+    private long loopMaxCallbackDurationNs;
+
+    private long loopYields;
+
+    NioSelectorStats() {
+        this.loopCount = 0;
+        this.interestChangeCount = 0;
+        this.interestSkipCount = 0;
+        this.maxInterestChangesPerLoop = 0;
+        this.callbackCount = 0;
+        this.callbackDurationNs = 0;
+        this.maxCallbackDurationNs = 0;
+        this.maxLoopCallbackDurationNs = 0;
+        this.yieldCount = 0;
+    }
+
+    // Internal method
+    @Override
+    public void changed() {
+        loopInterestChanges++;
+    }
+
+    // Internal method
+    @Override
+    public void skipped() {
+        loopInterestSkips++;
+    }
+
+    // Internal method
+    public void yielded() {
+        loopYields++;
+    }
+
+    void callbackCompleted(long durationNs) {
+        loopCallbacks++;
+        loopCallbackDurationNs += durationNs;
+
+        if (durationNs > loopMaxCallbackDurationNs) {
+            loopMaxCallbackDurationNs = durationNs;
+        }
+    }
+
+    void completeLoop() {
+        loopCount++;
+
+        if (loopInterestChanges > 0) {
+            interestChangeCount += loopInterestChanges;
+            if (loopInterestChanges > maxInterestChangesPerLoop) {
+                maxInterestChangesPerLoop = loopInterestChanges;
+            }
+            loopInterestChanges = 0;
+        }
+
+        if (loopInterestSkips > 0) {
+            interestSkipCount += loopInterestSkips;
+            loopInterestSkips = 0;
+        }
+
+        if (loopCallbacks > 0) {
+            callbackCount += loopCallbacks;
+            callbackDurationNs += loopCallbackDurationNs;
+            if (loopMaxCallbackDurationNs > maxCallbackDurationNs) {
+                maxCallbackDurationNs = loopMaxCallbackDurationNs;
+            }
+            if (loopCallbackDurationNs > maxLoopCallbackDurationNs) {
+                maxLoopCallbackDurationNs = loopCallbackDurationNs;
+            }
+            loopCallbacks = 0;
+            loopCallbackDurationNs = 0;
+            loopMaxCallbackDurationNs = 0;
+        }
+
+        if (loopYields > 0) {
+            yieldCount += loopYields;
+            loopYields = 0;
+        }
+    }
+
+    /**
+     * Get how many times the event loop has been iterated
+     * @return Count of loop iterations
+     */
+    public long getLoopCount() {
+        return loopCount;
+    }
+
+    /**
+     * Get how many times interest sets of selection keys have been really changed
+     * @return Count of interest set changes
+     */
+    public long getInterestChangeCount() {
+        return interestChangeCount;
+    }
+
+    /**
+     * Get how many interest set updates have been skipped as the key already had the requested interest set
+     * @return Count of skipped updates
+     */
+    public long getInterestSkipCount() {
+        return interestSkipCount;
+    }
+
+    /**
+     * Get the largest count of interest set changes made during a single loop iteration
+     * @return Maximum count of changes per loop
+     */
+    public long getMaxInterestChangesPerLoop() {
+        return maxInterestChangesPerLoop;
+    }
+
+    /**
+     * Get the average count of interest set changes per loop iteration
+     * @return Average count of changes per loop
+     */
+    public double getAverageInterestChangesPerLoop() {
+        final long loops = loopCount;
+        return loops > 0 ? (double) interestChangeCount / loops : 0.0;
+    }
+
+    /**
+     * Get how many selection key callbacks have been executed
+     * @return Count of callbacks
+     */
+    public long getCallbackCount() {
+        return callbackCount;
+    }
+
+    /**
+     * Get the average duration of a selection key callback
+     * @return Average duration in nanoseconds
+     */
+    public long getAverageCallbackDurationNs() {
+        final long callbacks = callbackCount;
+        return callbacks > 0 ? callbackDurationNs / callbacks : 0;
+    }
+
+    /**
+     * Get the duration of the longest selection key callback. A long callback delays all other channels
+     * served by the same selector
+     * @return Maximum duration in nanoseconds
+     */
+    public long getMaxCallbackDurationNs() {
+        return maxCallbackDurationNs;
+    }
+
+    /**
+     * Get the largest total duration of callbacks executed during a single loop iteration
+     * @return Maximum duration in nanoseconds
+     */
+    public long getMaxLoopCallbackDurationNs() {
+        return maxLoopCallbackDurationNs;
+    }
+
+    /**
+     * Get how many times channels have stopped processing an event on exhausted budget
+     * to let other channels go on
+     * @return Count of yields
+     */
+    public long getYieldCount() {
+        return yieldCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("loops=%d, interest changes=%d (skipped=%d, max per loop=%d), "
+                + "callbacks=%d (avg=%dns, max=%dns, max per loop=%dns), yields=%d",
+            loopCount, interestChangeCount, interestSkipCount, maxInterestChangesPerLoop,
+            callbackCount, getAverageCallbackDurationNs(), maxCallbackDurationNs, maxLoopCallbackDurationNs,
+            yieldCount);
+    }
+}
@@ -0,0 +1,92 @@
+package org.netcrusher.core.reactor;
+
+/**
+ * Reusable timer bound to a selector loop. The same timer could be scheduled again and again
+ * without any allocation. All methods should be called from the selector's thread
+ */
+public final class NioSelectorTimer {
+
+    private final NioSelector selector;
+
+    private final boolean pooled;
+
+    private Runnable runnable;
+
+    private NioSelectorTimer prev;
+
+    private NioSelectorTimer next;
+
+    private long tick;
+
+    NioSelectorTimer(NioSelector selector, Runnable runnable, boolean pooled) {
+        this.selector = selector;
+        this.runnable = runnable;
+        this.pooled = pooled;
+    }
+
+    // Internal method
+    public void schedule(long delayNs) {
+        selector.schedule(this, delayNs);
+    }
+
+    // Internal method
+    public void cancel() {
+        selector.cancel(this);
+    }
+
+    // Internal method
+    public boolean isScheduled() {
+        return next != null;
+    }
+
+    void run() {
+        runnable.run();
+    }
+
+    boolean isPooled() {
+        return pooled;
+    }
+
+    void setRunnable(Runnable runnable) {
+        this.runnable = runnable;
+    }
+
+    long getTick() {
+        return tick;
+    }
+
+    void setTick(long tick) {
+        this.tick = tick;
+    }
+
+    NioSelectorTimer getNext() {
+        return next;
+    }
+
+    void setNext(NioSelectorTimer next) {
+        this.next = next;
+    }
+
+    void makeEmptyList() {
+        this.prev = this;
+        this.next = this;
+    }
+
+    boolean isEmptyList() {
+        return next == this;
+    }
+
+    void linkBefore(NioSelectorTimer timer) {
+        this.prev = timer.prev;
+        this.next = timer;
+        timer.prev.next = this;
+        timer.prev = this;
+    }
+
+    void unlink() {
+        this.prev.next = this.next;
+        this.next.prev = this.prev;
+        this.prev = null;
+        this.next = null;
+    }
+}
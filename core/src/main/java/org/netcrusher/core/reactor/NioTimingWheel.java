@@ -0,0 +1,273 @@
+package org.netcrusher.core.reactor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashed timing wheel. Insert and cancel are O(1), timers are linked intrusively so rescheduling
+ * the same timer doesn't allocate. Timers with delays longer than the wheel span stay in their slot
+ * and are skipped until their tick comes. Each slot keeps its earliest tick and the occupied slots are
+ * tracked in a bitmap, so the next deadline is found without walking the timer lists.
+ */
+final class NioTimingWheel {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NioTimingWheel.class);
+
+    private static final long SLOT_NS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final int SLOT_COUNT = 1024;
+
+    private static final int SLOT_MASK = SLOT_COUNT - 1;
+
+    private static final int WORD_SHIFT = 6;
+
+    private static final long NO_TICK = Long.MAX_VALUE;
+
+    private static final long EXPIRED_TICK = Long.MIN_VALUE;
+
+    private static final int POOL_LIMIT = 1024;
+
+    private final NioSelector selector;
+
+    private final NioSelectorTimer[] slots;
+
+    private final long[] slotTicks;
+
+    private final long[] occupied;
+
+    private final NioSelectorTimer expired;
+
+    private NioSelectorTimer pool;
+
+    private int poolSize;
+
+    private int size;
+
+    private long processedTick;
+
+    NioTimingWheel(NioSelector selector, long nowNs) {
+        this.selector = selector;
+
+        this.slots = new NioSelectorTimer[SLOT_COUNT];
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            this.slots[i] = new NioSelectorTimer(selector, null, false);
+            this.slots[i].makeEmptyList();
+        }
+
+        this.slotTicks = new long[SLOT_COUNT];
+        Arrays.fill(this.slotTicks, NO_TICK);
+
+        this.occupied = new long[SLOT_COUNT >>> WORD_SHIFT];
+
+        this.expired = new NioSelectorTimer(selector, null, false);
+        this.expired.makeEmptyList();
+
+        this.processedTick = floorTick(nowNs);
+    }
+
+    private static long floorTick(long nowNs) {
+        return Math.floorDiv(nowNs, SLOT_NS);
+    }
+
+    private static long ceilTick(long deadlineNs) {
+        return -Math.floorDiv(-deadlineNs, SLOT_NS);
+    }
+
+    void schedule(NioSelectorTimer timer, long nowNs, long delayNs) {
+        if (timer.isScheduled()) {
+            unlink(timer);
+        }
+
+        // timer fires on the first expiration at or after its deadline
+        final long tick = Math.max(ceilTick(nowNs + Math.max(0, delayNs)), processedTick + 1);
+        final int index = (int) (tick & SLOT_MASK);
+
+        timer.setTick(tick);
+        timer.linkBefore(slots[index]);
+
+        if (tick < slotTicks[index]) {
+            updateSlot(index, tick);
+        }
+
+        size++;
+    }
+
+    void schedule(Runnable runnable, long nowNs, long delayNs) {
+        NioSelectorTimer timer = pool;
+        if (timer != null) {
+            pool = timer.getNext();
+            poolSize--;
+
+            timer.setNext(null);
+            timer.setRunnable(runnable);
+        } else {
+            timer = new NioSelectorTimer(selector, runnable, true);
+        }
+
+        schedule(timer, nowNs, delayNs);
+    }
+
+    void cancel(NioSelectorTimer timer) {
+        if (timer.isScheduled()) {
+            unlink(timer);
+        }
+    }
+
+    private void unlink(NioSelectorTimer timer) {
+        final long tick = timer.getTick();
+
+        timer.unlink();
+        size--;
+
+        // timers already moved to the expired list don't count in their slot anymore
+        if (tick != EXPIRED_TICK) {
+            final int index = (int) (tick & SLOT_MASK);
+            if (tick == slotTicks[index]) {
+                updateSlot(index, earliestTick(slots[index]));
+            }
+        }
+    }
+
+    private void updateSlot(int index, long tick) {
+        slotTicks[index] = tick;
+
+        if (tick == NO_TICK) {
+            occupied[index >>> WORD_SHIFT] &= ~(1L << index);
+        } else {
+            occupied[index >>> WORD_SHIFT] |= 1L << index;
+        }
+    }
+
+    private static long earliestTick(NioSelectorTimer slot) {
+        long tick = NO_TICK;
+
+        NioSelectorTimer timer = slot.getNext();
+        while (timer != slot) {
+            tick = Math.min(tick, timer.getTick());
+            timer = timer.getNext();
+        }
+
+        return tick;
+    }
+
+    void expire(long nowNs) {
+        final long currentTick = floorTick(nowNs);
+        if (currentTick <= processedTick) {
+            return;
+        }
+
+        if (size > 0) {
+            final long lastTick = Math.min(currentTick, processedTick + SLOT_COUNT);
+
+            for (long tick = processedTick + 1; tick <= lastTick; tick++) {
+                final int index = (int) (tick & SLOT_MASK);
+                if (slotTicks[index] > currentTick) {
+                    continue;
+                }
+
+                final NioSelectorTimer slot = slots[index];
+
+                NioSelectorTimer timer = slot.getNext();
+                while (timer != slot) {
+                    final NioSelectorTimer next = timer.getNext();
+                    if (timer.getTick() <= currentTick) {
+                        timer.unlink();
+                        timer.setTick(EXPIRED_TICK);
+                        timer.linkBefore(expired);
+                    }
+                    timer = next;
+                }
+
+                updateSlot(index, earliestTick(slot));
+            }
+        }
+
+        processedTick = currentTick;
+
+        // callbacks are free to schedule and cancel any timer including the expired ones
+        while (!expired.isEmptyList()) {
+            final NioSelectorTimer timer = expired.getNext();
+            unlink(timer);
+
+            try {
+                timer.run();
+            } catch (Exception e) {
+                LOGGER.error("Exception in scheduled selector op", e);
+            }
+
+            if (timer.isPooled()) {
+                release(timer);
+            }
+        }
+    }
+
+    /**
+     * Calculates how long the selector could sleep before the earliest timer should fire
+     * @param nowNs Current time
+     * @return Timeout in nanoseconds, 0 if there are overdue timers, -1 if there are no timers at all
+     */
+    long getTimeoutNs(long nowNs) {
+        if (size == 0) {
+            return -1;
+        }
+
+        // occupied slots ahead are ordered by tick, timers beyond the wheel span are checked on the next revolution
+        final long baseTick = processedTick + 1;
+        final int start = (int) (baseTick & SLOT_MASK);
+
+        long nextTick = findTick(start, SLOT_COUNT, baseTick - start);
+        if (nextTick == NO_TICK) {
+            nextTick = findTick(0, start, baseTick - start + SLOT_COUNT);
+        }
+        if (nextTick == NO_TICK) {
+            nextTick = processedTick + SLOT_COUNT;
+        }
+
+        return Math.max(0, nextTick * SLOT_NS - nowNs);
+    }
+
+    private long findTick(int fromIndex, int toIndex, long zeroTick) {
+        for (int index = nextOccupied(fromIndex); index < toIndex; index = nextOccupied(index + 1)) {
+            if (slotTicks[index] == zeroTick + index) {
+                return slotTicks[index];
+            }
+        }
+
+        return NO_TICK;
+    }
+
+    private int nextOccupied(int fromIndex) {
+        if (fromIndex >= SLOT_COUNT) {
+            return SLOT_COUNT;
+        }
+
+        int word = fromIndex >>> WORD_SHIFT;
+        long bits = occupied[word] & (-1L << fromIndex);
+        while (bits == 0) {
+            if (++word == occupied.length) {
+                return SLOT_COUNT;
+            }
+            bits = occupied[word];
+        }
+
+        return (word << WORD_SHIFT) + Long.numberOfTrailingZeros(bits);
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void release(NioSelectorTimer timer) {
+        timer.setRunnable(null);
+
+        if (poolSize < POOL_LIMIT) {
+            timer.setNext(pool);
+            pool = timer;
+            poolSize++;
+        }
+    }
+
+}
@@ -0,0 +1,32 @@
+package org.netcrusher.core.throttle;
+
+/**
+ * <p>Throttler which meters the output when it is sent instead of delaying whole buffers. A TCP queue asks
+ * how many bytes could go right now and passes only that slice of its buffers to the socket, so the output
+ * is spread evenly instead of going in buffer-sized bursts.</p>
+ *
+ * <p>Where the output is not sliced (datagrams) the throttler works as a usual one with calculateDelayNs()</p>
+ */
+public interface PacingThrottler extends Throttler {
+
+    /**
+     * Calculate how many bytes could be sent right now
+     * @param pendingBytes How many bytes are waiting in the queue
+     * @return Number of bytes (0 if the output should wait)
+     */
+    long calculateAllowedBytes(long pendingBytes);
+
+    /**
+     * Calculate how long the output should wait before the next slice is allowed
+     * @param pendingBytes How many bytes are waiting in the queue
+     * @return Delay in nanoseconds
+     */
+    long calculateWaitNs(long pendingBytes);
+
+    /**
+     * Register bytes which have been sent
+     * @param bytes Number of sent bytes
+     */
+    void consume(long bytes);
+
+}
@@ -29,4 +29,11 @@ public interface Throttler {
      */
     long calculateDelayNs(ByteBuffer bb);
 
+    /**
+     * Release the state the throttler holds for the connection. Called once when the connection is closed
+     */
+    default void release() {
+        // nothing to release by default
+    }
+
 }
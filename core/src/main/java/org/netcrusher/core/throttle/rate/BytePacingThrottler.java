@@ -0,0 +1,133 @@
+package org.netcrusher.core.throttle.rate;
+
+import org.netcrusher.core.chronometer.Chronometer;
+import org.netcrusher.core.chronometer.SystemChronometer;
+import org.netcrusher.core.throttle.PacingThrottler;
+import org.netcrusher.core.throttle.Throttler;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Throttler limits byte count per period spreading the bytes evenly. Each byte has its own transmission
+ * time so on every wake-up of the selector the TCP queue sends exactly the bytes the elapsed time allows
+ * (a slice of its buffer if needed) instead of a whole period worth of bytes followed by a long stall.</p>
+ *
+ * <p>A slice is never smaller than half of the tolerance worth of bytes unless it is the rest of the queue,
+ * so the selector doesn't spin on tiny writes</p>
+ *
+ * <p>The throttler is stateful so each connection should have its own instance</p>
+ */
+public class BytePacingThrottler implements PacingThrottler {
+
+    private static final long DEFAULT_TOLERANCE_NS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private static final long MAX_LATENESS_NS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final double nsPerByte;
+
+    private final long toleranceNs;
+
+    private final long quantumBytes;
+
+    private final Chronometer chronometer;
+
+    private long markerNs;
+
+    private boolean waiting;
+
+    /**
+     * Create a new throttler. An idle connection could send 20 milliseconds worth of bytes at once
+     * @param rate How many byte are expected per period
+     * @param time Period time
+     * @param timeUnit Period time unit
+     */
+    public BytePacingThrottler(long rate, long time, TimeUnit timeUnit) {
+        this(rate, time, timeUnit, DEFAULT_TOLERANCE_NS, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Create a new throttler
+     * @param rate How many byte are expected per period
+     * @param time Period time
+     * @param timeUnit Period time unit
+     * @param tolerance How much idle time could be used by the following bytes
+     * @param toleranceTimeUnit Tolerance time unit
+     */
+    public BytePacingThrottler(long rate, long time, TimeUnit timeUnit, long tolerance, TimeUnit toleranceTimeUnit) {
+        this(rate, time, timeUnit, toleranceTimeUnit.toNanos(tolerance), SystemChronometer.INSTANCE);
+    }
+
+    protected BytePacingThrottler(long rate, long time, TimeUnit timeUnit, long toleranceNs, Chronometer chronometer) {
+        if (rate < 1) {
+            throw new IllegalArgumentException("Rate value is invalid");
+        }
+
+        if (toleranceNs < 0) {
+            throw new IllegalArgumentException("Tolerance must not be negative");
+        }
+
+        final long periodNs = timeUnit.toNanos(time);
+        if (periodNs > TimeUnit.HOURS.toNanos(AbstractRateThrottler.MAX_PERIOD_HOURS)) {
+            throw new IllegalArgumentException("Period is too high");
+        }
+        if (periodNs < 1) {
+            throw new IllegalArgumentException("Period is too small");
+        }
+
+        this.nsPerByte = 1.0 * periodNs / rate;
+        this.toleranceNs = toleranceNs;
+        this.quantumBytes = Math.max(1, (long) (toleranceNs / nsPerByte / 2));
+        this.chronometer = chronometer;
+        this.markerNs = chronometer.getTickNs() - toleranceNs;
+    }
+
+    @Override
+    public long calculateAllowedBytes(long pendingBytes) {
+        final long nowNs = chronometer.getTickNs();
+
+        final long allowedBytes = (long) ((nowNs - startNs(nowNs)) / nsPerByte);
+
+        return allowedBytes >= Math.min(pendingBytes, quantumBytes) ? allowedBytes : 0;
+    }
+
+    @Override
+    public long calculateWaitNs(long pendingBytes) {
+        final long nowNs = chronometer.getTickNs();
+
+        waiting = true;
+
+        final long costNs = (long) Math.ceil(Math.min(pendingBytes, quantumBytes) * nsPerByte);
+        return Math.max(1, startNs(nowNs) + costNs - nowNs);
+    }
+
+    @Override
+    public void consume(long bytes) {
+        final long nowNs = chronometer.getTickNs();
+
+        markerNs = startNs(nowNs) + Math.round(bytes * nsPerByte);
+        waiting = false;
+    }
+
+    @Override
+    public long calculateDelayNs(ByteBuffer bb) {
+        final long nowNs = chronometer.getTickNs();
+        final long startNs = startNs(nowNs);
+
+        markerNs = startNs + Math.round(bb.remaining() * nsPerByte);
+        waiting = false;
+
+        final long delayNs = startNs - nowNs;
+        return delayNs > 0 ? delayNs : Throttler.NO_DELAY_NS;
+    }
+
+    private long startNs(long nowNs) {
+        if (waiting) {
+            // timers of the selector fire on ticks so the output waiting for one keeps the time it was late for
+            return Math.max(markerNs, nowNs - toleranceNs - MAX_LATENESS_NS);
+        }
+
+        // an idle connection doesn't save any time but the tolerance
+        return Math.max(markerNs, nowNs - toleranceNs);
+    }
+}
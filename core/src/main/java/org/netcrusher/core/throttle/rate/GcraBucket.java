@@ -0,0 +1,70 @@
+package org.netcrusher.core.throttle.rate;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket in GCRA form (generic cell rate algorithm). The only state is the theoretical time
+ * when the link becomes free, each reservation moves it forward by the transmission time with one CAS.
+ * All times are nanoseconds of the same chronometer.
+ */
+final class GcraBucket {
+
+    private final long toleranceNs;
+
+    private final AtomicLong freeNs;
+
+    GcraBucket(long toleranceNs, long nowNs) {
+        this.toleranceNs = toleranceNs;
+        this.freeNs = new AtomicLong(nowNs);
+    }
+
+    /**
+     * Reserve the link unconditionally
+     * @param costNs Transmission time
+     * @param nowNs Current time
+     * @return How long the transmission should wait (zero or negative if it could start right now)
+     */
+    long reserve(long costNs, long nowNs) {
+        while (true) {
+            final long currentFreeNs = freeNs.get();
+
+            // an idle link doesn't save any credit but the burst tolerance
+            final long nextFreeNs = Math.max(currentFreeNs, nowNs) + costNs;
+
+            if (freeNs.compareAndSet(currentFreeNs, nextFreeNs)) {
+                return currentFreeNs - toleranceNs - nowNs;
+            }
+        }
+    }
+
+    /**
+     * Reserve the link only if the transmission could start right now
+     * @param costNs Transmission time
+     * @param nowNs Current time
+     * @return True if the link is reserved
+     */
+    boolean tryReserve(long costNs, long nowNs) {
+        while (true) {
+            final long currentFreeNs = freeNs.get();
+            if (currentFreeNs - toleranceNs - nowNs > 0) {
+                return false;
+            }
+
+            final long nextFreeNs = Math.max(currentFreeNs, nowNs) + costNs;
+
+            if (freeNs.compareAndSet(currentFreeNs, nextFreeNs)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Check whether the link has been idle for a while
+     * @param idleNs Idle time
+     * @param nowNs Current time
+     * @return True if nothing has been reserved for the idle time
+     */
+    boolean isIdle(long idleNs, long nowNs) {
+        return nowNs - freeNs.get() > idleNs;
+    }
+}
@@ -0,0 +1,215 @@
+package org.netcrusher.core.throttle.rate;
+
+import org.netcrusher.core.chronometer.Chronometer;
+import org.netcrusher.core.chronometer.SystemChronometer;
+import org.netcrusher.core.throttle.Throttler;
+import org.netcrusher.core.throttle.ThrottlerFactory;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Hierarchical byte rate shaper in the manner of HTB (hierarchical token bucket) with three levels:
+ * the whole crusher, a client host (all connections from the same IP) and a single connection.</p>
+ *
+ * <ul>
+ *     <li>the global rate is shared by all clients that use the factory</li>
+ *     <li>each client host is guaranteed its own rate and borrows unused global capacity above it</li>
+ *     <li>each connection is never faster than the connection ceiling</li>
+ * </ul>
+ *
+ * <p>Buffers within the client rate are passed first and are never delayed by borrowers, buffers above it
+ * are scheduled in order of arrival on the global link. As with other throttlers the returned delays are
+ * enforced by timers of the selector loop the connection runs on. All levels are lock-free so the factory
+ * could be shared by crushers on different loops. A direction needs its own instance</p>
+ *
+ * <p>Guaranteed bytes don't wait for the global link, so the global rate holds only while the sum of the
+ * client rates of active hosts stays below it. With many busy hosts the total output could reach the number
+ * of hosts multiplied by the client rate.</p>
+ *
+ * <p>A host keeps its state while it has open connections, the throttler is released when the connection
+ * is closed</p>
+ */
+public class HierarchicalRateShaper implements ThrottlerFactory {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final long TOLERANCE_NS = TimeUnit.MILLISECONDS.toNanos(AbstractRateThrottler.MIN_PERIOD_MILLIS);
+
+    private static final long CLIENT_IDLE_NS = TimeUnit.MINUTES.toNanos(1);
+
+    private static final int SWEEP_INTERVAL = 1024;
+
+    private final double globalNsPerByte;
+
+    private final double clientNsPerByte;
+
+    private final double connectionNsPerByte;
+
+    private final Chronometer chronometer;
+
+    private final GcraBucket global;
+
+    private final ConcurrentMap<InetAddress, Client> clients;
+
+    private final AtomicInteger allocations;
+
+    /**
+     * Create a new shaper
+     * @param globalRate How many byte are expected per period for all clients together
+     * @param clientRate How many byte are guaranteed per period for each client host (guarantees of all hosts
+     *                   are not limited by the global rate)
+     * @param connectionRate How many byte are allowed per period for each connection (0 if there is no ceiling)
+     * @param time Period time
+     * @param timeUnit Period time unit
+     */
+    public HierarchicalRateShaper(long globalRate, long clientRate, long connectionRate,
+                                  long time, TimeUnit timeUnit)
+    {
+        this(globalRate, clientRate, connectionRate, time, timeUnit, SystemChronometer.INSTANCE);
+    }
+
+    protected HierarchicalRateShaper(long globalRate, long clientRate, long connectionRate,
+                                     long time, TimeUnit timeUnit, Chronometer chronometer)
+    {
+        if (globalRate < 1 || clientRate < 1 || connectionRate < 0) {
+            throw new IllegalArgumentException("Rate value is invalid");
+        }
+
+        if (clientRate > globalRate) {
+            throw new IllegalArgumentException("Client rate must not exceed global rate");
+        }
+
+        final long periodNs = timeUnit.toNanos(time);
+        if (periodNs > TimeUnit.HOURS.toNanos(AbstractRateThrottler.MAX_PERIOD_HOURS)) {
+            throw new IllegalArgumentException("Period is too high");
+        }
+        if (periodNs < 1) {
+            throw new IllegalArgumentException("Period is too small");
+        }
+
+        this.globalNsPerByte = 1.0 * periodNs / globalRate;
+        this.clientNsPerByte = 1.0 * periodNs / clientRate;
+        this.connectionNsPerByte = connectionRate > 0 ? 1.0 * periodNs / connectionRate : 0;
+        this.chronometer = chronometer;
+
+        this.global = new GcraBucket(TOLERANCE_NS, chronometer.getTickNs());
+        this.clients = new ConcurrentHashMap<>();
+        this.allocations = new AtomicInteger(0);
+    }
+
+    @Override
+    public Throttler allocate(InetSocketAddress clientAddress) {
+        final long nowNs = chronometer.getTickNs();
+
+        if (allocations.incrementAndGet() % SWEEP_INTERVAL == 0) {
+            sweep(nowNs);
+        }
+
+        final InetAddress address = clientAddress.getAddress();
+
+        final Client client = clients.compute(address, (key, existing) -> {
+            final Client result = existing != null ? existing : new Client(nowNs);
+            result.connections++;
+            return result;
+        });
+
+        final GcraBucket connection = connectionNsPerByte > 0 ? new GcraBucket(TOLERANCE_NS, nowNs) : null;
+
+        return new ConnectionThrottler(address, client.bucket, connection);
+    }
+
+    private void sweep(long nowNs) {
+        // a bucket idle for a long time is full so a new one for the host is equal to it,
+        // but the bucket is kept while any connection still uses it
+        for (InetAddress address : clients.keySet()) {
+            clients.computeIfPresent(address, (key, client) ->
+                client.connections == 0 && client.bucket.isIdle(CLIENT_IDLE_NS, nowNs) ? null : client);
+        }
+    }
+
+    private void release(InetAddress address) {
+        clients.computeIfPresent(address, (key, client) -> {
+            client.connections--;
+            return client;
+        });
+    }
+
+    private long calculateDelayNs(ByteBuffer bb, GcraBucket client, GcraBucket connection) {
+        final long nowNs = chronometer.getTickNs();
+        final int bytes = bb.remaining();
+
+        long delayNs = Throttler.NO_DELAY_NS;
+
+        if (connection != null) {
+            delayNs = connection.reserve(Math.round(bytes * connectionNsPerByte), nowNs);
+        }
+
+        final long globalCostNs = Math.round(bytes * globalNsPerByte);
+        if (client.tryReserve(Math.round(bytes * clientNsPerByte), nowNs)) {
+            // guaranteed bytes take the global capacity but don't wait for borrowers queued on it
+            global.reserve(globalCostNs, nowNs);
+        } else {
+            delayNs = Math.max(delayNs, global.reserve(globalCostNs, nowNs));
+        }
+
+        return delayNs > 0 ? delayNs : Throttler.NO_DELAY_NS;
+    }
+
+    /**
+     * Get how many client hosts have their state kept
+     * @return Number of client hosts
+     */
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    private static final class Client {
+
+        private final GcraBucket bucket;
+
+        // changed only inside compute() of the map so the key lock guards it
+        private int connections;
+
+        private Client(long nowNs) {
+            this.bucket = new GcraBucket(TOLERANCE_NS, nowNs);
+            this.connections = 0;
+        }
+    }
+
+    private final class ConnectionThrottler implements Throttler {
+
+        private final InetAddress address;
+
+        private final GcraBucket client;
+
+        private final GcraBucket connection;
+
+        private final AtomicBoolean released;
+
+        private ConnectionThrottler(InetAddress address, GcraBucket client, GcraBucket connection) {
+            this.address = address;
+            this.client = client;
+            this.connection = connection;
+            this.released = new AtomicBoolean(false);
+        }
+
+        @Override
+        public long calculateDelayNs(ByteBuffer bb) {
+            return HierarchicalRateShaper.this.calculateDelayNs(bb, client, connection);
+        }
+
+        @Override
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                HierarchicalRateShaper.this.release(address);
+            }
+        }
+    }
+}
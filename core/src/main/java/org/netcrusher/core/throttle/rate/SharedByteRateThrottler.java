@@ -0,0 +1,94 @@
+package org.netcrusher.core.throttle.rate;
+
+import org.netcrusher.core.chronometer.Chronometer;
+import org.netcrusher.core.chronometer.SystemChronometer;
+import org.netcrusher.core.throttle.Throttler;
+import org.netcrusher.core.throttle.ThrottlerFactory;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Throttler limits byte count per period for all clients together. Unlike other throttlers the instance
+ * is thread-safe and lock-free so it could be shared by all pairs of a crusher or even by several crushers
+ * running on different selector loops. Use it as a factory to give every client the same instance.</p>
+ *
+ * <p>The bucket is implemented as GCRA (generic cell rate algorithm): the only state is the theoretical
+ * time when the link becomes free, each buffer moves it forward by its transmission time with one CAS.
+ * Buffers are scheduled in order of arrival so a busy client can't hold the link longer than it takes to send
+ * the bytes it has already queued</p>
+ */
+public class SharedByteRateThrottler implements Throttler, ThrottlerFactory {
+
+    private static final long serialVersionUID = 1L;
+
+    private final double nsPerByte;
+
+    private final Chronometer chronometer;
+
+    private final GcraBucket bucket;
+
+    /**
+     * Create a new throttler. A burst of bytes expected for the minimal period of other throttlers is allowed
+     * @param rate How many byte are expected per period
+     * @param time Period time
+     * @param timeUnit Period time unit
+     * @see AbstractRateThrottler#MIN_PERIOD_MILLIS
+     */
+    public SharedByteRateThrottler(long rate, long time, TimeUnit timeUnit) {
+        this(rate, time, timeUnit, burst(rate, time, timeUnit));
+    }
+
+    /**
+     * Create a new throttler
+     * @param rate How many byte are expected per period
+     * @param time Period time
+     * @param timeUnit Period time unit
+     * @param burst How many bytes could be sent at once after the link has been idle
+     */
+    public SharedByteRateThrottler(long rate, long time, TimeUnit timeUnit, long burst) {
+        this(rate, time, timeUnit, burst, SystemChronometer.INSTANCE);
+    }
+
+    protected SharedByteRateThrottler(long rate, long time, TimeUnit timeUnit, long burst, Chronometer chronometer) {
+        if (rate < 1) {
+            throw new IllegalArgumentException("Rate value is invalid");
+        }
+
+        if (burst < 0) {
+            throw new IllegalArgumentException("Burst must not be negative");
+        }
+
+        final long periodNs = timeUnit.toNanos(time);
+        if (periodNs > TimeUnit.HOURS.toNanos(AbstractRateThrottler.MAX_PERIOD_HOURS)) {
+            throw new IllegalArgumentException("Period is too high");
+        }
+        if (periodNs < 1) {
+            throw new IllegalArgumentException("Period is too small");
+        }
+
+        this.nsPerByte = 1.0 * periodNs / rate;
+        this.chronometer = chronometer;
+        this.bucket = new GcraBucket(Math.round(burst * nsPerByte), chronometer.getTickNs());
+    }
+
+    @Override
+    public Throttler allocate(InetSocketAddress clientAddress) {
+        return this;
+    }
+
+    @Override
+    public long calculateDelayNs(ByteBuffer bb) {
+        final long costNs = Math.round(bb.remaining() * nsPerByte);
+
+        final long delayNs = bucket.reserve(costNs, chronometer.getTickNs());
+
+        return delayNs > 0 ? delayNs : Throttler.NO_DELAY_NS;
+    }
+
+    private static long burst(long rate, long time, TimeUnit timeUnit) {
+        return rate * TimeUnit.MILLISECONDS.toNanos(AbstractRateThrottler.MIN_PERIOD_MILLIS)
+            / Math.max(1, timeUnit.toNanos(time));
+    }
+}
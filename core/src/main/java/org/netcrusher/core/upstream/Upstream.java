@@ -0,0 +1,145 @@
+package org.netcrusher.core.upstream;
+
+import org.netcrusher.core.meter.RateMeterImpl;
+import org.netcrusher.core.meter.RateMeters;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One of the addresses a crusher forwards its clients to. Counters and meters are shared by all clients
+ * connected to the upstream
+ */
+public class Upstream {
+
+    private final InetSocketAddress address;
+
+    private final int weight;
+
+    private final AtomicInteger activeCount;
+
+    private final RateMeterImpl readBytes;
+
+    private final RateMeterImpl sentBytes;
+
+    private final RateMeterImpl readPackets;
+
+    private final RateMeterImpl sentPackets;
+
+    public Upstream(InetSocketAddress address, int weight) {
+        if (address == null) {
+            throw new IllegalArgumentException("Upstream address is not set");
+        }
+
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Upstream weight must be positive");
+        }
+
+        this.address = address;
+        this.weight = weight;
+        this.activeCount = new AtomicInteger(0);
+        this.readBytes = new RateMeterImpl();
+        this.sentBytes = new RateMeterImpl();
+        this.readPackets = new RateMeterImpl();
+        this.sentPackets = new RateMeterImpl();
+    }
+
+    // Internal method
+    public static List<Upstream> createAll(InetSocketAddress connectAddress, Map<InetSocketAddress, Integer> weights) {
+        final List<Upstream> upstreams = new ArrayList<>(weights.size() + 1);
+
+        // the connect address always goes first as the crusher reports the first upstream as its connect address
+        if (connectAddress != null) {
+            upstreams.add(new Upstream(connectAddress, weights.getOrDefault(connectAddress, 1)));
+        }
+
+        weights.forEach((address, weight) -> {
+            if (!address.equals(connectAddress)) {
+                upstreams.add(new Upstream(address, weight));
+            }
+        });
+
+        return Collections.unmodifiableList(upstreams);
+    }
+
+    /**
+     * Get the address of the upstream
+     * @return Address
+     */
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * Get the relative weight of the upstream
+     * @return Weight
+     */
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * Get how many clients are connected (or connecting) to the upstream right now
+     * @return Number of active clients
+     */
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    /**
+     * Get byte meters: bytes read from the upstream and bytes sent to it
+     * @return Rate meters
+     */
+    public RateMeters getByteMeters() {
+        return new RateMeters(readBytes, sentBytes);
+    }
+
+    /**
+     * Get packet meters: datagrams read from the upstream and datagrams sent to it (datagram crusher only)
+     * @return Rate meters
+     */
+    public RateMeters getPacketMeters() {
+        return new RateMeters(readPackets, sentPackets);
+    }
+
+    // Internal method
+    public void acquire() {
+        activeCount.incrementAndGet();
+    }
+
+    // Internal method
+    public void release() {
+        activeCount.decrementAndGet();
+    }
+
+    // Internal method
+    public void updateRead(long bytes) {
+        readBytes.update(bytes);
+    }
+
+    // Internal method
+    public void updateSent(long bytes) {
+        sentBytes.update(bytes);
+    }
+
+    // Internal method
+    public void updateReadDatagram(long bytes) {
+        readBytes.update(bytes);
+        readPackets.increment();
+    }
+
+    // Internal method
+    public void updateSentDatagram(long bytes) {
+        sentBytes.update(bytes);
+        sentPackets.increment();
+    }
+
+    @Override
+    public String toString() {
+        return address + "(" + weight + ")";
+    }
+}
@@ -0,0 +1,19 @@
+package org.netcrusher.core.upstream;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Strategy of selecting an upstream for a new client. A balancer could be called from several selector loops
+ * at once so it should be thread-safe
+ */
+@FunctionalInterface
+public interface UpstreamBalancer {
+
+    /**
+     * Select an upstream for the client
+     * @param clientAddress Address of the client
+     * @return Upstream instance
+     */
+    Upstream select(InetSocketAddress clientAddress);
+
+}
@@ -0,0 +1,19 @@
+package org.netcrusher.core.upstream;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Upstream balancer factory
+ */
+@FunctionalInterface
+public interface UpstreamBalancerFactory extends Serializable {
+
+    /**
+     * Allocates balancer for the upstreams of a crusher
+     * @param upstreams Upstreams in the order they are configured (never empty)
+     * @return Balancer instance
+     */
+    UpstreamBalancer allocate(List<Upstream> upstreams);
+
+}
@@ -0,0 +1,198 @@
+package org.netcrusher.core.upstream;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Built-in strategies to choose an upstream for a new client
+ */
+public final class UpstreamBalancers {
+
+    private static final int VIRTUAL_NODES = 128;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final int BYTE_MASK = 0xff;
+
+    private static final int MIX_SHIFT = 33;
+
+    private static final long MIX_MULTIPLIER1 = 0xff51afd7ed558ccdL;
+
+    private static final long MIX_MULTIPLIER2 = 0xc4ceb9fe1a85ec53L;
+
+    private UpstreamBalancers() {
+    }
+
+    /**
+     * Pass clients to upstreams one by one ignoring weights
+     * @return Balancer factory
+     */
+    public static UpstreamBalancerFactory roundRobin() {
+        return (upstreams) -> {
+            final Upstream[] array = upstreams.toArray(new Upstream[0]);
+            final AtomicInteger counter = new AtomicInteger(0);
+
+            return (clientAddress) -> array[Math.floorMod(counter.getAndIncrement(), array.length)];
+        };
+    }
+
+    /**
+     * Pass a client to the upstream with the fewest active clients per unit of weight.
+     * Ties are resolved in round-robin manner
+     * @return Balancer factory
+     */
+    public static UpstreamBalancerFactory leastActive() {
+        return (upstreams) -> {
+            final Upstream[] array = upstreams.toArray(new Upstream[0]);
+            final AtomicInteger counter = new AtomicInteger(0);
+
+            return (clientAddress) -> {
+                final int offset = Math.floorMod(counter.getAndIncrement(), array.length);
+
+                Upstream selected = array[offset];
+                for (int i = 1; i < array.length; i++) {
+                    final Upstream upstream = array[(offset + i) % array.length];
+
+                    // active/weight < selectedActive/selectedWeight without division
+                    if ((long) upstream.getActiveCount() * selected.getWeight()
+                        < (long) selected.getActiveCount() * upstream.getWeight())
+                    {
+                        selected = upstream;
+                    }
+                }
+
+                return selected;
+            };
+        };
+    }
+
+    /**
+     * Pass clients to upstreams in proportion to their weights. The sequence is smooth so an upstream
+     * with a large weight doesn't get a long run of clients in a row
+     * @return Balancer factory
+     */
+    public static UpstreamBalancerFactory weighted() {
+        return (upstreams) -> new WeightedBalancer(upstreams);
+    }
+
+    /**
+     * Pass all clients from the same host to the same upstream. Adding or removing an upstream moves only
+     * a fair share of the hosts. Weights set the share of the hash ring each upstream owns
+     * @return Balancer factory
+     */
+    public static UpstreamBalancerFactory consistentHash() {
+        return (upstreams) -> new ConsistentHashBalancer(upstreams);
+    }
+
+    private static long hash(byte[] bytes) {
+        long hash = FNV_OFFSET;
+        for (byte b : bytes) {
+            hash ^= b & BYTE_MASK;
+            hash *= FNV_PRIME;
+        }
+
+        // FNV alone spreads short keys poorly so the result is finalized as in MurmurHash3
+        hash ^= hash >>> MIX_SHIFT;
+        hash *= MIX_MULTIPLIER1;
+        hash ^= hash >>> MIX_SHIFT;
+        hash *= MIX_MULTIPLIER2;
+        hash ^= hash >>> MIX_SHIFT;
+
+        return hash;
+    }
+
+    private static final class WeightedBalancer implements UpstreamBalancer {
+
+        private final Upstream[] upstreams;
+
+        private final long[] currentWeights;
+
+        private final long totalWeight;
+
+        private WeightedBalancer(List<Upstream> upstreams) {
+            this.upstreams = upstreams.toArray(new Upstream[0]);
+            this.currentWeights = new long[this.upstreams.length];
+            this.totalWeight = upstreams.stream().mapToLong(Upstream::getWeight).sum();
+        }
+
+        @Override
+        public synchronized Upstream select(InetSocketAddress clientAddress) {
+            int selected = 0;
+            for (int i = 0; i < upstreams.length; i++) {
+                currentWeights[i] += upstreams[i].getWeight();
+                if (currentWeights[i] > currentWeights[selected]) {
+                    selected = i;
+                }
+            }
+
+            currentWeights[selected] -= totalWeight;
+
+            return upstreams[selected];
+        }
+    }
+
+    private static final class ConsistentHashBalancer implements UpstreamBalancer {
+
+        private final long[] hashes;
+
+        private final Upstream[] owners;
+
+        private ConsistentHashBalancer(List<Upstream> upstreams) {
+            final int size = upstreams.stream().mapToInt((upstream) -> upstream.getWeight() * VIRTUAL_NODES).sum();
+
+            final long[] keys = new long[size];
+            final Upstream[] values = new Upstream[size];
+
+            int index = 0;
+            for (Upstream upstream : upstreams) {
+                final int nodes = upstream.getWeight() * VIRTUAL_NODES;
+                for (int i = 0; i < nodes; i++) {
+                    keys[index] = hash((upstream.getAddress().toString() + "#" + i).getBytes(StandardCharsets.UTF_8));
+                    values[index] = upstream;
+                    index++;
+                }
+            }
+
+            // the ring is sorted by the hash of its nodes
+            final Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+
+            this.hashes = new long[size];
+            this.owners = new Upstream[size];
+            for (int i = 0; i < size; i++) {
+                this.hashes[i] = keys[order[i]];
+                this.owners[i] = values[order[i]];
+            }
+        }
+
+        @Override
+        public Upstream select(InetSocketAddress clientAddress) {
+            final long hash = hash(clientKey(clientAddress));
+
+            int index = Arrays.binarySearch(hashes, hash);
+            if (index < 0) {
+                index = -index - 1;
+            }
+
+            return owners[index < hashes.length ? index : 0];
+        }
+
+        private static byte[] clientKey(InetSocketAddress clientAddress) {
+            final InetAddress address = clientAddress.getAddress();
+            if (address != null) {
+                return address.getAddress();
+            } else {
+                return clientAddress.getHostString().getBytes(StandardCharsets.UTF_8);
+            }
+        }
+    }
+}
@@ -2,19 +2,29 @@ package org.netcrusher.datagram;
 
 import org.netcrusher.NetCrusher;
 import org.netcrusher.core.buffer.BufferOptions;
+import org.netcrusher.core.buffer.BufferQuota;
+import org.netcrusher.core.meter.RateMeter;
+import org.netcrusher.core.meter.RateMeterGroup;
 import org.netcrusher.core.meter.RateMeters;
 import org.netcrusher.core.reactor.NioReactor;
 import org.netcrusher.core.state.BitState;
+import org.netcrusher.core.upstream.Upstream;
+import org.netcrusher.core.upstream.UpstreamBalancer;
 import org.netcrusher.datagram.callback.DatagramClientCreation;
 import org.netcrusher.datagram.callback.DatagramClientDeletion;
 import org.netcrusher.tcp.TcpCrusherBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -51,8 +61,14 @@ public class DatagramCrusher implements NetCrusher {
 
     private final InetSocketAddress bindBeforeConnectAddress;
 
+    private final List<Upstream> upstreams;
+
+    private final UpstreamBalancer upstreamBalancer;
+
     private final BufferOptions bufferOptions;
 
+    private final BufferQuota bufferQuota;
+
     private final DatagramFilters filters;
 
     private final DatagramClientCreation creationListener;
@@ -63,7 +79,7 @@ public class DatagramCrusher implements NetCrusher {
 
     private final State state;
 
-    private DatagramInner inner;
+    private List<DatagramInner> inners;
 
     public DatagramCrusher(DatagramCrusherOptions options) {
         if (options == null) {
@@ -83,10 +99,13 @@ public class DatagramCrusher implements NetCrusher {
 
         this.reactor = options.getReactor();
         this.bindAddress = options.getBindAddress();
-        this.connectAddress = options.getConnectAddress();
+        this.upstreams = Upstream.createAll(options.getConnectAddress(), options.getUpstreamWeights());
+        this.upstreamBalancer = options.getUpstreamBalancerFactory().allocate(upstreams);
+        this.connectAddress = upstreams.get(0).getAddress();
         this.bindBeforeConnectAddress = options.getBindBeforeConnectAddress();
         this.socketOptions = options.getSocketOptions().copy();
         this.bufferOptions = options.getBufferOptions().copy();
+        this.bufferQuota = new BufferQuota(bufferOptions.getLimitBytes());
         this.creationListener = options.getCreationListener();
         this.deletionListener = options.getDeletionListener();
         this.deferredListeners = options.isDeferredListeners();
@@ -111,14 +130,17 @@ public class DatagramCrusher implements NetCrusher {
         }
     }
 
+    void closeDeferred() {
+        // the inner is closed from its own selector loop so closing should not wait for the control loop
+        reactor.getSelector().post(this::close);
+    }
+
     @Override
     public void open() {
         reactor.getSelector().execute(() -> {
             if (state.is(State.CLOSED)) {
-                this.inner = new DatagramInner(this,
-                    reactor, socketOptions, bufferOptions, filters,
-                    bindAddress, connectAddress, bindBeforeConnectAddress);
-                this.inner.unfreeze();
+                this.inners = openInners();
+                this.inners.forEach(DatagramInner::unfreeze);
 
                 LOGGER.info("DatagramCrusher <{}>-<{}> is started", bindAddress, connectAddress);
 
@@ -131,26 +153,54 @@ public class DatagramCrusher implements NetCrusher {
         });
     }
 
+    private List<DatagramInner> openInners() throws IOException {
+        final int shards = socketOptions.getReusePortShards();
+        if (shards == 0) {
+            return Collections.singletonList(new DatagramInner(this,
+                reactor.nextSelector(), socketOptions, bufferOptions, filters,
+                bindAddress, upstreamBalancer, bindBeforeConnectAddress));
+        }
+
+        final List<DatagramInner> shardInners = new ArrayList<>(shards);
+        try {
+            for (int i = 0; i < shards; i++) {
+                shardInners.add(new DatagramInner(this,
+                    reactor.getShardSelector(i), socketOptions, bufferOptions, filters,
+                    bindAddress, upstreamBalancer, bindBeforeConnectAddress));
+            }
+        } catch (IOException | RuntimeException e) {
+            shardInners.forEach(DatagramInner::close);
+            throw e;
+        }
+
+        return shardInners;
+    }
+
     @Override
     public void close() {
-        reactor.getSelector().execute(() -> {
-            if (state.not(State.CLOSED)) {
-                if (state.is(State.OPEN)) {
-                    freeze();
-                }
+        reactor.getSelector().execute(() -> closeOnSelector().join());
+    }
 
-                this.inner.close();
-                this.inner = null;
+    @Override
+    public CompletableFuture<Void> closeAsync() {
+        return reactor.getSelector().submit(this::closeOnSelector).thenCompose(Function.identity());
+    }
 
-                state.set(State.CLOSED);
+    private CompletableFuture<Void> closeOnSelector() {
+        if (state.not(State.CLOSED)) {
+            CompletableFuture<Void> future = CompletableFuture.allOf(inners.stream()
+                .map(DatagramInner::closeAsync)
+                .toArray(CompletableFuture[]::new));
+            this.inners = null;
 
-                LOGGER.info("DatagramCrusher <{}>-<{}> is closed", bindAddress, connectAddress);
+            state.set(State.CLOSED);
 
-                return true;
-            } else {
-                return false;
-            }
-        });
+            LOGGER.info("DatagramCrusher <{}>-<{}> is closed", bindAddress, connectAddress);
+
+            return future;
+        } else {
+            return CompletableFuture.completedFuture(null);
+        }
     }
 
     @Override
@@ -174,36 +224,48 @@ public class DatagramCrusher implements NetCrusher {
 
     @Override
     public void freeze() {
-        reactor.getSelector().execute(() -> {
-            if (state.is(State.OPEN)) {
-                if (!inner.isFrozen()) {
-                    inner.freeze();
-                }
+        reactor.getSelector().execute(() -> freezeOnSelector().join());
+    }
 
-                state.set(State.FROZEN);
+    @Override
+    public CompletableFuture<Void> freezeAsync() {
+        return reactor.getSelector().submit(this::freezeOnSelector).thenCompose(Function.identity());
+    }
 
-                return true;
-            } else {
-                throw new IllegalStateException("DatagramСrusher is not open on freeze");
-            }
-        });
+    private CompletableFuture<Void> freezeOnSelector() {
+        if (state.is(State.OPEN)) {
+            state.set(State.FROZEN);
+
+            return CompletableFuture.allOf(inners.stream()
+                .filter(inner -> !inner.isFrozen())
+                .map(DatagramInner::freezeAsync)
+                .toArray(CompletableFuture[]::new));
+        } else {
+            throw new IllegalStateException("DatagramСrusher is not open on freeze");
+        }
     }
 
     @Override
     public void unfreeze() {
-        reactor.getSelector().execute(() -> {
-            if (state.is(State.FROZEN)) {
-                if (inner.isFrozen()) {
-                    inner.unfreeze();
-                }
+        reactor.getSelector().execute(() -> unfreezeOnSelector().join());
+    }
 
-                state.set(State.OPEN);
+    @Override
+    public CompletableFuture<Void> unfreezeAsync() {
+        return reactor.getSelector().submit(this::unfreezeOnSelector).thenCompose(Function.identity());
+    }
 
-                return true;
-            } else {
-                throw new IllegalStateException("DatagramCrusher is not frozen on unfreeze");
-            }
-        });
+    private CompletableFuture<Void> unfreezeOnSelector() {
+        if (state.is(State.FROZEN)) {
+            state.set(State.OPEN);
+
+            return CompletableFuture.allOf(inners.stream()
+                .filter(DatagramInner::isFrozen)
+                .map(DatagramInner::unfreezeAsync)
+                .toArray(CompletableFuture[]::new));
+        } else {
+            throw new IllegalStateException("DatagramCrusher is not frozen on unfreeze");
+        }
     }
 
     @Override
@@ -221,11 +283,21 @@ public class DatagramCrusher implements NetCrusher {
         return connectAddress;
     }
 
+    /**
+     * Get all upstreams the clients are distributed among. The first one is the connect address if it is set
+     * @return Unmodifiable list of upstreams with their meters
+     * @see DatagramCrusherBuilder#withUpstreamAddress(InetSocketAddress, int)
+     */
+    public List<Upstream> getUpstreams() {
+        return upstreams;
+    }
+
     @Override
     public Collection<InetSocketAddress> getClientAddresses() {
         return reactor.getSelector().execute(() -> {
             if (state.not(State.CLOSED)) {
-                return inner.getOuters().stream()
+                return inners.stream()
+                    .flatMap(inner -> inner.getOuters().stream())
                     .map(DatagramOuter::getClientAddress)
                     .collect(Collectors.toList());
             } else {
@@ -238,7 +310,7 @@ public class DatagramCrusher implements NetCrusher {
     public RateMeters getClientByteMeters(InetSocketAddress clientAddress) {
         return reactor.getSelector().execute(() -> {
             if (state.not(State.CLOSED)) {
-                DatagramOuter outer = inner.getOuter(clientAddress);
+                DatagramOuter outer = findOuter(clientAddress);
                 if (outer != null) {
                     return outer.getByteMeters();
                 }
@@ -256,7 +328,7 @@ public class DatagramCrusher implements NetCrusher {
     public RateMeters getClientPacketMeters(InetSocketAddress clientAddress) {
         return reactor.getSelector().execute(() -> {
             if (state.not(State.CLOSED)) {
-                DatagramOuter outer = inner.getOuter(clientAddress);
+                DatagramOuter outer = findOuter(clientAddress);
                 if (outer != null) {
                     return outer.getPacketMeters();
                 }
@@ -266,14 +338,25 @@ public class DatagramCrusher implements NetCrusher {
         });
     }
 
+    private DatagramOuter findOuter(InetSocketAddress clientAddress) {
+        for (DatagramInner inner : inners) {
+            DatagramOuter outer = inner.getOuter(clientAddress);
+            if (outer != null) {
+                return outer;
+            }
+        }
+
+        return null;
+    }
+
     /**
-     * Get inner socket byte meters
+     * Get inner socket byte meters (summed over all shards if any)
      * @return Rate meters or null
      */
     public RateMeters getInnerByteMeters() {
         return reactor.getSelector().execute(() -> {
             if (state.not(State.CLOSED)) {
-                return inner.getByteMeters();
+                return collectInnerMeters(DatagramInner::getByteMeters);
             } else {
                 return null;
             }
@@ -281,30 +364,75 @@ public class DatagramCrusher implements NetCrusher {
     }
 
     /**
-     * Get inner socket packet meters
+     * Get inner socket packet meters (summed over all shards if any)
      * @return Rate meters or null
      */
     public RateMeters getInnerPacketMeters() {
         return reactor.getSelector().execute(() -> {
             if (state.not(State.CLOSED)) {
-                return inner.getPacketMeters();
+                return collectInnerMeters(DatagramInner::getPacketMeters);
             } else {
                 return null;
             }
         });
     }
 
+    private RateMeters collectInnerMeters(Function<DatagramInner, RateMeters> getter) {
+        if (inners.size() == 1) {
+            return getter.apply(inners.get(0));
+        }
+
+        final List<RateMeter> readMeters = new ArrayList<>(inners.size());
+        final List<RateMeter> sentMeters = new ArrayList<>(inners.size());
+        for (DatagramInner inner : inners) {
+            RateMeters meters = getter.apply(inner);
+            readMeters.add(meters.getReadMeter());
+            sentMeters.add(meters.getSentMeter());
+        }
+
+        return new RateMeters(new RateMeterGroup(readMeters), new RateMeterGroup(sentMeters));
+    }
+
+    /**
+     * Get the quota of transfer buffer memory shared by all clients of the crusher
+     * @return Buffer quota
+     */
+    public BufferQuota getBufferQuota() {
+        return bufferQuota;
+    }
+
     @Override
     public boolean closeClient(InetSocketAddress clientAddress) {
         return reactor.getSelector().execute(() -> {
             if (state.not(State.CLOSED)) {
-                return inner.closeOuter(clientAddress);
+                for (DatagramInner inner : inners) {
+                    if (inner.closeOuter(clientAddress)) {
+                        return true;
+                    }
+                }
+                return false;
             } else {
                 return false;
             }
         });
     }
 
+    @Override
+    public CompletableFuture<Boolean> closeClientAsync(InetSocketAddress clientAddress) {
+        return reactor.getSelector().submit(() -> {
+            if (state.not(State.CLOSED)) {
+                for (DatagramInner inner : inners) {
+                    if (inner.getOuter(clientAddress) != null) {
+                        return inner.closeOuterAsync(clientAddress);
+                    }
+                }
+                return CompletableFuture.completedFuture(false);
+            } else {
+                return CompletableFuture.completedFuture(false);
+            }
+        }).thenCompose(Function.identity());
+    }
+
     /**
      * Close idle clients
      * @param maxIdleDuration Maximum allowed idle time
@@ -312,20 +440,29 @@ public class DatagramCrusher implements NetCrusher {
      * @return Number of closed clients
      */
     public int closeIdleClients(long maxIdleDuration, TimeUnit timeUnit) {
-        return reactor.getSelector().execute(() -> {
-            if (state.not(State.CLOSED)) {
-                return inner.closeIdleOuters(timeUnit.toMillis(maxIdleDuration));
-            } else {
-                return 0;
-            }
-        });
+        final long maxIdleDurationMs = timeUnit.toMillis(maxIdleDuration);
+        return reactor.getSelector().execute(() -> closeIdleClientsOnSelector(maxIdleDurationMs).join());
+    }
+
+    private CompletableFuture<Integer> closeIdleClientsOnSelector(long maxIdleDurationMs) {
+        if (state.not(State.CLOSED)) {
+            // outers of a shard are closed on the shard's own loop as they use its buffer pool
+            final List<CompletableFuture<Integer>> futures = inners.stream()
+                .map(inner -> inner.closeIdleOutersAsync(maxIdleDurationMs))
+                .collect(Collectors.toList());
+
+            return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .thenApply((r) -> futures.stream().mapToInt(CompletableFuture::join).sum());
+        } else {
+            return CompletableFuture.completedFuture(0);
+        }
     }
 
     @Override
     public int getClientTotalCount() {
         return reactor.getSelector().execute(() -> {
             if (state.not(State.CLOSED)) {
-                return inner.getClientTotalCount();
+                return inners.stream().mapToInt(DatagramInner::getClientTotalCount).sum();
             } else {
                 return 0;
             }
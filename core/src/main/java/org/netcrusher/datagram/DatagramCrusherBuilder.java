@@ -7,6 +7,7 @@ import org.netcrusher.core.filter.TransformFilterFactory;
 import org.netcrusher.core.reactor.NioReactor;
 import org.netcrusher.core.throttle.Throttler;
 import org.netcrusher.core.throttle.ThrottlerFactory;
+import org.netcrusher.core.upstream.UpstreamBalancerFactory;
 import org.netcrusher.datagram.callback.DatagramClientCreation;
 import org.netcrusher.datagram.callback.DatagramClientDeletion;
 
@@ -74,6 +75,49 @@ public final class DatagramCrusherBuilder {
         return withConnectAddress(new InetSocketAddress(hostname, port));
     }
 
+    /**
+     * Add one more remote address for proxy. Clients are distributed among the connect address (if set)
+     * and all upstream addresses by the upstream balancer
+     * @param address Inet address
+     * @param weight Relative weight of the address for weighted balancers
+     * @return This builder instance to chain with other methods
+     * @see org.netcrusher.core.upstream.UpstreamBalancers
+     */
+    public DatagramCrusherBuilder withUpstreamAddress(InetSocketAddress address, int weight) {
+        this.options.getUpstreamWeights().put(address, weight);
+        return this;
+    }
+
+    /**
+     * Add one more remote address for proxy with the default weight of 1
+     * @param address Inet address
+     * @return This builder instance to chain with other methods
+     */
+    public DatagramCrusherBuilder withUpstreamAddress(InetSocketAddress address) {
+        return withUpstreamAddress(address, 1);
+    }
+
+    /**
+     * Add one more remote address for proxy with the default weight of 1
+     * @param hostname Remote host name or IP address of remote host
+     * @param port Port number
+     * @return This builder instance to chain with other methods
+     */
+    public DatagramCrusherBuilder withUpstreamAddress(String hostname, int port) {
+        return withUpstreamAddress(new InetSocketAddress(hostname, port));
+    }
+
+    /**
+     * Set the strategy to choose an upstream address for a new client. Round robin is used by default
+     * @param upstreamBalancerFactory Balancer factory
+     * @return This builder instance to chain with other methods
+     * @see org.netcrusher.core.upstream.UpstreamBalancers
+     */
+    public DatagramCrusherBuilder withUpstreamBalancer(UpstreamBalancerFactory upstreamBalancerFactory) {
+        this.options.setUpstreamBalancerFactory(upstreamBalancerFactory);
+        return this;
+    }
+
     /**
      * Set bind-before-connect address
      * @param address Inet address
@@ -104,6 +148,32 @@ public final class DatagramCrusherBuilder {
         return this;
     }
 
+    /**
+     * Set how many datagrams a socket may receive (or send) on a single selector event. When the budget is
+     * exhausted the socket yields and resumes on the next selector loop iteration, so a datagram flood can't
+     * delay other sockets sharing the same selector for too long. If set to 0 the socket transfers until
+     * it is drained
+     * @param budgetDatagrams Budget in datagrams
+     * @return This builder instance to chain with other methods
+     */
+    public DatagramCrusherBuilder withEventBudgetDatagrams(int budgetDatagrams) {
+        this.options.getSocketOptions().setEventBudgetDatagrams(budgetDatagrams);
+        return this;
+    }
+
+    /**
+     * Set how many inner sockets share the bind address with SO_REUSEPORT. Each shard is served by its own
+     * selector loop together with outer sockets of its clients, so the kernel spreads clients across the loops.
+     * If set to 0 the only inner socket is used
+     * @param shards Number of inner sockets
+     * @see org.netcrusher.core.reactor.NioReactorBuilder#withSelectorCount(int)
+     * @return This builder instance to chain with other methods
+     */
+    public DatagramCrusherBuilder withReusePortShards(int shards) {
+        this.options.getSocketOptions().setReusePortShards(shards);
+        return this;
+    }
+
     /**
      * Set broadcast flag for both sockets
      * @param broadcast Broadcast flag
@@ -180,6 +250,18 @@ public final class DatagramCrusherBuilder {
         return this;
     }
 
+    /**
+     * Set a soft limit on buffer memory all clients of the crusher may hold. Buffers are borrowed from
+     * the reactor's pool on demand and returned when drained. Over the limit a queue may only hold a single buffer.
+     * If set to 0 the memory is not limited
+     * @param limitBytes Limit in bytes
+     * @return This builder instance to chain with other methods
+     */
+    public DatagramCrusherBuilder withBufferLimitBytes(long limitBytes) {
+        this.options.getBufferOptions().setLimitBytes(limitBytes);
+        return this;
+    }
+
     /**
      * Set outgoing (from the inner to the outer) transform filter factory
      * @param filterFactory Filter factory
@@ -6,10 +6,14 @@ import org.netcrusher.core.filter.TransformFilterFactory;
 import org.netcrusher.core.reactor.NioReactor;
 import org.netcrusher.core.throttle.Throttler;
 import org.netcrusher.core.throttle.ThrottlerFactory;
+import org.netcrusher.core.upstream.UpstreamBalancerFactory;
+import org.netcrusher.core.upstream.UpstreamBalancers;
 import org.netcrusher.datagram.callback.DatagramClientCreation;
 import org.netcrusher.datagram.callback.DatagramClientDeletion;
 
 import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class DatagramCrusherOptions {
 
@@ -23,6 +27,10 @@ public class DatagramCrusherOptions {
 
     private InetSocketAddress bindBeforeConnectAddress;
 
+    private Map<InetSocketAddress, Integer> upstreamWeights;
+
+    private UpstreamBalancerFactory upstreamBalancerFactory;
+
     private NioReactor reactor;
 
     private DatagramCrusherSocketOptions socketOptions;
@@ -56,6 +64,9 @@ public class DatagramCrusherOptions {
         this.bufferOptions.setDirect(true);
 
         this.deferredListeners = true;
+
+        this.upstreamWeights = new LinkedHashMap<>();
+        this.upstreamBalancerFactory = UpstreamBalancers.roundRobin();
     }
 
     public void validate() {
@@ -63,10 +74,14 @@ public class DatagramCrusherOptions {
             throw new IllegalArgumentException("Bind address is not set");
         }
 
-        if (connectAddress == null) {
+        if (connectAddress == null && (upstreamWeights == null || upstreamWeights.isEmpty())) {
             throw new IllegalArgumentException("Connect address is not set");
         }
 
+        if (upstreamBalancerFactory == null) {
+            throw new IllegalArgumentException("Upstream balancer is not set");
+        }
+
         if (reactor == null) {
             throw new IllegalArgumentException("Reactor is not set");
         }
@@ -75,9 +90,15 @@ public class DatagramCrusherOptions {
             throw new IllegalArgumentException("Socket options are not set");
         }
 
+        socketOptions.validate();
+
         if (bufferOptions == null) {
             throw new IllegalArgumentException("Buffer options are not set");
         }
+
+        if (bufferOptions.getLimitBytes() < 0) {
+            throw new IllegalArgumentException("Buffer limit must not be negative");
+        }
     }
 
     public InetSocketAddress getBindAddress() {
@@ -96,6 +117,22 @@ public class DatagramCrusherOptions {
         this.connectAddress = connectAddress;
     }
 
+    public Map<InetSocketAddress, Integer> getUpstreamWeights() {
+        return upstreamWeights;
+    }
+
+    public void setUpstreamWeights(Map<InetSocketAddress, Integer> upstreamWeights) {
+        this.upstreamWeights = upstreamWeights;
+    }
+
+    public UpstreamBalancerFactory getUpstreamBalancerFactory() {
+        return upstreamBalancerFactory;
+    }
+
+    public void setUpstreamBalancerFactory(UpstreamBalancerFactory upstreamBalancerFactory) {
+        this.upstreamBalancerFactory = upstreamBalancerFactory;
+    }
+
     public InetSocketAddress getBindBeforeConnectAddress() {
         return bindBeforeConnectAddress;
     }
@@ -17,11 +17,17 @@ public class DatagramCrusherSocketOptions implements Serializable {
 
     private ProtocolFamily protocolFamily;
 
+    private int eventBudgetDatagrams;
+
+    private int reusePortShards;
+
     public DatagramCrusherSocketOptions() {
         this.rcvBufferSize = 0;
         this.sndBufferSize = 0;
         this.broadcast = false;
         this.protocolFamily = StandardProtocolFamily.INET;
+        this.eventBudgetDatagrams = 0;
+        this.reusePortShards = 0;
     }
 
     public DatagramCrusherSocketOptions copy() {
@@ -31,6 +37,8 @@ public class DatagramCrusherSocketOptions implements Serializable {
         copy.sndBufferSize = this.sndBufferSize;
         copy.broadcast = this.broadcast;
         copy.protocolFamily = this.protocolFamily;
+        copy.eventBudgetDatagrams = this.eventBudgetDatagrams;
+        copy.reusePortShards = this.reusePortShards;
 
         return copy;
     }
@@ -67,6 +75,32 @@ public class DatagramCrusherSocketOptions implements Serializable {
         this.protocolFamily = protocolFamily;
     }
 
+    public int getEventBudgetDatagrams() {
+        return eventBudgetDatagrams;
+    }
+
+    public void setEventBudgetDatagrams(int eventBudgetDatagrams) {
+        this.eventBudgetDatagrams = eventBudgetDatagrams;
+    }
+
+    public int getReusePortShards() {
+        return reusePortShards;
+    }
+
+    public void setReusePortShards(int reusePortShards) {
+        this.reusePortShards = reusePortShards;
+    }
+
+    public void validate() {
+        if (eventBudgetDatagrams < 0) {
+            throw new IllegalArgumentException("Event budget must not be negative");
+        }
+
+        if (reusePortShards < 0) {
+            throw new IllegalArgumentException("Shard count must not be negative");
+        }
+    }
+
     void setupSocketChannel(DatagramChannel datagramChannel) throws IOException {
         datagramChannel.setOption(StandardSocketOptions.SO_BROADCAST, broadcast);
 
@@ -1,13 +1,17 @@
 package org.netcrusher.datagram;
 
+import org.netcrusher.core.buffer.BufferAllocator;
 import org.netcrusher.core.buffer.BufferOptions;
 import org.netcrusher.core.meter.RateMeterImpl;
 import org.netcrusher.core.meter.RateMeters;
 import org.netcrusher.core.nio.NioUtils;
 import org.netcrusher.core.nio.SelectionKeyControl;
-import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.reactor.NioSelector;
+import org.netcrusher.core.reactor.NioSelectorTimer;
 import org.netcrusher.core.state.BitState;
 import org.netcrusher.core.throttle.Throttler;
+import org.netcrusher.core.upstream.Upstream;
+import org.netcrusher.core.upstream.UpstreamBalancer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -21,6 +25,7 @@ import java.nio.channels.SelectionKey;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -32,7 +37,9 @@ class DatagramInner {
 
     private final DatagramCrusher crusher;
 
-    private final NioReactor reactor;
+    private final NioSelector selector;
+
+    private final NioSelectorTimer unthrottleTimer;
 
     private final DatagramCrusherSocketOptions socketOptions;
 
@@ -42,7 +49,7 @@ class DatagramInner {
 
     private final InetSocketAddress bindAddress;
 
-    private final InetSocketAddress connectAddress;
+    private final UpstreamBalancer upstreamBalancer;
 
     private final InetSocketAddress bindBeforeConnectAddress;
 
@@ -58,40 +65,51 @@ class DatagramInner {
 
     private final BufferOptions bufferOptions;
 
+    private final BufferAllocator bufferAllocator;
+
     private final State state;
 
+    private final int eventBudgetDatagrams;
+
     DatagramInner(
             DatagramCrusher crusher,
-            NioReactor reactor,
+            NioSelector selector,
             DatagramCrusherSocketOptions socketOptions,
             BufferOptions bufferOptions,
             DatagramFilters filters,
             InetSocketAddress bindAddress,
-            InetSocketAddress connectAddress,
+            UpstreamBalancer upstreamBalancer,
             InetSocketAddress bindBeforeConnectAddress) throws IOException
     {
         this.crusher = crusher;
-        this.reactor = reactor;
+        this.selector = selector;
+        this.unthrottleTimer = selector.createTimer(this::unthrottleSend);
+        this.eventBudgetDatagrams = socketOptions.getEventBudgetDatagrams() > 0
+            ? socketOptions.getEventBudgetDatagrams() : Integer.MAX_VALUE;
         this.filters = filters;
         this.socketOptions = socketOptions;
         this.bindAddress = bindAddress;
-        this.connectAddress = connectAddress;
+        this.upstreamBalancer = upstreamBalancer;
         this.bindBeforeConnectAddress = bindBeforeConnectAddress;
         this.outers = new ConcurrentHashMap<>(DEFAULT_OUTER_CAPACITY);
-        this.incoming = new DatagramQueue(bufferOptions);
+        this.bufferAllocator = new BufferAllocator(selector.getBufferPool(), crusher.getBufferQuota(), bufferOptions);
+        this.incoming = new DatagramQueue(bufferOptions, bufferAllocator);
         this.bufferOptions = bufferOptions;
         this.meters = new Meters();
 
-        this.channel = DatagramChannel.open(socketOptions.getProtocolFamily());
+        this.channel = selector.getProvider().openDatagramChannel(socketOptions.getProtocolFamily());
         socketOptions.setupSocketChannel(this.channel);
+        if (socketOptions.getReusePortShards() > 0) {
+            NioUtils.setupReusePort(this.channel);
+        }
         this.channel.bind(bindAddress);
         this.channel.configureBlocking(false);
         bufferOptions.checkDatagramSocket(channel.socket());
 
         this.bb = NioUtils.allocaleByteBuffer(channel.socket().getReceiveBufferSize(), bufferOptions.isDirect());
 
-        SelectionKey selectionKey = reactor.getSelector().register(channel, 0, this::callback);
-        this.selectionKeyControl = new SelectionKeyControl(selectionKey);
+        SelectionKey selectionKey = selector.register(channel, 0, this::callback);
+        this.selectionKeyControl = new SelectionKeyControl(selectionKey, selector.getStats());
 
         this.state = new State(State.FROZEN);
 
@@ -99,85 +117,111 @@ class DatagramInner {
     }
 
     void close() {
-        reactor.getSelector().execute(() -> {
-            if (state.not(State.CLOSED)) {
-                if (state.is(State.OPEN)) {
-                    freeze();
-                }
+        selector.execute(this::closeOnSelector);
+    }
 
-                if (!incoming.isEmpty()) {
-                    LOGGER.warn("On closing inner has {} incoming datagrams", incoming.size());
-                }
+    CompletableFuture<Void> closeAsync() {
+        return selector.submit(this::closeOnSelector).thenApply((r) -> null);
+    }
 
-                NioUtils.close(channel);
+    private boolean closeOnSelector() {
+        if (state.not(State.CLOSED)) {
+            if (state.is(State.OPEN)) {
+                freezeOnSelector();
+            }
 
-                Iterator<DatagramOuter> outerIterator = outers.values().iterator();
-                while (outerIterator.hasNext()) {
-                    DatagramOuter outer = outerIterator.next();
-                    outerIterator.remove();
+            if (!incoming.isEmpty()) {
+                LOGGER.warn("On closing inner has {} incoming datagrams", incoming.size());
+            }
 
-                    outer.close();
-                    crusher.notifyOuterDeleted(outer);
-                }
+            incoming.releaseBuffers();
 
-                reactor.getSelector().wakeup();
+            unthrottleTimer.cancel();
 
-                state.set(State.CLOSED);
+            NioUtils.close(channel);
 
-                LOGGER.debug("Inner on <{}> is closed", bindAddress);
+            Iterator<DatagramOuter> outerIterator = outers.values().iterator();
+            while (outerIterator.hasNext()) {
+                DatagramOuter outer = outerIterator.next();
+                outerIterator.remove();
 
-                return true;
-            } else {
-                return false;
+                outer.close();
+                crusher.notifyOuterDeleted(outer);
             }
-        });
+
+            selector.wakeup();
+
+            state.set(State.CLOSED);
+
+            LOGGER.debug("Inner on <{}> is closed", bindAddress);
+
+            return true;
+        } else {
+            return false;
+        }
     }
 
     private void closeAll() {
         this.close();
-        crusher.close();
+        crusher.closeDeferred();
     }
 
     void unfreeze() {
-        reactor.getSelector().execute(() -> {
-            if (state.is(State.FROZEN)) {
-                if (incoming.isEmpty()) {
-                    selectionKeyControl.setReadsOnly();
-                } else {
-                    selectionKeyControl.setAll();
-                }
-
-                for (DatagramOuter outer : outers.values()) {
-                    outer.unfreeze();
-                }
+        selector.execute(this::unfreezeOnSelector);
+    }
 
-                state.set(State.OPEN);
+    CompletableFuture<Void> unfreezeAsync() {
+        return selector.submit(this::unfreezeOnSelector).thenApply((r) -> null);
+    }
 
-                return true;
+    private boolean unfreezeOnSelector() {
+        if (state.is(State.FROZEN)) {
+            if (incoming.isEmpty()) {
+                selectionKeyControl.setReadsOnly();
             } else {
-                throw new IllegalStateException("Inner is not frozen on unfreeze");
+                selectionKeyControl.setAll();
             }
-        });
+
+            for (DatagramOuter outer : outers.values()) {
+                outer.unfreeze();
+            }
+
+            state.set(State.OPEN);
+
+            return true;
+        } else {
+            throw new IllegalStateException("Inner is not frozen on unfreeze");
+        }
     }
 
     void freeze() {
-        reactor.getSelector().execute(() -> {
-            if (state.is(State.OPEN)) {
-                if (selectionKeyControl.isValid()) {
-                    selectionKeyControl.setNone();
-                }
+        selector.execute(this::freezeOnSelector);
+    }
 
-                for (DatagramOuter outer : outers.values()) {
-                    outer.freeze();
-                }
+    CompletableFuture<Void> freezeAsync() {
+        return selector.submit(this::freezeOnSelector).thenApply((r) -> null);
+    }
 
-                state.set(State.FROZEN);
+    private boolean freezeOnSelector() {
+        if (state.is(State.OPEN)) {
+            if (selectionKeyControl.isValid()) {
+                selectionKeyControl.setNone();
+            }
 
-                return true;
-            } else {
-                throw new IllegalStateException("Inner is not open on freeze");
+            for (DatagramOuter outer : outers.values()) {
+                outer.freeze();
             }
-        });
+
+            state.set(State.FROZEN);
+
+            return true;
+        } else {
+            throw new IllegalStateException("Inner is not open on freeze");
+        }
+    }
+
+    BufferAllocator getBufferAllocator() {
+        return bufferAllocator;
     }
 
     boolean isFrozen() {
@@ -212,7 +256,7 @@ class DatagramInner {
 
     private void handleWritableEvent(boolean forced) throws IOException {
         int count = 0;
-        while (state.isWritable()) {
+        while (count < eventBudgetDatagrams && state.isWritable()) {
             final DatagramQueue.BufferEntry entry = incoming.request();
             if (entry == null) {
                 break;
@@ -265,13 +309,28 @@ class DatagramInner {
             }
         }
 
+        completeWritableEvent(count);
+    }
+
+    private void completeWritableEvent(int count) {
         if (incoming.isEmpty()) {
             selectionKeyControl.disableWrites();
+        } else if (count >= eventBudgetDatagrams) {
+            // the rest will be sent on the next loop iteration
+            yieldEvent();
+            selectionKeyControl.enableWrites();
         }
     }
 
     private void handleReadableEvent() throws IOException {
+        int count = 0;
         while (state.isReadable()) {
+            if (count >= eventBudgetDatagrams) {
+                // the key is still ready for reading so the rest will be received on the next loop iteration
+                yieldEvent();
+                break;
+            }
+
             bb.clear();
 
             final InetSocketAddress address = (InetSocketAddress) channel.receive(bb);
@@ -279,6 +338,8 @@ class DatagramInner {
                 break;
             }
 
+            count++;
+
             bb.flip();
             final int read = bb.remaining();
 
@@ -294,6 +355,12 @@ class DatagramInner {
         }
     }
 
+    private void yieldEvent() {
+        LOGGER.trace("Event budget is exhausted in inner");
+
+        selector.getStats().yielded();
+    }
+
     private void suggestDeferredSent() {
         if (!incoming.isEmpty() && state.isWritable()) {
             selectionKeyControl.enableWrites();
@@ -333,7 +400,7 @@ class DatagramInner {
                 this.selectionKeyControl.disableWrites();
             }
 
-            reactor.getSelector().schedule(this::unthrottleSend, delayNs);
+            unthrottleTimer.schedule(delayNs);
         }
     }
 
@@ -355,8 +422,16 @@ class DatagramInner {
         DatagramOuter outer = outers.get(address);
 
         if (outer == null) {
-            outer = new DatagramOuter(this, reactor, socketOptions, filters, bufferOptions,
-                address, connectAddress, bindBeforeConnectAddress);
+            final Upstream upstream = upstreamBalancer.select(address);
+            upstream.acquire();
+
+            try {
+                outer = new DatagramOuter(this, selector, socketOptions, filters, bufferOptions,
+                    address, upstream, bindBeforeConnectAddress);
+            } catch (IOException | RuntimeException e) {
+                upstream.release();
+                throw e;
+            }
             outer.unfreeze();
 
             outers.put(address, outer);
@@ -370,6 +445,14 @@ class DatagramInner {
     }
 
     boolean closeOuter(InetSocketAddress clientAddress) {
+        return selector.execute(() -> closeOuterOnSelector(clientAddress));
+    }
+
+    CompletableFuture<Boolean> closeOuterAsync(InetSocketAddress clientAddress) {
+        return selector.submit(() -> closeOuterOnSelector(clientAddress));
+    }
+
+    private boolean closeOuterOnSelector(InetSocketAddress clientAddress) {
         DatagramOuter outer = outers.remove(clientAddress);
         if (outer != null) {
             outer.close();
@@ -382,7 +465,11 @@ class DatagramInner {
         }
     }
 
-    int closeIdleOuters(long maxIdleDurationMs) {
+    CompletableFuture<Integer> closeIdleOutersAsync(long maxIdleDurationMs) {
+        return selector.submit(() -> closeIdleOutersOnSelector(maxIdleDurationMs));
+    }
+
+    private int closeIdleOutersOnSelector(long maxIdleDurationMs) {
         int countBefore = outers.size();
         if (countBefore > 0) {
             Iterator<DatagramOuter> outerIterator = outers.values().iterator();
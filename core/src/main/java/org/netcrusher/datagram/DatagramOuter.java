@@ -7,9 +7,11 @@ import org.netcrusher.core.meter.RateMeterImpl;
 import org.netcrusher.core.meter.RateMeters;
 import org.netcrusher.core.nio.NioUtils;
 import org.netcrusher.core.nio.SelectionKeyControl;
-import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.reactor.NioSelector;
+import org.netcrusher.core.reactor.NioSelectorTimer;
 import org.netcrusher.core.state.BitState;
 import org.netcrusher.core.throttle.Throttler;
+import org.netcrusher.core.upstream.Upstream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,10 +34,14 @@ class DatagramOuter {
 
     private final DatagramInner inner;
 
-    private final NioReactor reactor;
+    private final NioSelector selector;
+
+    private final NioSelectorTimer unthrottleTimer;
 
     private final InetSocketAddress clientAddress;
 
+    private final Upstream upstream;
+
     private final InetSocketAddress connectAddress;
 
     private final DatagramQueue incoming;
@@ -52,29 +58,35 @@ class DatagramOuter {
 
     private final State state;
 
+    private final int eventBudgetDatagrams;
+
     private volatile long lastOperationTimestamp;
 
     DatagramOuter(
             DatagramInner inner,
-            NioReactor reactor,
+            NioSelector selector,
             DatagramCrusherSocketOptions socketOptions,
             DatagramFilters filters,
             BufferOptions bufferOptions,
             InetSocketAddress clientAddress,
-            InetSocketAddress connectAddress,
+            Upstream upstream,
             InetSocketAddress bindBeforeConnectAddress) throws IOException
     {
         this.inner = inner;
-        this.reactor = reactor;
+        this.selector = selector;
+        this.unthrottleTimer = selector.createTimer(this::unthrottleSend);
+        this.eventBudgetDatagrams = socketOptions.getEventBudgetDatagrams() > 0
+            ? socketOptions.getEventBudgetDatagrams() : Integer.MAX_VALUE;
         this.clientAddress = clientAddress;
-        this.connectAddress = connectAddress;
-        this.incoming = new DatagramQueue(bufferOptions);
+        this.upstream = upstream;
+        this.connectAddress = upstream.getAddress();
+        this.incoming = new DatagramQueue(bufferOptions, inner.getBufferAllocator());
         this.lastOperationTimestamp = System.currentTimeMillis();
 
         this.meters = new Meters();
         this.filters = new Filters(filters, clientAddress);
 
-        this.channel = DatagramChannel.open(socketOptions.getProtocolFamily());
+        this.channel = selector.getProvider().openDatagramChannel(socketOptions.getProtocolFamily());
         socketOptions.setupSocketChannel(this.channel);
         this.channel.configureBlocking(false);
         bufferOptions.checkDatagramSocket(channel.socket());
@@ -90,8 +102,8 @@ class DatagramOuter {
 
         this.bb = NioUtils.allocaleByteBuffer(channel.socket().getReceiveBufferSize(), bufferOptions.isDirect());
 
-        SelectionKey selectionKey = reactor.getSelector().register(channel, 0, this::callback);
-        this.selectionKeyControl = new SelectionKeyControl(selectionKey);
+        SelectionKey selectionKey = selector.register(channel, 0, this::callback);
+        this.selectionKeyControl = new SelectionKeyControl(selectionKey, selector.getStats());
 
         this.state = new State(State.FROZEN);
 
@@ -101,7 +113,7 @@ class DatagramOuter {
     }
 
     void close() {
-        reactor.getSelector().execute(() -> {
+        selector.execute(() -> {
             if (state.not(State.CLOSED)) {
                 if (state.is(State.OPEN)) {
                     freeze();
@@ -111,10 +123,20 @@ class DatagramOuter {
                     LOGGER.warn("On closing outer has {} incoming datagrams", incoming.size());
                 }
 
+                incoming.releaseBuffers();
+
+                unthrottleTimer.cancel();
+
+                if (filters.outgoingThrottler != null) {
+                    filters.outgoingThrottler.release();
+                }
+
                 NioUtils.close(channel);
 
                 state.set(State.CLOSED);
 
+                upstream.release();
+
                 LOGGER.debug("Outer for <{}> to <{}> is closed", clientAddress, connectAddress);
 
                 return true;
@@ -130,7 +152,7 @@ class DatagramOuter {
     }
 
     void unfreeze() {
-        reactor.getSelector().execute(() -> {
+        selector.execute(() -> {
             if (state.is(State.FROZEN)) {
                 if (incoming.isEmpty()) {
                     selectionKeyControl.setReadsOnly();
@@ -148,7 +170,7 @@ class DatagramOuter {
     }
 
     void freeze() {
-        reactor.getSelector().execute(() -> {
+        selector.execute(() -> {
             if (state.is(State.OPEN)) {
                 if (selectionKeyControl.isValid()) {
                     selectionKeyControl.setNone();
@@ -203,7 +225,7 @@ class DatagramOuter {
 
     private void handleWritableEvent(boolean forced) throws IOException {
         int count = 0;
-        while (state.isWritable()) {
+        while (count < eventBudgetDatagrams && state.isWritable()) {
             final DatagramQueue.BufferEntry entry = incoming.request();
             if (entry == null) {
                 break;
@@ -245,6 +267,7 @@ class DatagramOuter {
 
                 meters.sentBytes.update(sent);
                 meters.sentPackets.increment();
+                upstream.updateSentDatagram(sent);
 
                 if (LOGGER.isTraceEnabled()) {
                     LOGGER.trace("Send {} bytes to client <{}>", sent, entry.getAddress());
@@ -257,13 +280,28 @@ class DatagramOuter {
             }
         }
 
+        completeWritableEvent(count);
+    }
+
+    private void completeWritableEvent(int count) {
         if (incoming.isEmpty()) {
             selectionKeyControl.disableWrites();
+        } else if (count >= eventBudgetDatagrams) {
+            // the rest will be sent on the next loop iteration
+            yieldEvent();
+            selectionKeyControl.enableWrites();
         }
     }
 
     private void handleReadableEvent() throws IOException {
+        int count = 0;
         while (state.isReadable()) {
+            if (count >= eventBudgetDatagrams) {
+                // the key is still ready for reading so the rest will be received on the next loop iteration
+                yieldEvent();
+                break;
+            }
+
             bb.clear();
 
             final SocketAddress address = channel.receive(bb);
@@ -271,6 +309,8 @@ class DatagramOuter {
                 break;
             }
 
+            count++;
+
             if (!connectAddress.equals(address)) {
                 LOGGER.trace("Datagram from non-connect address <{}> will be dropped", address);
                 continue;
@@ -285,6 +325,7 @@ class DatagramOuter {
 
             meters.readBytes.update(read);
             meters.readPackets.increment();
+            upstream.updateReadDatagram(read);
 
             final boolean passed = filter(bb, filters.incomingPassFilter, filters.incomingTransferFilter);
             if (passed) {
@@ -295,6 +336,12 @@ class DatagramOuter {
         }
     }
 
+    private void yieldEvent() {
+        LOGGER.trace("Event budget is exhausted in outer");
+
+        selector.getStats().yielded();
+    }
+
     private void suggestDeferredSent() {
         if (!incoming.isEmpty() && state.isWritable()) {
             selectionKeyControl.enableWrites();
@@ -352,7 +399,7 @@ class DatagramOuter {
                 this.selectionKeyControl.disableWrites();
             }
 
-            reactor.getSelector().schedule(this::unthrottleSend, delayNs);
+            unthrottleTimer.schedule(delayNs);
         }
     }
 
@@ -1,7 +1,7 @@
 package org.netcrusher.datagram;
 
+import org.netcrusher.core.buffer.BufferAllocator;
 import org.netcrusher.core.buffer.BufferOptions;
-import org.netcrusher.core.nio.NioUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,12 +19,16 @@ class DatagramQueue {
 
     private final Queue<BufferEntry> pending;
 
-    DatagramQueue(BufferOptions bufferOptions) {
+    private final BufferAllocator allocator;
+
+    DatagramQueue(BufferOptions bufferOptions, BufferAllocator allocator) {
         this.entries = new ArrayDeque<>(bufferOptions.getCount());
         this.pending = new ArrayDeque<>(bufferOptions.getCount());
+        this.allocator = allocator;
 
+        // buffers are borrowed on demand so an idle queue doesn't hold any memory
         for (int i = 0, limit = bufferOptions.getCount(); i < limit; i++) {
-            this.pending.add(new BufferEntry(bufferOptions.getSize(), bufferOptions.isDirect()));
+            this.pending.add(new BufferEntry());
         }
     }
 
@@ -37,30 +41,39 @@ class DatagramQueue {
     }
 
     public boolean add(InetSocketAddress address, ByteBuffer bbToCopy, long delayNs) {
-        BufferEntry entry = pending.poll();
-
-        if (entry != null) {
-            ByteBuffer entryBuffer = entry.getBuffer();
-
-            if (entryBuffer.remaining() < bbToCopy.remaining()) {
-                throw new IllegalStateException("Buffer capacity " + entry.getBuffer().remaining()
-                    + "  is less than datagram size " + bbToCopy.remaining()
-                    + ". Increase buffer size in builder.");
-            }
+        if (allocator.getSize() < bbToCopy.remaining()) {
+            throw new IllegalStateException("Buffer capacity " + allocator.getSize()
+                + "  is less than datagram size " + bbToCopy.remaining()
+                + ". Increase buffer size in builder.");
+        }
 
-            entryBuffer.put(bbToCopy);
-            entryBuffer.flip();
+        BufferEntry entry = pending.peek();
+        if (entry == null) {
+            LOGGER.warn("Datagram with {} bytes is dropped because buffer queue has no any free buffers.",
+                bbToCopy.remaining());
 
-            entry.schedule(address, delayNs);
-            entries.addLast(entry);
+            return false;
+        }
 
-            return true;
-        } else {
-            LOGGER.warn("Datagram with {} bytes is dropped because buffer queue has no any free buffers.",
+        // an empty queue always gets a buffer so the memory limit can't stall the socket
+        ByteBuffer entryBuffer = allocator.allocate(entries.isEmpty());
+        if (entryBuffer == null) {
+            LOGGER.warn("Datagram with {} bytes is dropped because buffer memory limit is reached.",
                 bbToCopy.remaining());
 
             return false;
         }
+
+        pending.remove();
+
+        entryBuffer.put(bbToCopy);
+        entryBuffer.flip();
+
+        entry.attach(entryBuffer);
+        entry.schedule(address, delayNs);
+        entries.addLast(entry);
+
+        return true;
     }
 
     public void retry(BufferEntry entry) {
@@ -72,20 +85,27 @@ class DatagramQueue {
     }
 
     public void release(BufferEntry entry) {
-        entry.getBuffer().clear();
+        // the sent buffer goes back to the pool
+        allocator.release(entry.detach());
         pending.add(entry);
     }
 
+    public void releaseBuffers() {
+        while (!entries.isEmpty()) {
+            release(entries.pollFirst());
+        }
+    }
+
     public static final class BufferEntry {
 
-        private final ByteBuffer buffer;
+        private ByteBuffer buffer;
 
         private InetSocketAddress address;
 
         private long scheduledNs;
 
-        private BufferEntry(int capacity, boolean direct) {
-            this.buffer = NioUtils.allocaleByteBuffer(capacity, direct);
+        private BufferEntry() {
+            this.buffer = null;
             this.address = null;
             this.scheduledNs = System.nanoTime();
         }
@@ -106,5 +126,16 @@ class DatagramQueue {
         public long getScheduledNs() {
             return scheduledNs;
         }
+
+        private void attach(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private ByteBuffer detach() {
+            ByteBuffer detached = this.buffer;
+            this.buffer = null;
+            this.address = null;
+            return detached;
+        }
     }
 }
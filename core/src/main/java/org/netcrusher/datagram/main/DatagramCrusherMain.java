@@ -43,6 +43,7 @@ public class DatagramCrusherMain extends AbstractCrusherMain<DatagramCrusher> {
 
         withIntProperty("crusher.socket.rcvbuf.size", builder::withRcvBufferSize);
         withIntProperty("crusher.socket.sndbuf.size", builder::withSndBufferSize);
+        withIntProperty("crusher.socket.reuseport.shards", builder::withReusePortShards);
 
         withStrProperty("crusher.logger", (loggerName) -> {
             builder.withOutgoingTransformFilterFactory((addr) ->
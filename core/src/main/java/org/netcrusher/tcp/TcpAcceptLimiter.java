@@ -0,0 +1,115 @@
+package org.netcrusher.tcp;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control of incoming connections shared by all acceptors of a crusher. A token bucket limits the rate
+ * of accepted connections and a counter caps the number of concurrent pairs (including pairs still connecting).
+ */
+class TcpAcceptLimiter {
+
+    private static final long NANOS_PER_TOKEN = TimeUnit.SECONDS.toNanos(1);
+
+    private final int ratePerSec;
+
+    private final long capacity;
+
+    private final int maxPairs;
+
+    private final AtomicInteger pairCount;
+
+    private final AtomicLong throttledCount;
+
+    private final AtomicLong rejectedCount;
+
+    private long tokens;
+
+    private long refilledNs;
+
+    TcpAcceptLimiter(int ratePerSec, int burst, int maxPairs) {
+        this.ratePerSec = ratePerSec;
+        this.maxPairs = maxPairs;
+
+        // tokens are counted in nanoseconds of rate so refilling doesn't lose fractions
+        this.capacity = (burst > 0 ? burst : Math.max(1, ratePerSec)) * NANOS_PER_TOKEN;
+        this.tokens = capacity;
+        this.refilledNs = System.nanoTime();
+
+        this.pairCount = new AtomicInteger(0);
+        this.throttledCount = new AtomicLong(0);
+        this.rejectedCount = new AtomicLong(0);
+    }
+
+    /**
+     * Check the token bucket before accepting the next connection
+     * @return Zero if a connection may be accepted or how long the acceptor should wait for a token
+     */
+    synchronized long calculateDelayNs() {
+        if (ratePerSec == 0) {
+            return 0;
+        }
+
+        final long nowNs = System.nanoTime();
+        final long elapsedNs = Math.min(nowNs - refilledNs, capacity / ratePerSec);
+
+        tokens = Math.min(capacity, tokens + elapsedNs * ratePerSec);
+        refilledNs = nowNs;
+
+        if (tokens >= NANOS_PER_TOKEN) {
+            return 0;
+        } else {
+            throttledCount.incrementAndGet();
+            return (NANOS_PER_TOKEN - tokens + ratePerSec - 1) / ratePerSec;
+        }
+    }
+
+    /**
+     * Take a token for an accepted connection and reserve a pair slot for it
+     * @return False if too many pairs are open so the connection should be rejected
+     */
+    boolean acquire() {
+        if (ratePerSec > 0) {
+            synchronized (this) {
+                tokens -= NANOS_PER_TOKEN;
+            }
+        }
+
+        if (maxPairs > 0) {
+            while (true) {
+                final int count = pairCount.get();
+                if (count >= maxPairs) {
+                    rejectedCount.incrementAndGet();
+                    return false;
+                }
+
+                if (pairCount.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            }
+        } else {
+            pairCount.incrementAndGet();
+            return true;
+        }
+    }
+
+    /**
+     * Return the pair slot when the pair is closed or fails to connect
+     */
+    void release() {
+        pairCount.decrementAndGet();
+    }
+
+    int getPairCount() {
+        return pairCount.get();
+    }
+
+    long getThrottledCount() {
+        return throttledCount.get();
+    }
+
+    long getRejectedCount() {
+        return rejectedCount.get();
+    }
+}
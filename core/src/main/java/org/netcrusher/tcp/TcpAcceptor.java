@@ -2,15 +2,24 @@ package org.netcrusher.tcp;
 
 import org.netcrusher.NetFreezer;
 import org.netcrusher.core.buffer.BufferOptions;
+import org.netcrusher.core.meter.LatencyMeter;
+import org.netcrusher.core.meter.LatencyMeterImpl;
+import org.netcrusher.core.meter.RateMeter;
+import org.netcrusher.core.meter.RateMeterImpl;
 import org.netcrusher.core.nio.NioUtils;
 import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.reactor.NioSelector;
+import org.netcrusher.core.reactor.NioSelectorTimer;
 import org.netcrusher.core.state.BitState;
+import org.netcrusher.core.upstream.Upstream;
+import org.netcrusher.core.upstream.UpstreamBalancer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
 import java.nio.channels.CancelledKeyException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectionKey;
@@ -18,6 +27,7 @@ import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.nio.channels.UnresolvedAddressException;
 import java.nio.channels.UnsupportedAddressTypeException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -35,6 +45,10 @@ class TcpAcceptor implements NetFreezer {
 
     private final NioReactor reactor;
 
+    private final NioSelector selector;
+
+    private final boolean sharded;
+
     private final TcpCrusher crusher;
 
     private final ServerSocketChannel serverSocketChannel;
@@ -45,13 +59,27 @@ class TcpAcceptor implements NetFreezer {
 
     private final TcpFilters filters;
 
+    private final TcpAcceptLimiter acceptLimiter;
+
+    private final int acceptBatch;
+
+    private final NioSelectorTimer unthrottleTimer;
+
+    private final UpstreamBalancer upstreamBalancer;
+
+    private final TcpUpstreamPool upstreamPool;
+
     private final State state;
 
     private final AtomicInteger totalAccepted;
 
+    private final RateMeterImpl acceptMeter;
+
+    private final LatencyMeterImpl acceptLatencyMeter;
+
     TcpAcceptor(
         TcpCrusher crusher,
-        NioReactor reactor,
+        NioSelector selector,
         InetSocketAddress bindAddress,
         InetSocketAddress connectAddress,
         InetSocketAddress bindBeforeConnectAddress,
@@ -64,39 +92,65 @@ class TcpAcceptor implements NetFreezer {
         this.connectAddress = connectAddress;
         this.bindBeforeConnectAddress = bindBeforeConnectAddress;
         this.socketOptions = socketOptions;
-        this.reactor = reactor;
+        this.reactor = crusher.getReactor();
+        this.selector = selector;
+        this.sharded = socketOptions.getReusePortShards() > 0;
         this.bufferOptions = bufferOptions;
         this.filters = filters;
+        this.acceptLimiter = crusher.getAcceptLimiter();
+        this.acceptBatch = socketOptions.getAcceptBatch();
+        this.unthrottleTimer = selector.createTimer(this::unthrottleAccept);
+
+        this.upstreamBalancer = crusher.getUpstreamBalancer();
+
+        if (socketOptions.getUpstreamPoolSize() > 0 && bindBeforeConnectAddress == null
+            && crusher.getUpstreams().size() == 1)
+        {
+            this.upstreamPool = new TcpUpstreamPool(selector, crusher.getUpstreams().get(0), socketOptions);
+        } else {
+            this.upstreamPool = null;
+        }
         this.totalAccepted = new AtomicInteger(0);
+        this.acceptMeter = new RateMeterImpl();
+        this.acceptLatencyMeter = new LatencyMeterImpl();
 
-        this.serverSocketChannel = ServerSocketChannel.open();
+        this.serverSocketChannel = selector.getProvider().openServerSocketChannel();
         this.serverSocketChannel.configureBlocking(false);
         this.serverSocketChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
 
+        if (sharded) {
+            NioUtils.setupReusePort(serverSocketChannel);
+        }
+
         if (socketOptions.getBacklog() > 0) {
             this.serverSocketChannel.bind(bindAddress, socketOptions.getBacklog());
         } else {
             this.serverSocketChannel.bind(bindAddress);
         }
 
-        this.serverSelectionKey = reactor.getSelector()
-            .register(serverSocketChannel, 0, (selectionKey) -> this.accept());
+        this.serverSelectionKey = selector.register(serverSocketChannel, 0, (selectionKey) -> this.accept());
 
         this.state = new State(State.FROZEN);
     }
 
     void close() {
-        reactor.getSelector().execute(() -> {
+        selector.execute(() -> {
             if (state.not(State.CLOSED)) {
                 if (state.is(State.OPEN)) {
                     freeze();
                 }
 
+                unthrottleTimer.cancel();
+
+                if (upstreamPool != null) {
+                    upstreamPool.close();
+                }
+
                 serverSelectionKey.cancel();
 
                 NioUtils.close(serverSocketChannel);
 
-                reactor.getSelector().wakeup();
+                selector.wakeup();
 
                 state.set(State.CLOSED);
 
@@ -108,14 +162,60 @@ class TcpAcceptor implements NetFreezer {
     }
 
     private void accept() throws IOException {
-        final SocketChannel socketChannel1 = serverSocketChannel.accept();
+        // the backlog is drained in batches so a connection storm doesn't cost a selector loop per connection
+        for (int i = 0; i < acceptBatch; i++) {
+            final long delayNs = acceptLimiter.calculateDelayNs();
+            if (delayNs > 0) {
+                throttleAccept(delayNs);
+                return;
+            }
+
+            final SocketChannel socketChannel = serverSocketChannel.accept();
+            if (socketChannel == null) {
+                return;
+            }
+
+            if (!acceptLimiter.acquire()) {
+                LOGGER.debug("Incoming connection on <{}> is rejected as too many pairs are open", bindAddress);
+                NioUtils.closeNoLinger(socketChannel);
+                continue;
+            }
+
+            try {
+                accept(socketChannel);
+            } catch (IOException e) {
+                NioUtils.closeNoLinger(socketChannel);
+                acceptLimiter.release();
+                throw e;
+            }
+        }
+    }
+
+    private void accept(SocketChannel socketChannel1) throws IOException {
+        final long acceptedNs = System.nanoTime();
+        acceptMeter.increment();
+
         socketChannel1.configureBlocking(false);
         socketOptions.setupSocketChannel(socketChannel1);
         bufferOptions.checkTcpSocket(socketChannel1.socket());
 
         LOGGER.debug("Incoming connection is accepted on <{}>", bindAddress);
 
-        final SocketChannel socketChannel2 = SocketChannel.open();
+        if (upstreamPool != null) {
+            final NioSelector pairSelector = nextPairSelector();
+            final TcpUpstreamPool.Connection pooled = upstreamPool.take(pairSelector);
+            if (pooled != null) {
+                final Upstream upstream = upstreamPool.getUpstream();
+                upstream.acquire();
+
+                bufferOptions.checkTcpSocket(pooled.getChannel().socket());
+                appendPair(pairSelector, socketChannel1, pooled.getChannel(), upstream, pooled.getPrefetched(),
+                    acceptedNs);
+                return;
+            }
+        }
+
+        final SocketChannel socketChannel2 = selector.getProvider().openSocketChannel();
         socketChannel2.configureBlocking(false);
         socketOptions.setupSocketChannel(socketChannel2);
         bufferOptions.checkTcpSocket(socketChannel2.socket());
@@ -125,126 +225,235 @@ class TcpAcceptor implements NetFreezer {
             socketChannel2.bind(bindBeforeConnectAddress);
         }
 
+        final Upstream upstream = upstreamBalancer.select((InetSocketAddress) socketChannel1.getRemoteAddress());
+        upstream.acquire();
+
         final boolean connectedImmediately;
         try {
-            connectedImmediately = socketChannel2.connect(connectAddress);
+            connectedImmediately = socketChannel2.connect(upstream.getAddress());
         } catch (UnresolvedAddressException e) {
-            LOGGER.error("Connect address <{}> is unresolved", connectAddress);
-            NioUtils.closeNoLinger(socketChannel1);
-            NioUtils.closeNoLinger(socketChannel2);
+            LOGGER.error("Connect address <{}> is unresolved", upstream.getAddress());
+            abandon(socketChannel1, socketChannel2, upstream);
             return;
         } catch (UnsupportedAddressTypeException e) {
-            LOGGER.error("Connect address <{}> is unsupported", connectAddress);
-            NioUtils.closeNoLinger(socketChannel1);
-            NioUtils.closeNoLinger(socketChannel2);
+            LOGGER.error("Connect address <{}> is unsupported", upstream.getAddress());
+            abandon(socketChannel1, socketChannel2, upstream);
             return;
         } catch (IOException e) {
             LOGGER.error("IOException on connection", e);
-            NioUtils.closeNoLinger(socketChannel1);
-            NioUtils.closeNoLinger(socketChannel2);
+            abandon(socketChannel1, socketChannel2, upstream);
             return;
         }
 
         if (connectedImmediately) {
-            appendPair(socketChannel1, socketChannel2);
+            appendPair(nextPairSelector(), socketChannel1, socketChannel2, upstream, null, acceptedNs);
         } else {
-            connectDeferred(socketChannel1, socketChannel2);
+            connectDeferred(socketChannel1, socketChannel2, upstream, acceptedNs);
         }
     }
 
-    private void connectDeferred(SocketChannel socketChannel1, SocketChannel socketChannel2) throws IOException {
-        if (socketOptions.getConnectionTimeoutMs() > 0) {
-            reactor.getSelector().schedule(() -> {
-                if (socketChannel2.isOpen() && !socketChannel2.isConnected()) {
-                    LOGGER.error("Fail to connect to <{}> in {}ms",
-                        connectAddress, socketOptions.getConnectionTimeoutMs());
+    private void connectDeferred(SocketChannel socketChannel1, SocketChannel socketChannel2,
+                                 Upstream upstream, long acceptedNs) throws IOException
+    {
+        final NioSelectorTimer connectionTimer = selector.createTimer(() -> {
+            if (socketChannel2.isOpen() && !socketChannel2.isConnected()) {
+                LOGGER.error("Fail to connect to <{}> in {}ms",
+                    upstream.getAddress(), socketOptions.getConnectionTimeoutMs());
 
-                    NioUtils.closeNoLinger(socketChannel1);
-                    NioUtils.closeNoLinger(socketChannel2);
-                }
-            }, TimeUnit.MILLISECONDS.toNanos(socketOptions.getConnectionTimeoutMs()));
+                abandon(socketChannel1, socketChannel2, upstream);
+            }
+        });
+
+        if (socketOptions.getConnectionTimeoutMs() > 0) {
+            connectionTimer.schedule(TimeUnit.MILLISECONDS.toNanos(socketOptions.getConnectionTimeoutMs()));
         }
 
-        reactor.getSelector().register(socketChannel2, SelectionKey.OP_CONNECT, (selectionKey) -> {
+        selector.register(socketChannel2, SelectionKey.OP_CONNECT, (selectionKey) -> {
+            connectionTimer.cancel();
+
             boolean connected;
             try {
                 connected = socketChannel2.finishConnect();
             } catch (IOException e) {
-                LOGGER.error("Exception while finishing the connection to <{}>", connectAddress,  e);
+                LOGGER.error("Exception while finishing the connection to <{}>", upstream.getAddress(),  e);
                 connected = false;
             }
 
             if (!connected) {
-                LOGGER.error("Fail to finish outgoing connection to <{}>", connectAddress);
-                NioUtils.closeNoLinger(socketChannel1);
-                NioUtils.closeNoLinger(socketChannel2);
+                LOGGER.error("Fail to finish outgoing connection to <{}>", upstream.getAddress());
+                abandon(socketChannel1, socketChannel2, upstream);
                 return;
             }
 
-            appendPair(socketChannel1, socketChannel2);
+            // the pair could be placed on another selector loop so the channel should leave this one
+            NioSelector pairSelector = nextPairSelector();
+            if (pairSelector == selector) {
+                selectionKey.interestOps(0);
+            } else {
+                selectionKey.cancel();
+            }
+
+            appendPair(pairSelector, socketChannel1, socketChannel2, upstream, null, acceptedNs);
         });
     }
 
-    private void appendPair(SocketChannel socketChannel1, SocketChannel socketChannel2) {
-        try {
-            totalAccepted.incrementAndGet();
+    private NioSelector nextPairSelector() {
+        // a shard keeps its pairs on its own selector loop
+        return sharded ? selector : reactor.nextSelector();
+    }
 
+    private void appendPair(NioSelector pairSelector, SocketChannel socketChannel1, SocketChannel socketChannel2,
+                            Upstream upstream, ByteBuffer prefetched, long acceptedNs)
+    {
+        totalAccepted.incrementAndGet();
+
+        // the pair is built on its own selector loop so a busy worker doesn't stall the acceptor
+        pairSelector.post(() -> createPair(pairSelector, socketChannel1, socketChannel2, upstream, prefetched));
+
+        acceptLatencyMeter.update(System.nanoTime() - acceptedNs);
+    }
+
+    // should be called from the pair's selector thread
+    private void createPair(NioSelector pairSelector, SocketChannel socketChannel1, SocketChannel socketChannel2,
+                            Upstream upstream, ByteBuffer prefetched)
+    {
+        try {
             InetSocketAddress clientAddress = (InetSocketAddress) socketChannel1.getRemoteAddress();
-            Runnable pairShutdown = () -> crusher.closeClient(clientAddress);
 
-            TcpPair pair = new TcpPair(reactor, filters, socketChannel1, socketChannel2, bufferOptions, pairShutdown);
+            // the pair is closed from its own selector loop so the crusher should be notified asynchronously
+            Runnable pairShutdown = () -> reactor.getSelector().post(() -> crusher.closeClient(clientAddress));
+
+            TcpPair pair = new TcpPair(pairSelector, filters, socketChannel1, socketChannel2,
+                bufferOptions, crusher.getBufferQuota(), socketOptions.getEventBudgetBytes(), pairShutdown);
+            pair.setUpstream(upstream);
+            if (prefetched != null && !pair.prefetch(prefetched)) {
+                pair.close();
+                throw new IOException("No free buffer for bytes sent by upstream in advance");
+            }
             pair.unfreeze();
 
-            crusher.notifyPairCreated(pair);
+            // the crusher state belongs to the primary selector loop
+            reactor.getSelector().post(() -> crusher.notifyPairCreated(pair));
         } catch (ClosedChannelException | CancelledKeyException e) {
             LOGGER.debug("One of the channels is already closed", e);
-            NioUtils.closeNoLinger(socketChannel1);
-            NioUtils.closeNoLinger(socketChannel2);
+            abandon(socketChannel1, socketChannel2, upstream);
         } catch (IOException e) {
             LOGGER.error("Fail to create TcpCrusher TCP pair", e);
-            NioUtils.closeNoLinger(socketChannel1);
-            NioUtils.closeNoLinger(socketChannel2);
+            abandon(socketChannel1, socketChannel2, upstream);
+        }
+    }
+
+    private void abandon(SocketChannel socketChannel1, SocketChannel socketChannel2, Upstream upstream) {
+        NioUtils.closeNoLinger(socketChannel1);
+        NioUtils.closeNoLinger(socketChannel2);
+
+        acceptLimiter.release();
+        upstream.release();
+    }
+
+    private void throttleAccept(long delayNs) {
+        if (state.is(State.OPEN) && !state.isAcceptThrottled()) {
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace("Acceptor is throttled on {}ns", delayNs);
+            }
+
+            state.setAcceptThrottled(true);
+
+            if (serverSelectionKey.isValid()) {
+                serverSelectionKey.interestOps(0);
+            }
+
+            unthrottleTimer.schedule(delayNs);
+        }
+    }
+
+    private void unthrottleAccept() {
+        if (state.is(State.OPEN) && state.isAcceptThrottled()) {
+            LOGGER.trace("Acceptor is unthrottled");
+
+            state.setAcceptThrottled(false);
+
+            if (serverSelectionKey.isValid()) {
+                serverSelectionKey.interestOps(SelectionKey.OP_ACCEPT);
+            }
         }
     }
 
+    long getPoolHitCount() {
+        return upstreamPool != null ? upstreamPool.getHitCount() : 0;
+    }
+
+    long getPoolMissCount() {
+        return upstreamPool != null ? upstreamPool.getMissCount() : 0;
+    }
+
     int getTotalAccepted() {
         return totalAccepted.get();
     }
 
+    RateMeter getAcceptMeter() {
+        return acceptMeter;
+    }
+
+    LatencyMeter getAcceptLatencyMeter() {
+        return acceptLatencyMeter;
+    }
+
     @Override
     public void freeze() {
-        reactor.getSelector().execute(() -> {
-            if (state.is(State.OPEN)) {
-                if (serverSelectionKey.isValid()) {
-                    serverSelectionKey.interestOps(0);
-                }
-
-                state.set(State.FROZEN);
+        selector.execute(this::freezeOnSelector);
+    }
 
-                LOGGER.debug("TcpCrusher acceptor <{}>-<{}> is frozen", bindAddress, connectAddress);
+    @Override
+    public CompletableFuture<Void> freezeAsync() {
+        return selector.submit(this::freezeOnSelector).thenApply((r) -> null);
+    }
 
-                return true;
-            } else {
-                throw new IllegalStateException("Acceptor is not open on freeze");
+    private boolean freezeOnSelector() {
+        if (state.is(State.OPEN)) {
+            if (serverSelectionKey.isValid()) {
+                serverSelectionKey.interestOps(0);
             }
-        });
+
+            unthrottleTimer.cancel();
+            state.setAcceptThrottled(false);
+
+            state.set(State.FROZEN);
+
+            LOGGER.debug("TcpCrusher acceptor <{}>-<{}> is frozen", bindAddress, connectAddress);
+
+            return true;
+        } else {
+            throw new IllegalStateException("Acceptor is not open on freeze");
+        }
     }
 
     @Override
     public void unfreeze() {
-        reactor.getSelector().execute(() -> {
-            if (state.is(State.FROZEN)) {
-                serverSelectionKey.interestOps(SelectionKey.OP_ACCEPT);
+        selector.execute(this::unfreezeOnSelector);
+    }
 
-                state.set(State.OPEN);
+    @Override
+    public CompletableFuture<Void> unfreezeAsync() {
+        return selector.submit(this::unfreezeOnSelector).thenApply((r) -> null);
+    }
 
-                LOGGER.debug("TcpCrusher acceptor <{}>-<{}> is unfrozen", bindAddress, connectAddress);
+    private boolean unfreezeOnSelector() {
+        if (state.is(State.FROZEN)) {
+            serverSelectionKey.interestOps(SelectionKey.OP_ACCEPT);
 
-                return true;
-            } else {
-                throw new IllegalStateException("Acceptor is not frozen on unfreeze");
+            if (upstreamPool != null) {
+                upstreamPool.refill();
             }
-        });
+
+            state.set(State.OPEN);
+
+            LOGGER.debug("TcpCrusher acceptor <{}>-<{}> is unfrozen", bindAddress, connectAddress);
+
+            return true;
+        } else {
+            throw new IllegalStateException("Acceptor is not frozen on unfreeze");
+        }
     }
 
     @Override
@@ -260,8 +469,19 @@ class TcpAcceptor implements NetFreezer {
 
         private static final int CLOSED = bit(2);
 
+        private boolean acceptThrottled;
+
         private State(int state) {
             super(state);
+            this.acceptThrottled = false;
+        }
+
+        private boolean isAcceptThrottled() {
+            return acceptThrottled;
+        }
+
+        private void setAcceptThrottled(boolean acceptThrottled) {
+            this.acceptThrottled = acceptThrottled;
         }
     }
 
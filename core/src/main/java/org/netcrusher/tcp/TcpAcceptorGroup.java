@@ -0,0 +1,47 @@
+package org.netcrusher.tcp;
+
+import org.netcrusher.NetFreezer;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Freezer of all listening shards of a crusher
+ */
+class TcpAcceptorGroup implements NetFreezer {
+
+    private final List<TcpAcceptor> acceptors;
+
+    TcpAcceptorGroup(List<TcpAcceptor> acceptors) {
+        this.acceptors = acceptors;
+    }
+
+    @Override
+    public void freeze() {
+        acceptors.forEach(TcpAcceptor::freeze);
+    }
+
+    @Override
+    public void unfreeze() {
+        acceptors.forEach(TcpAcceptor::unfreeze);
+    }
+
+    @Override
+    public CompletableFuture<Void> freezeAsync() {
+        return CompletableFuture.allOf(acceptors.stream()
+            .map(TcpAcceptor::freezeAsync)
+            .toArray(CompletableFuture[]::new));
+    }
+
+    @Override
+    public CompletableFuture<Void> unfreezeAsync() {
+        return CompletableFuture.allOf(acceptors.stream()
+            .map(TcpAcceptor::unfreezeAsync)
+            .toArray(CompletableFuture[]::new));
+    }
+
+    @Override
+    public boolean isFrozen() {
+        return acceptors.stream().allMatch(TcpAcceptor::isFrozen);
+    }
+}
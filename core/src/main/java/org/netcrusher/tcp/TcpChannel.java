@@ -4,13 +4,16 @@ import org.netcrusher.core.meter.RateMeter;
 import org.netcrusher.core.meter.RateMeterImpl;
 import org.netcrusher.core.nio.NioUtils;
 import org.netcrusher.core.nio.SelectionKeyControl;
-import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.reactor.NioSelector;
+import org.netcrusher.core.reactor.NioSelectorTimer;
 import org.netcrusher.core.state.BitState;
+import org.netcrusher.core.upstream.Upstream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
@@ -26,7 +29,9 @@ class TcpChannel {
 
     private final String name;
 
-    private final NioReactor reactor;
+    private final NioSelector selector;
+
+    private final NioSelectorTimer unthrottleTimer;
 
     private final Runnable ownerClose;
 
@@ -44,15 +49,21 @@ class TcpChannel {
 
     private final Queue<Runnable> postOperations;
 
+    private final long eventBudgetBytes;
+
     private TcpChannel other;
 
-    TcpChannel(String name, NioReactor reactor, Runnable ownerClose, SocketChannel channel,
-               TcpQueue incomingQueue, TcpQueue outgoingQueue) throws IOException
+    private Upstream upstream;
+
+    TcpChannel(String name, NioSelector selector, Runnable ownerClose, SocketChannel channel,
+               TcpQueue incomingQueue, TcpQueue outgoingQueue, long eventBudgetBytes) throws IOException
     {
         this.name = name;
-        this.reactor = reactor;
+        this.selector = selector;
+        this.unthrottleTimer = selector.createTimer(this::unthrottleSend);
         this.ownerClose = ownerClose;
         this.channel = channel;
+        this.eventBudgetBytes = eventBudgetBytes > 0 ? eventBudgetBytes : Long.MAX_VALUE;
 
         this.postOperations = new LinkedList<>();
 
@@ -61,19 +72,21 @@ class TcpChannel {
 
         this.meters = new Meters();
 
-        SelectionKey selectionKey = reactor.getSelector().register(channel, 0, this::callback);
-        this.selectionKeyControl = new SelectionKeyControl(selectionKey);
+        SelectionKey selectionKey = selector.register(channel, 0, this::callback);
+        this.selectionKeyControl = new SelectionKeyControl(selectionKey, selector.getStats());
 
         this.state = new State(State.FROZEN);
     }
 
     void close() {
-        reactor.getSelector().execute(() -> {
+        selector.execute(() -> {
             if (state.not(State.CLOSED)) {
                 if (state.is(State.OPEN)) {
                     freeze();
                 }
 
+                unthrottleTimer.cancel();
+
                 if (meters.sentBytes.getTotalCount() > 0) {
                     NioUtils.close(channel);
                 } else {
@@ -102,7 +115,7 @@ class TcpChannel {
     }
 
     private void closeAllDeferred() {
-        reactor.getSelector().schedule(this::closeAll, LINGER_PERIOD_NS);
+        selector.schedule(this::closeAll, LINGER_PERIOD_NS);
     }
 
     private void closeEOF() {
@@ -111,6 +124,9 @@ class TcpChannel {
         other.postOperations.add(() -> other.shutdownWrite());
         other.processPostOperations();
 
+        // the read loop is left by the exception so the data read before EOF should be scheduled here
+        other.suggestDeferredSent();
+
         if (other.state.isReadEof() && !incomingQueue.hasReadable() && !outgoingQueue.hasReadable()) {
             closeAllDeferred();
         }
@@ -155,7 +171,15 @@ class TcpChannel {
     private void handleWritableEvent(boolean forced) throws IOException {
         final TcpQueue queue = incomingQueue;
 
+        long budget = eventBudgetBytes;
         while (state.isWritable()) {
+            if (budget <= 0) {
+                // the rest will be sent on the next loop iteration
+                yieldEvent();
+                selectionKeyControl.enableWrites();
+                break;
+            }
+
             final TcpQueueBuffers queueBuffers = queue.requestReadableBuffers();
             if (queueBuffers.isEmpty()) {
                 if (queueBuffers.getDelayNs() > 0) {
@@ -182,6 +206,11 @@ class TcpChannel {
             }
 
             meters.sentBytes.update(sent);
+            if (upstream != null) {
+                upstream.updateSent(sent);
+            }
+
+            budget -= sent;
         }
 
         other.suggestDeferredRead();
@@ -192,7 +221,14 @@ class TcpChannel {
     private void handleReadableEvent() throws IOException {
         final TcpQueue queue = outgoingQueue;
 
+        long budget = eventBudgetBytes;
         while (state.isReadable()) {
+            if (budget <= 0) {
+                // the key is still ready for reading so the rest will be read on the next loop iteration
+                yieldEvent();
+                break;
+            }
+
             final TcpQueueBuffers queueBuffers = queue.requestWritableBuffers();
             if (queueBuffers.isEmpty()) {
                 selectionKeyControl.disableReads();
@@ -224,6 +260,11 @@ class TcpChannel {
             }
 
             meters.readBytes.update(read);
+            if (upstream != null) {
+                upstream.updateRead(read);
+            }
+
+            budget -= read;
 
             other.suggestImmediateSent();
         }
@@ -231,6 +272,52 @@ class TcpChannel {
         other.suggestDeferredSent();
     }
 
+    /**
+     * Put bytes which have been read before the channel is created into the outgoing queue
+     * @param bb Flipped buffer
+     * @return Returns 'false' if the queue has no room for all the bytes
+     */
+    boolean prefetch(ByteBuffer bb) {
+        final TcpQueue queue = outgoingQueue;
+        final int size = bb.remaining();
+
+        while (bb.hasRemaining()) {
+            final TcpQueueBuffers queueBuffers = queue.requestWritableBuffers();
+            try {
+                if (queueBuffers.isEmpty()) {
+                    return false;
+                }
+
+                for (int i = queueBuffers.getOffset(); i < queueBuffers.getOffset() + queueBuffers.getCount(); i++) {
+                    final ByteBuffer target = queueBuffers.getArray()[i];
+
+                    final ByteBuffer slice = bb.duplicate();
+                    slice.limit(slice.position() + Math.min(target.remaining(), bb.remaining()));
+                    target.put(slice);
+
+                    bb.position(slice.position());
+                }
+            } finally {
+                queue.releaseWritableBuffers();
+            }
+        }
+
+        meters.readBytes.update(size);
+        if (upstream != null) {
+            upstream.updateRead(size);
+        }
+
+        return true;
+    }
+
+    private void yieldEvent() {
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("Channel {} has exhausted its event budget", name);
+        }
+
+        selector.getStats().yielded();
+    }
+
     private void processPostOperations() {
         if (!incomingQueue.hasReadable() && other.state.isReadEof()) {
             while (!postOperations.isEmpty()) {
@@ -310,7 +397,7 @@ class TcpChannel {
                 this.selectionKeyControl.disableWrites();
             }
 
-            reactor.getSelector().schedule(this::unthrottleSend, delayNs);
+            unthrottleTimer.schedule(delayNs);
         }
     }
 
@@ -332,6 +419,10 @@ class TcpChannel {
         this.other = other;
     }
 
+    void setUpstream(Upstream upstream) {
+        this.upstream = upstream;
+    }
+
     RateMeter getReadBytesMeter() {
         return meters.readBytes;
     }
@@ -3,19 +3,34 @@ package org.netcrusher.tcp;
 import org.netcrusher.NetCrusher;
 import org.netcrusher.NetFreezer;
 import org.netcrusher.core.buffer.BufferOptions;
+import org.netcrusher.core.buffer.BufferQuota;
+import org.netcrusher.core.meter.LatencyMeter;
+import org.netcrusher.core.meter.LatencyMeterGroup;
+import org.netcrusher.core.meter.RateMeter;
+import org.netcrusher.core.meter.RateMeterGroup;
 import org.netcrusher.core.meter.RateMeters;
 import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.reactor.NioSelector;
 import org.netcrusher.core.state.BitState;
+import org.netcrusher.core.upstream.Upstream;
+import org.netcrusher.core.upstream.UpstreamBalancer;
 import org.netcrusher.tcp.callback.TcpClientCreation;
 import org.netcrusher.tcp.callback.TcpClientDeletion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -50,6 +65,10 @@ public class TcpCrusher implements NetCrusher {
 
     private final InetSocketAddress bindBeforeConnectAddress;
 
+    private final List<Upstream> upstreams;
+
+    private final UpstreamBalancer upstreamBalancer;
+
     private final TcpCrusherSocketOptions socketOptions;
 
     private final NioReactor reactor;
@@ -64,11 +83,15 @@ public class TcpCrusher implements NetCrusher {
 
     private final BufferOptions bufferOptions;
 
+    private final BufferQuota bufferQuota;
+
     private final TcpFilters filters;
 
+    private final TcpAcceptLimiter acceptLimiter;
+
     private final State state;
 
-    private TcpAcceptor acceptor;
+    private List<TcpAcceptor> acceptors;
 
     public TcpCrusher(TcpCrusherOptions options) {
         if (options == null) {
@@ -86,19 +109,57 @@ public class TcpCrusher implements NetCrusher {
 
         this.reactor = options.getReactor();
         this.bindAddress = options.getBindAddress();
-        this.connectAddress = options.getConnectAddress();
+        this.upstreams = Upstream.createAll(options.getConnectAddress(), options.getUpstreamWeights());
+        this.upstreamBalancer = options.getUpstreamBalancerFactory().allocate(upstreams);
+        this.connectAddress = upstreams.get(0).getAddress();
         this.bindBeforeConnectAddress = options.getBindBeforeConnectAddress();
         this.socketOptions = options.getSocketOptions().copy();
         this.bufferOptions = options.getBufferOptions().copy();
+        if (options.isPassThrough()) {
+            // the data is never seen by a filter so it can stay off-heap in the only contiguous ring
+            this.bufferOptions.setContiguous(true);
+            this.bufferOptions.setDirect(true);
+        }
+        this.bufferQuota = new BufferQuota(bufferOptions.getLimitBytes());
         this.creationListener = options.getCreationListener();
         this.deletionListener = options.getDeletionListener();
         this.deferredListeners = options.isDeferredListeners();
 
+        if (socketOptions.getUpstreamPoolSize() > 0 && bindBeforeConnectAddress != null) {
+            LOGGER.warn("Upstream pool is ignored as the bind-before-connect address is set");
+        }
+
+        if (socketOptions.getUpstreamPoolSize() > 0 && upstreams.size() > 1) {
+            LOGGER.warn("Upstream pool is ignored as several upstream addresses are set");
+        }
+
+        this.acceptLimiter = new TcpAcceptLimiter(socketOptions.getAcceptRatePerSec(),
+            socketOptions.getAcceptBurst(), socketOptions.getMaxPairs());
+
         this.pairs = new ConcurrentHashMap<>(DEFAULT_PAIR_CAPACITY);
         this.state = new State(State.CLOSED);
     }
 
+    NioReactor getReactor() {
+        return reactor;
+    }
+
+    TcpAcceptLimiter getAcceptLimiter() {
+        return acceptLimiter;
+    }
+
+    UpstreamBalancer getUpstreamBalancer() {
+        return upstreamBalancer;
+    }
+
     void notifyPairCreated(TcpPair pair) {
+        if (state.is(State.CLOSED)) {
+            // a shard could accept the connection on its own loop while the crusher was being closed
+            pair.getSelector().post(pair::closeOnSelector);
+            releasePair(pair);
+            return;
+        }
+
         LOGGER.debug("Pair is created for <{}>", pair.getClientAddress());
 
         pairs.put(pair.getClientAddress(), pair);
@@ -110,6 +171,15 @@ public class TcpCrusher implements NetCrusher {
         }
     }
 
+    private void releasePair(TcpPair pair) {
+        acceptLimiter.release();
+
+        final Upstream upstream = pair.getUpstream();
+        if (upstream != null) {
+            upstream.release();
+        }
+    }
+
     private void notifyPairDeleted(TcpPair pair) {
         if (deletionListener != null) {
             Runnable r = () -> deletionListener.deleted(pair.getClientAddress(), pair.getByteMeters());
@@ -122,9 +192,7 @@ public class TcpCrusher implements NetCrusher {
     public void open() {
         reactor.getSelector().execute(() -> {
             if (state.is(State.CLOSED)) {
-                this.acceptor = new TcpAcceptor(this, reactor,
-                    bindAddress, connectAddress, bindBeforeConnectAddress,
-                    socketOptions, filters, bufferOptions);
+                this.acceptors = openAcceptors();
 
                 state.set(State.FROZEN);
 
@@ -139,28 +207,54 @@ public class TcpCrusher implements NetCrusher {
         });
     }
 
+    private List<TcpAcceptor> openAcceptors() throws IOException {
+        final int shards = socketOptions.getReusePortShards();
+        if (shards == 0) {
+            return Collections.singletonList(new TcpAcceptor(this, reactor.getSelector(),
+                bindAddress, connectAddress, bindBeforeConnectAddress,
+                socketOptions, filters, bufferOptions));
+        }
+
+        final List<TcpAcceptor> shardAcceptors = new ArrayList<>(shards);
+        try {
+            for (int i = 0; i < shards; i++) {
+                shardAcceptors.add(new TcpAcceptor(this, reactor.getShardSelector(i),
+                    bindAddress, connectAddress, bindBeforeConnectAddress,
+                    socketOptions, filters, bufferOptions));
+            }
+        } catch (IOException | RuntimeException e) {
+            shardAcceptors.forEach(TcpAcceptor::close);
+            throw e;
+        }
+
+        return shardAcceptors;
+    }
+
     @Override
     public void close() {
-        reactor.getSelector().execute(() -> {
-            if (state.not(State.CLOSED)) {
-                if (state.is(State.OPEN)) {
-                    freeze();
-                }
+        reactor.getSelector().execute(() -> closeOnSelector().join());
+    }
 
-                closeAllPairs();
+    @Override
+    public CompletableFuture<Void> closeAsync() {
+        return reactor.getSelector().submit(this::closeOnSelector).thenCompose(Function.identity());
+    }
 
-                acceptor.close();
-                acceptor = null;
+    private CompletableFuture<Void> closeOnSelector() {
+        if (state.not(State.CLOSED)) {
+            acceptors.forEach(TcpAcceptor::close);
+            acceptors = null;
 
-                state.set(State.CLOSED);
+            CompletableFuture<Void> future = closeAllPairsOnSelector();
 
-                LOGGER.info("TcpCrusher <{}>-<{}> is closed", bindAddress, connectAddress);
+            state.set(State.CLOSED);
 
-                return true;
-            } else {
-                return false;
-            }
-        });
+            LOGGER.info("TcpCrusher <{}>-<{}> is closed", bindAddress, connectAddress);
+
+            return future;
+        } else {
+            return CompletableFuture.completedFuture(null);
+        }
     }
 
     @Override
@@ -174,12 +268,7 @@ public class TcpCrusher implements NetCrusher {
     public void closeAllPairs() {
         reactor.getSelector().execute(() -> {
             if (state.not(State.CLOSED)) {
-                for (TcpPair pair : pairs.values()) {
-                    pair.close();
-                    notifyPairDeleted(pair);
-                }
-
-                pairs.clear();
+                closeAllPairsOnSelector().join();
 
                 return true;
             } else {
@@ -188,6 +277,30 @@ public class TcpCrusher implements NetCrusher {
         });
     }
 
+    /**
+     * Close all pairs but keeps listening socket open. Doesn't wait for selector threads
+     * @return Future which is completed when all pairs are closed
+     */
+    public CompletableFuture<Void> closeAllPairsAsync() {
+        return reactor.getSelector().submit(() -> {
+            if (state.not(State.CLOSED)) {
+                return closeAllPairsOnSelector();
+            } else {
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+        }).thenCompose(Function.identity());
+    }
+
+    private CompletableFuture<Void> closeAllPairsOnSelector() {
+        final Collection<TcpPair> closing = new ArrayList<>(pairs.values());
+
+        pairs.clear();
+        closing.forEach(this::releasePair);
+
+        return submitToPairs(closing, TcpPair::closeOnSelector)
+            .thenRun(() -> closing.forEach(this::notifyPairDeleted));
+    }
+
     @Override
     public void reopen() {
         reactor.getSelector().execute(() -> {
@@ -210,40 +323,51 @@ public class TcpCrusher implements NetCrusher {
      */
     @Override
     public void freeze() {
-        reactor.getSelector().execute(() -> {
-            if (state.is(State.OPEN)) {
+        reactor.getSelector().execute(() -> freezeOnSelector().join());
+    }
+
+    @Override
+    public CompletableFuture<Void> freezeAsync() {
+        return reactor.getSelector().submit(this::freezeOnSelector).thenCompose(Function.identity());
+    }
+
+    private CompletableFuture<Void> freezeOnSelector() {
+        if (state.is(State.OPEN)) {
+            for (TcpAcceptor acceptor : acceptors) {
                 if (!acceptor.isFrozen()) {
                     acceptor.freeze();
                 }
+            }
 
-                freezeAllPairs();
-
-                state.set(State.FROZEN);
+            state.set(State.FROZEN);
 
-                return true;
-            } else {
-                throw new IllegalStateException("TcpCrusher is not open on freeze");
-            }
-        });
+            return submitToPairs(pairs.values(), TcpCrusher::freezePair);
+        } else {
+            throw new IllegalStateException("TcpCrusher is not open on freeze");
+        }
     }
 
     /**
      * Freezes all TCP pairs
      */
     public void freezeAllPairs() {
-        reactor.getSelector().execute(() -> {
-            if (state.not(State.CLOSED)) {
-                for (TcpPair pair : pairs.values()) {
-                    if (!pair.isFrozen()) {
-                        pair.freeze();
-                    }
-                }
+        reactor.getSelector().execute(() -> freezeAllPairsOnSelector().join());
+    }
 
-                return true;
-            } else {
-                throw new IllegalStateException("TcpCrusher is closed");
-            }
-        });
+    /**
+     * Freezes all TCP pairs. Doesn't wait for selector threads
+     * @return Future which is completed when all pairs are frozen
+     */
+    public CompletableFuture<Void> freezeAllPairsAsync() {
+        return reactor.getSelector().submit(this::freezeAllPairsOnSelector).thenCompose(Function.identity());
+    }
+
+    private CompletableFuture<Void> freezeAllPairsOnSelector() {
+        if (state.not(State.CLOSED)) {
+            return submitToPairs(pairs.values(), TcpCrusher::freezePair);
+        } else {
+            throw new IllegalStateException("TcpCrusher is closed");
+        }
     }
 
     /**
@@ -253,40 +377,83 @@ public class TcpCrusher implements NetCrusher {
      */
     @Override
     public void unfreeze() {
-        reactor.getSelector().execute(() -> {
-            if (state.is(State.FROZEN)) {
-                unfreezeAllPairs();
+        reactor.getSelector().execute(() -> unfreezeOnSelector().join());
+    }
+
+    @Override
+    public CompletableFuture<Void> unfreezeAsync() {
+        return reactor.getSelector().submit(this::unfreezeOnSelector).thenCompose(Function.identity());
+    }
 
+    private CompletableFuture<Void> unfreezeOnSelector() {
+        if (state.is(State.FROZEN)) {
+            CompletableFuture<Void> future = submitToPairs(pairs.values(), TcpCrusher::unfreezePair);
+
+            for (TcpAcceptor acceptor : acceptors) {
                 if (acceptor.isFrozen()) {
                     acceptor.unfreeze();
                 }
+            }
 
-                state.set(State.OPEN);
+            state.set(State.OPEN);
 
-                return true;
-            } else {
-                throw new IllegalStateException("TcpCrusher is not frozen on unfreeze");
-            }
-        });
+            return future;
+        } else {
+            throw new IllegalStateException("TcpCrusher is not frozen on unfreeze");
+        }
     }
 
     /**
      * Unfreezes all TCP pairs
      */
     public void unfreezeAllPairs() {
-        reactor.getSelector().execute(() -> {
-            if (state.not(State.CLOSED)) {
-                for (TcpPair pair : pairs.values()) {
-                    if (pair.isFrozen()) {
-                        pair.unfreeze();
-                    }
-                }
+        reactor.getSelector().execute(() -> unfreezeAllPairsOnSelector().join());
+    }
 
-                return true;
-            } else {
-                throw new IllegalStateException("TcpCrusher is closed");
-            }
-        });
+    /**
+     * Unfreezes all TCP pairs. Doesn't wait for selector threads
+     * @return Future which is completed when all pairs are unfrozen
+     */
+    public CompletableFuture<Void> unfreezeAllPairsAsync() {
+        return reactor.getSelector().submit(this::unfreezeAllPairsOnSelector).thenCompose(Function.identity());
+    }
+
+    private CompletableFuture<Void> unfreezeAllPairsOnSelector() {
+        if (state.not(State.CLOSED)) {
+            return submitToPairs(pairs.values(), TcpCrusher::unfreezePair);
+        } else {
+            throw new IllegalStateException("TcpCrusher is closed");
+        }
+    }
+
+    private static boolean freezePair(TcpPair pair) {
+        return !pair.isFrozen() && pair.freezeOnSelector();
+    }
+
+    private static boolean unfreezePair(TcpPair pair) {
+        return pair.isFrozen() && pair.unfreezeOnSelector();
+    }
+
+    private static CompletableFuture<Void> submitToPairs(Collection<TcpPair> pairs,
+                                                         Function<TcpPair, Boolean> operation)
+    {
+        if (pairs.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // pairs are grouped by their selector loops so every loop is woken up only once for the whole batch
+        final Map<NioSelector, List<Callable<Boolean>>> batches = new HashMap<>();
+        for (TcpPair pair : pairs) {
+            batches.computeIfAbsent(pair.getSelector(), (selector) -> new ArrayList<>())
+                .add(() -> operation.apply(pair));
+        }
+
+        final List<CompletableFuture<Boolean>> futures = new ArrayList<>(pairs.size());
+        for (Map.Entry<NioSelector, List<Callable<Boolean>>> batch : batches.entrySet()) {
+            futures.addAll(batch.getKey().submitAll(batch.getValue()));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
     }
 
     @Override
@@ -304,6 +471,15 @@ public class TcpCrusher implements NetCrusher {
         return connectAddress;
     }
 
+    /**
+     * Get all upstreams the clients are distributed among. The first one is the connect address if it is set
+     * @return Unmodifiable list of upstreams with their meters
+     * @see TcpCrusherBuilder#withUpstreamAddress(InetSocketAddress, int)
+     */
+    public List<Upstream> getUpstreams() {
+        return upstreams;
+    }
+
     @Override
     public Collection<InetSocketAddress> getClientAddresses() {
         return reactor.getSelector().execute(() -> {
@@ -333,18 +509,30 @@ public class TcpCrusher implements NetCrusher {
 
     @Override
     public boolean closeClient(InetSocketAddress clientAddress) {
-        return reactor.getSelector().execute(() -> {
-            if (state.not(State.CLOSED)) {
-                TcpPair pair = pairs.remove(clientAddress);
-                if (pair != null) {
-                    pair.close();
-                    notifyPairDeleted(pair);
-                    return true;
-                }
+        return reactor.getSelector().execute(() -> closeClientOnSelector(clientAddress).join());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> closeClientAsync(InetSocketAddress clientAddress) {
+        return reactor.getSelector().submit(() -> closeClientOnSelector(clientAddress))
+            .thenCompose(Function.identity());
+    }
+
+    private CompletableFuture<Boolean> closeClientOnSelector(InetSocketAddress clientAddress) {
+        if (state.not(State.CLOSED)) {
+            TcpPair pair = pairs.remove(clientAddress);
+            if (pair != null) {
+                releasePair(pair);
+
+                return pair.getSelector().submit(pair::closeOnSelector)
+                    .thenApply((closed) -> {
+                        notifyPairDeleted(pair);
+                        return true;
+                    });
             }
+        }
 
-            return false;
-        });
+        return CompletableFuture.completedFuture(false);
     }
 
     /**
@@ -363,18 +551,115 @@ public class TcpCrusher implements NetCrusher {
     public NetFreezer getAcceptorFreezer() {
         return reactor.getSelector().execute(() -> {
             if (state.not(State.CLOSED)) {
-                return acceptor;
+                return acceptors.size() == 1 ? acceptors.get(0) : new TcpAcceptorGroup(acceptors);
+            } else {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Get the quota of transfer buffer memory shared by all clients of the crusher
+     * @return Buffer quota
+     */
+    public BufferQuota getBufferQuota() {
+        return bufferQuota;
+    }
+
+    /**
+     * Request the rate of incoming connections accepted by the listening socket (by all shards if any)
+     * @return Rate meter or null if the crusher is closed
+     */
+    public RateMeter getAcceptMeter() {
+        return reactor.getSelector().execute(() -> {
+            if (state.not(State.CLOSED)) {
+                if (acceptors.size() == 1) {
+                    return acceptors.get(0).getAcceptMeter();
+                } else {
+                    return new RateMeterGroup(acceptors.stream()
+                        .map(TcpAcceptor::getAcceptMeter)
+                        .collect(Collectors.toList()));
+                }
+            } else {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Request latency statistics between accepting an incoming connection and the moment
+     * its pair (with the established outgoing connection) is handed off to a selector loop
+     * @return Latency meter or null if the crusher is closed
+     */
+    public LatencyMeter getAcceptLatencyMeter() {
+        return reactor.getSelector().execute(() -> {
+            if (state.not(State.CLOSED)) {
+                if (acceptors.size() == 1) {
+                    return acceptors.get(0).getAcceptLatencyMeter();
+                } else {
+                    return new LatencyMeterGroup(acceptors.stream()
+                        .map(TcpAcceptor::getAcceptLatencyMeter)
+                        .collect(Collectors.toList()));
+                }
             } else {
                 return null;
             }
         });
     }
 
+    /**
+     * Request how many times the acceptor has stopped listening as the accept rate limit is reached
+     * @return Number of throttled accepts
+     * @see TcpCrusherBuilder#withAcceptRate(int)
+     */
+    public long getAcceptThrottledCount() {
+        return acceptLimiter.getThrottledCount();
+    }
+
+    /**
+     * Request how many incoming connections have been closed immediately as the pair limit is reached
+     * @return Number of rejected connections
+     * @see TcpCrusherBuilder#withMaxPairs(int)
+     */
+    public long getAcceptRejectedCount() {
+        return acceptLimiter.getRejectedCount();
+    }
+
+    /**
+     * Request how many accepted clients have been paired with a pre-connected upstream socket
+     * @return Number of pool hits (0 if the pool is off or the crusher is closed)
+     * @see TcpCrusherBuilder#withUpstreamPoolSize(int)
+     */
+    public long getUpstreamPoolHitCount() {
+        return reactor.getSelector().execute(() -> {
+            if (state.not(State.CLOSED)) {
+                return acceptors.stream().mapToLong(TcpAcceptor::getPoolHitCount).sum();
+            } else {
+                return 0L;
+            }
+        });
+    }
+
+    /**
+     * Request how many accepted clients have found the upstream pool empty and waited for a fresh connection
+     * @return Number of pool misses (0 if the pool is off or the crusher is closed)
+     * @see TcpCrusherBuilder#withUpstreamPoolSize(int)
+     */
+    public long getUpstreamPoolMissCount() {
+        return reactor.getSelector().execute(() -> {
+            if (state.not(State.CLOSED)) {
+                return acceptors.stream().mapToLong(TcpAcceptor::getPoolMissCount).sum();
+            } else {
+                return 0L;
+            }
+        });
+    }
+
     @Override
     public int getClientTotalCount() {
         return reactor.getSelector().execute(() -> {
             if (state.not(State.CLOSED)) {
-                return acceptor.getTotalAccepted();
+                return acceptors.stream().mapToInt(TcpAcceptor::getTotalAccepted).sum();
             } else {
                 return 0;
             }
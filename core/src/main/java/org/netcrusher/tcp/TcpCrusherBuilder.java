@@ -5,6 +5,7 @@ import org.netcrusher.core.filter.TransformFilterFactory;
 import org.netcrusher.core.reactor.NioReactor;
 import org.netcrusher.core.throttle.Throttler;
 import org.netcrusher.core.throttle.ThrottlerFactory;
+import org.netcrusher.core.upstream.UpstreamBalancerFactory;
 import org.netcrusher.tcp.callback.TcpClientCreation;
 import org.netcrusher.tcp.callback.TcpClientDeletion;
 
@@ -70,6 +71,49 @@ public final class TcpCrusherBuilder {
         return withConnectAddress(new InetSocketAddress(hostname, port));
     }
 
+    /**
+     * Add one more remote address for proxy. Clients are distributed among the connect address (if set)
+     * and all upstream addresses by the upstream balancer
+     * @param address Inet address
+     * @param weight Relative weight of the address for weighted balancers
+     * @return This builder instance to chain with other methods
+     * @see org.netcrusher.core.upstream.UpstreamBalancers
+     */
+    public TcpCrusherBuilder withUpstreamAddress(InetSocketAddress address, int weight) {
+        this.options.getUpstreamWeights().put(address, weight);
+        return this;
+    }
+
+    /**
+     * Add one more remote address for proxy with the default weight of 1
+     * @param address Inet address
+     * @return This builder instance to chain with other methods
+     */
+    public TcpCrusherBuilder withUpstreamAddress(InetSocketAddress address) {
+        return withUpstreamAddress(address, 1);
+    }
+
+    /**
+     * Add one more remote address for proxy with the default weight of 1
+     * @param hostname Remote host name or IP address of remote host
+     * @param port Port number
+     * @return This builder instance to chain with other methods
+     */
+    public TcpCrusherBuilder withUpstreamAddress(String hostname, int port) {
+        return withUpstreamAddress(new InetSocketAddress(hostname, port));
+    }
+
+    /**
+     * Set the strategy to choose an upstream address for a new client. Round robin is used by default
+     * @param upstreamBalancerFactory Balancer factory
+     * @return This builder instance to chain with other methods
+     * @see org.netcrusher.core.upstream.UpstreamBalancers
+     */
+    public TcpCrusherBuilder withUpstreamBalancer(UpstreamBalancerFactory upstreamBalancerFactory) {
+        this.options.setUpstreamBalancerFactory(upstreamBalancerFactory);
+        return this;
+    }
+
     /**
      * Set bind-before-connect address
      * @param address Inet address
@@ -195,6 +239,98 @@ public final class TcpCrusherBuilder {
         return this;
     }
 
+    /**
+     * Set how many bytes a channel may read (or write) on a single selector event. When the budget is exhausted
+     * the channel yields and resumes on the next selector loop iteration, so a hot pair can't delay other pairs
+     * sharing the same selector for too long. If set to 0 the channel transfers until the socket is drained
+     * @param budgetBytes Budget in bytes
+     * @return This builder instance to chain with other methods
+     */
+    public TcpCrusherBuilder withEventBudgetBytes(long budgetBytes) {
+        this.options.getSocketOptions().setEventBudgetBytes(budgetBytes);
+        return this;
+    }
+
+    /**
+     * Set how many listening sockets share the bind address with SO_REUSEPORT. Each shard is served by its own
+     * selector loop and keeps accepted pairs on that loop, so the kernel spreads incoming connections across
+     * the loops. If set to 0 the only listening socket is served by the primary selector loop
+     * @param shards Number of listening sockets
+     * @see org.netcrusher.core.reactor.NioReactorBuilder#withSelectorCount(int)
+     * @return This builder instance to chain with other methods
+     */
+    public TcpCrusherBuilder withReusePortShards(int shards) {
+        this.options.getSocketOptions().setReusePortShards(shards);
+        return this;
+    }
+
+    /**
+     * Set how many pending connections the acceptor takes from the backlog on a single selector event
+     * @param batch Number of connections (1 by default)
+     * @return This builder instance to chain with other methods
+     */
+    public TcpCrusherBuilder withAcceptBatch(int batch) {
+        this.options.getSocketOptions().setAcceptBatch(batch);
+        return this;
+    }
+
+    /**
+     * Limit the rate of accepted connections with a token bucket. While the bucket is empty the acceptor stops
+     * listening and further connections wait in the backlog. If set to 0 the rate is not limited
+     * @param connectionPerSec Connections per second
+     * @return This builder instance to chain with other methods
+     */
+    public TcpCrusherBuilder withAcceptRate(int connectionPerSec) {
+        this.options.getSocketOptions().setAcceptRatePerSec(connectionPerSec);
+        return this;
+    }
+
+    /**
+     * Set how many connections could be accepted at once when the rate is limited
+     * @param burst Size of the token bucket (one second of the rate if set to 0)
+     * @see #withAcceptRate(int)
+     * @return This builder instance to chain with other methods
+     */
+    public TcpCrusherBuilder withAcceptBurst(int burst) {
+        this.options.getSocketOptions().setAcceptBurst(burst);
+        return this;
+    }
+
+    /**
+     * Limit the number of concurrent pairs. When the limit is reached new connections are accepted
+     * and closed immediately. If set to 0 the number is not limited
+     * @param maxPairs Maximum number of pairs
+     * @return This builder instance to chain with other methods
+     */
+    public TcpCrusherBuilder withMaxPairs(int maxPairs) {
+        this.options.getSocketOptions().setMaxPairs(maxPairs);
+        return this;
+    }
+
+    /**
+     * Keep a warm pool of connections to the connect address so an accepted client is paired without waiting
+     * for the outgoing handshake. Each listening socket (shard) has its own pool which is refilled in background.
+     * The pool is not used if the bind-before-connect address or several upstream addresses are set.
+     * If set to 0 there is no pool
+     * @param poolSize Number of pre-connected sockets
+     * @return This builder instance to chain with other methods
+     */
+    public TcpCrusherBuilder withUpstreamPoolSize(int poolSize) {
+        this.options.getSocketOptions().setUpstreamPoolSize(poolSize);
+        return this;
+    }
+
+    /**
+     * Set how long a pre-connected socket could wait in the pool before it is replaced with a fresh one
+     * @param idleMs Idle timeout in milliseconds (0 for no expiry)
+     * @see #withUpstreamPoolSize(int)
+     * @return This builder instance to chain with other methods
+     */
+    public TcpCrusherBuilder withUpstreamPoolIdleMs(long idleMs) {
+        this.options.getSocketOptions().setUpstreamPoolIdleMs(idleMs);
+        return this;
+    }
+
     /**
      * Set how many buffer instances will be in queue between two sockets in a proxy pair
      * @param bufferCount Count of buffer
@@ -225,6 +361,31 @@ public final class TcpCrusherBuilder {
         return this;
     }
 
+    /**
+     * Set queue layout. A contiguous queue keeps all the data in the only ring of bufferCount * bufferSize bytes
+     * so reads and writes take all the data at once in two segments at most, and a transform filter
+     * is called less often. The ring is borrowed on a read and returned as soon as it is drained. A transform
+     * filter may grow the data only into the free space of the ring which follows the fresh data
+     * @param contiguous Set true to use a contiguous ring instead of separate buffers
+     * @return This builder instance to chain with other methods
+     */
+    public TcpCrusherBuilder withBufferContiguous(boolean contiguous) {
+        this.options.getBufferOptions().setContiguous(contiguous);
+        return this;
+    }
+
+    /**
+     * Set a soft limit on buffer memory all connections of the crusher may hold. Buffers are borrowed from
+     * the reactor's pool on demand and returned when drained. Over the limit a queue may only hold a single buffer.
+     * If set to 0 the memory is not limited
+     * @param limitBytes Limit in bytes
+     * @return This builder instance to chain with other methods
+     */
+    public TcpCrusherBuilder withBufferLimitBytes(long limitBytes) {
+        this.options.getBufferOptions().setLimitBytes(limitBytes);
+        return this;
+    }
+
     /**
      * Set outgoing (from the inner to the outer) transform filter factory
      * @param filterFactory Filter factory
@@ -269,6 +430,18 @@ public final class TcpCrusherBuilder {
         return this;
     }
 
+    /**
+     * Set pass-through mode. The data goes between sockets through one direct ring per direction with
+     * no filtering stage. The mode can't be combined with transform filters or throttlers so the build fails
+     * if any of them is set
+     * @param passThrough Set true to enable pass-through mode
+     * @return This builder instance to chain with other methods
+     */
+    public TcpCrusherBuilder withPassThrough(boolean passThrough) {
+        this.options.setPassThrough(passThrough);
+        return this;
+    }
+
     /**
      * Set listeners call method
      * @param deferredListeners Set true if listeners should be called from separate thread
@@ -4,10 +4,14 @@ import org.netcrusher.core.buffer.BufferOptions;
 import org.netcrusher.core.filter.TransformFilterFactory;
 import org.netcrusher.core.reactor.NioReactor;
 import org.netcrusher.core.throttle.ThrottlerFactory;
+import org.netcrusher.core.upstream.UpstreamBalancerFactory;
+import org.netcrusher.core.upstream.UpstreamBalancers;
 import org.netcrusher.tcp.callback.TcpClientCreation;
 import org.netcrusher.tcp.callback.TcpClientDeletion;
 
 import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class TcpCrusherOptions {
 
@@ -21,6 +25,10 @@ public class TcpCrusherOptions {
 
     private InetSocketAddress bindBeforeConnectAddress;
 
+    private Map<InetSocketAddress, Integer> upstreamWeights;
+
+    private UpstreamBalancerFactory upstreamBalancerFactory;
+
     private NioReactor reactor;
 
     private TcpCrusherSocketOptions socketOptions;
@@ -41,6 +49,8 @@ public class TcpCrusherOptions {
 
     private BufferOptions bufferOptions;
 
+    private boolean passThrough;
+
     public TcpCrusherOptions() {
         this.socketOptions = new TcpCrusherSocketOptions();
 
@@ -50,6 +60,9 @@ public class TcpCrusherOptions {
         this.bufferOptions.setDirect(true);
 
         this.deferredListeners = true;
+
+        this.upstreamWeights = new LinkedHashMap<>();
+        this.upstreamBalancerFactory = UpstreamBalancers.roundRobin();
     }
 
     public void validate() {
@@ -57,10 +70,14 @@ public class TcpCrusherOptions {
             throw new IllegalArgumentException("Bind address is not set");
         }
 
-        if (connectAddress == null) {
+        if (connectAddress == null && (upstreamWeights == null || upstreamWeights.isEmpty())) {
             throw new IllegalArgumentException("Connect address is not set");
         }
 
+        if (upstreamBalancerFactory == null) {
+            throw new IllegalArgumentException("Upstream balancer is not set");
+        }
+
         if (reactor == null) {
             throw new IllegalArgumentException("Reactor is not set");
         }
@@ -69,9 +86,26 @@ public class TcpCrusherOptions {
             throw new IllegalArgumentException("Socket options are not set");
         }
 
+        socketOptions.validate();
+
         if (bufferOptions == null) {
             throw new IllegalArgumentException("Buffer options are not set");
         }
+
+        if (bufferOptions.getLimitBytes() < 0) {
+            throw new IllegalArgumentException("Buffer limit must not be negative");
+        }
+
+        validatePassThrough();
+    }
+
+    private void validatePassThrough() {
+        final boolean filtered = incomingTransformFilterFactory != null || outgoingTransformFilterFactory != null
+            || incomingThrottlerFactory != null || outgoingThrottlerFactory != null;
+
+        if (passThrough && filtered) {
+            throw new IllegalArgumentException("Pass-through mode can't be used with transform filters or throttlers");
+        }
     }
 
     public InetSocketAddress getBindAddress() {
@@ -90,6 +124,22 @@ public class TcpCrusherOptions {
         this.connectAddress = connectAddress;
     }
 
+    public Map<InetSocketAddress, Integer> getUpstreamWeights() {
+        return upstreamWeights;
+    }
+
+    public void setUpstreamWeights(Map<InetSocketAddress, Integer> upstreamWeights) {
+        this.upstreamWeights = upstreamWeights;
+    }
+
+    public UpstreamBalancerFactory getUpstreamBalancerFactory() {
+        return upstreamBalancerFactory;
+    }
+
+    public void setUpstreamBalancerFactory(UpstreamBalancerFactory upstreamBalancerFactory) {
+        this.upstreamBalancerFactory = upstreamBalancerFactory;
+    }
+
     public InetSocketAddress getBindBeforeConnectAddress() {
         return bindBeforeConnectAddress;
     }
@@ -178,4 +228,11 @@ public class TcpCrusherOptions {
         this.bufferOptions = bufferOptions;
     }
 
+    public boolean isPassThrough() {
+        return passThrough;
+    }
+
+    public void setPassThrough(boolean passThrough) {
+        this.passThrough = passThrough;
+    }
 }
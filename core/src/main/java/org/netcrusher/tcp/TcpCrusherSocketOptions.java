@@ -11,6 +11,8 @@ public class TcpCrusherSocketOptions implements Serializable {
 
     public static final int DEFAULT_BACKLOG = 10;
 
+    public static final long DEFAULT_UPSTREAM_POOL_IDLE_MS = 30000;
+
     private int backlog;
 
     private int rcvBufferSize;
@@ -25,6 +27,22 @@ public class TcpCrusherSocketOptions implements Serializable {
 
     private int lingerMs;
 
+    private long eventBudgetBytes;
+
+    private int reusePortShards;
+
+    private int acceptBatch;
+
+    private int acceptRatePerSec;
+
+    private int acceptBurst;
+
+    private int maxPairs;
+
+    private int upstreamPoolSize;
+
+    private long upstreamPoolIdleMs;
+
     public TcpCrusherSocketOptions() {
         this.backlog = DEFAULT_BACKLOG;
         this.rcvBufferSize = 0;
@@ -33,6 +51,14 @@ public class TcpCrusherSocketOptions implements Serializable {
         this.tcpNoDelay = true;
         this.keepAlive = true;
         this.lingerMs = -1;
+        this.eventBudgetBytes = 0;
+        this.reusePortShards = 0;
+        this.acceptBatch = 1;
+        this.acceptRatePerSec = 0;
+        this.acceptBurst = 0;
+        this.maxPairs = 0;
+        this.upstreamPoolSize = 0;
+        this.upstreamPoolIdleMs = DEFAULT_UPSTREAM_POOL_IDLE_MS;
     }
 
     public TcpCrusherSocketOptions copy() {
@@ -45,6 +71,14 @@ public class TcpCrusherSocketOptions implements Serializable {
         copy.tcpNoDelay = this.tcpNoDelay;
         copy.keepAlive = this.keepAlive;
         copy.lingerMs = this.lingerMs;
+        copy.eventBudgetBytes = this.eventBudgetBytes;
+        copy.reusePortShards = this.reusePortShards;
+        copy.acceptBatch = this.acceptBatch;
+        copy.acceptRatePerSec = this.acceptRatePerSec;
+        copy.acceptBurst = this.acceptBurst;
+        copy.maxPairs = this.maxPairs;
+        copy.upstreamPoolSize = this.upstreamPoolSize;
+        copy.upstreamPoolIdleMs = this.upstreamPoolIdleMs;
 
         return copy;
     }
@@ -105,6 +139,96 @@ public class TcpCrusherSocketOptions implements Serializable {
         this.lingerMs = lingerMs;
     }
 
+    public long getEventBudgetBytes() {
+        return eventBudgetBytes;
+    }
+
+    public void setEventBudgetBytes(long eventBudgetBytes) {
+        this.eventBudgetBytes = eventBudgetBytes;
+    }
+
+    public int getReusePortShards() {
+        return reusePortShards;
+    }
+
+    public void setReusePortShards(int reusePortShards) {
+        this.reusePortShards = reusePortShards;
+    }
+
+    public int getAcceptBatch() {
+        return acceptBatch;
+    }
+
+    public void setAcceptBatch(int acceptBatch) {
+        this.acceptBatch = acceptBatch;
+    }
+
+    public int getAcceptRatePerSec() {
+        return acceptRatePerSec;
+    }
+
+    public void setAcceptRatePerSec(int acceptRatePerSec) {
+        this.acceptRatePerSec = acceptRatePerSec;
+    }
+
+    public int getAcceptBurst() {
+        return acceptBurst;
+    }
+
+    public void setAcceptBurst(int acceptBurst) {
+        this.acceptBurst = acceptBurst;
+    }
+
+    public int getMaxPairs() {
+        return maxPairs;
+    }
+
+    public void setMaxPairs(int maxPairs) {
+        this.maxPairs = maxPairs;
+    }
+
+    public int getUpstreamPoolSize() {
+        return upstreamPoolSize;
+    }
+
+    public void setUpstreamPoolSize(int upstreamPoolSize) {
+        this.upstreamPoolSize = upstreamPoolSize;
+    }
+
+    public long getUpstreamPoolIdleMs() {
+        return upstreamPoolIdleMs;
+    }
+
+    public void setUpstreamPoolIdleMs(long upstreamPoolIdleMs) {
+        this.upstreamPoolIdleMs = upstreamPoolIdleMs;
+    }
+
+    public void validate() {
+        if (eventBudgetBytes < 0) {
+            throw new IllegalArgumentException("Event budget must not be negative");
+        }
+
+        if (reusePortShards < 0) {
+            throw new IllegalArgumentException("Shard count must not be negative");
+        }
+
+        if (acceptBatch <= 0) {
+            throw new IllegalArgumentException("Accept batch must be positive");
+        }
+
+        if (acceptRatePerSec < 0 || acceptBurst < 0) {
+            throw new IllegalArgumentException("Accept rate and burst must not be negative");
+        }
+
+        if (maxPairs < 0) {
+            throw new IllegalArgumentException("Max pair count must not be negative");
+        }
+
+        if (upstreamPoolSize < 0 || upstreamPoolIdleMs < 0) {
+            throw new IllegalArgumentException("Upstream pool size and idle timeout must not be negative");
+        }
+    }
+
     void setupSocketChannel(SocketChannel socketChannel) throws IOException {
         socketChannel.setOption(StandardSocketOptions.SO_KEEPALIVE, keepAlive);
         socketChannel.setOption(StandardSocketOptions.TCP_NODELAY, tcpNoDelay);
@@ -1,16 +1,21 @@
 package org.netcrusher.tcp;
 
 import org.netcrusher.NetFreezer;
+import org.netcrusher.core.buffer.BufferAllocator;
 import org.netcrusher.core.buffer.BufferOptions;
+import org.netcrusher.core.buffer.BufferQuota;
 import org.netcrusher.core.meter.RateMeters;
-import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.reactor.NioSelector;
 import org.netcrusher.core.state.BitState;
+import org.netcrusher.core.upstream.Upstream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
 
 class TcpPair implements NetFreezer {
 
@@ -20,36 +25,47 @@ class TcpPair implements NetFreezer {
 
     private final TcpChannel outerChannel;
 
+    private final TcpQueue innerToOuter;
+
+    private final TcpQueue outerToInner;
+
     private final Runnable ownerClose;
 
-    private final NioReactor reactor;
+    private final NioSelector selector;
 
     private final InetSocketAddress clientAddress;
 
     private final State state;
 
+    private Upstream upstream;
+
     TcpPair(
-        NioReactor reactor,
+        NioSelector selector,
         TcpFilters filters,
         SocketChannel inner,
         SocketChannel outer,
         BufferOptions bufferOptions,
+        BufferQuota bufferQuota,
+        long eventBudgetBytes,
         Runnable ownerClose) throws IOException
     {
         this.ownerClose = ownerClose;
-        this.reactor = reactor;
+        this.selector = selector;
 
         this.clientAddress = (InetSocketAddress) inner.getRemoteAddress();
 
-        TcpQueue innerToOuter = TcpQueue.allocateQueue(clientAddress, bufferOptions,
+        BufferAllocator allocator = new BufferAllocator(selector.getBufferPool(), bufferQuota,
+            TcpQueue.calculateAllocationSize(bufferOptions), bufferOptions.isDirect());
+
+        this.innerToOuter = TcpQueue.allocateQueue(clientAddress, bufferOptions, allocator,
             filters.getOutgoingTransformFilterFactory(), filters.getOutgoingThrottlerFactory());
-        TcpQueue outerToInner = TcpQueue.allocateQueue(clientAddress, bufferOptions,
+        this.outerToInner = TcpQueue.allocateQueue(clientAddress, bufferOptions, allocator,
             filters.getIncomingTransformFilterFactory(), filters.getIncomingThrottlerFactory());
 
-        this.innerChannel = new TcpChannel("INNER", reactor, this::closeAll, inner,
-            outerToInner, innerToOuter);
-        this.outerChannel = new TcpChannel("OUTER", reactor, this::closeAll, outer,
-            innerToOuter, outerToInner);
+        this.innerChannel = new TcpChannel("INNER", selector, this::closeAll, inner,
+            outerToInner, innerToOuter, eventBudgetBytes);
+        this.outerChannel = new TcpChannel("OUTER", selector, this::closeAll, outer,
+            innerToOuter, outerToInner, eventBudgetBytes);
 
         this.innerChannel.setOther(outerChannel);
         this.outerChannel.setOther(innerChannel);
@@ -57,70 +73,115 @@ class TcpPair implements NetFreezer {
         this.state = new State(State.FROZEN);
     }
 
+    void setUpstream(Upstream upstream) {
+        this.upstream = upstream;
+        this.outerChannel.setUpstream(upstream);
+    }
+
+    Upstream getUpstream() {
+        return upstream;
+    }
+
+    /**
+     * Pass bytes the upstream has sent before the pair is created as if the outer has read them
+     * @param bb Flipped buffer
+     * @return Returns 'false' if the queue has no room for all the bytes
+     */
+    boolean prefetch(ByteBuffer bb) {
+        return selector.execute(() -> outerChannel.prefetch(bb));
+    }
+
     private void closeAll() {
         this.close();
         ownerClose.run();
     }
 
     void close() {
-        reactor.getSelector().execute(() -> {
-            if (state.not(State.CLOSED)) {
-                if (state.is(State.OPEN)) {
-                    freeze();
-                }
+        selector.execute(this::closeOnSelector);
+    }
 
-                innerChannel.close();
-                outerChannel.close();
+    CompletableFuture<Void> closeAsync() {
+        return selector.submit(this::closeOnSelector).thenApply((r) -> null);
+    }
 
-                state.set(State.CLOSED);
+    // should be called from the pair's selector thread
+    boolean closeOnSelector() {
+        if (state.not(State.CLOSED)) {
+            if (state.is(State.OPEN)) {
+                freezeOnSelector();
+            }
 
-                LOGGER.debug("Pair for '{}' is closed", clientAddress);
+            innerChannel.close();
+            outerChannel.close();
 
-                return true;
-            } else {
-                return false;
-            }
-        });
+            // the pool isn't thread-safe so buffers are returned on the pair's selector thread
+            innerToOuter.close();
+            outerToInner.close();
+
+            state.set(State.CLOSED);
+
+            LOGGER.debug("Pair for '{}' is closed", clientAddress);
+
+            return true;
+        } else {
+            return false;
+        }
     }
 
     @Override
     public void freeze() {
-        reactor.getSelector().execute(() -> {
-            if (state.is(State.OPEN)) {
-                if (!innerChannel.isFrozen()) {
-                    innerChannel.freeze();
-                }
-                if (!outerChannel.isFrozen()) {
-                    outerChannel.freeze();
-                }
-
-                state.set(State.FROZEN);
-
-                return true;
-            } else {
-                throw new IllegalStateException("Pair is not open on freeze");
+        selector.execute(this::freezeOnSelector);
+    }
+
+    @Override
+    public CompletableFuture<Void> freezeAsync() {
+        return selector.submit(this::freezeOnSelector).thenApply((r) -> null);
+    }
+
+    // should be called from the pair's selector thread
+    boolean freezeOnSelector() {
+        if (state.is(State.OPEN)) {
+            if (!innerChannel.isFrozen()) {
+                innerChannel.freeze();
             }
-        });
+            if (!outerChannel.isFrozen()) {
+                outerChannel.freeze();
+            }
+
+            state.set(State.FROZEN);
+
+            return true;
+        } else {
+            throw new IllegalStateException("Pair is not open on freeze");
+        }
     }
 
     @Override
     public void unfreeze() {
-        reactor.getSelector().execute(() -> {
-            if (state.is(State.FROZEN)) {
-                if (innerChannel.isFrozen()) {
-                    innerChannel.unfreeze();
-                }
-                if (outerChannel.isFrozen()) {
-                    outerChannel.unfreeze();
-                }
-
-                state.set(State.OPEN);
-
-                return true;
-            } else {
-                throw new IllegalStateException("Pair is not frozen on unfreeze");
+        selector.execute(this::unfreezeOnSelector);
+    }
+
+    @Override
+    public CompletableFuture<Void> unfreezeAsync() {
+        return selector.submit(this::unfreezeOnSelector).thenApply((r) -> null);
+    }
+
+    // should be called from the pair's selector thread
+    boolean unfreezeOnSelector() {
+        if (state.is(State.FROZEN)) {
+            if (innerChannel.isFrozen()) {
+                innerChannel.unfreeze();
+            }
+            if (outerChannel.isFrozen()) {
+                outerChannel.unfreeze();
             }
-        });
+
+            state.set(State.OPEN);
+
+            return true;
+        } else {
+            throw new IllegalStateException("Pair is not frozen on unfreeze");
+        }
     }
 
     @Override
@@ -128,6 +189,10 @@ class TcpPair implements NetFreezer {
         return state.isAnyOf(State.FROZEN | State.CLOSED);
     }
 
+    NioSelector getSelector() {
+        return selector;
+    }
+
     InetSocketAddress getClientAddress() {
         return clientAddress;
     }
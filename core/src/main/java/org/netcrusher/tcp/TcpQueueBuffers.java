@@ -2,27 +2,31 @@ package org.netcrusher.tcp;
 
 import java.nio.ByteBuffer;
 
+/**
+ * Reusable view of the queue buffers: every queue owns the only instance which is refilled on each request
+ */
 class TcpQueueBuffers {
 
-    public static final TcpQueueBuffers EMPTY = new TcpQueueBuffers(null, -1, 0, 0);
-
     private final ByteBuffer[] array;
 
-    private final int offset;
+    private int offset;
 
-    private final int count;
+    private int count;
 
-    private final long delayNs;
+    private long delayNs;
 
-    TcpQueueBuffers(ByteBuffer[] array, int offset, int count, long delayNs) {
+    TcpQueueBuffers(ByteBuffer[] array) {
         this.array = array;
+        this.offset = 0;
+        this.count = 0;
+        this.delayNs = 0;
+    }
+
+    TcpQueueBuffers set(int offset, int count, long delayNs) {
         this.offset = offset;
         this.count = count;
         this.delayNs = delayNs;
-    }
-
-    TcpQueueBuffers(ByteBuffer[] array, int offset, int count) {
-        this(array, offset, count, 0);
+        return this;
     }
 
     public ByteBuffer[] getArray() {
@@ -0,0 +1,72 @@
+package org.netcrusher.tcp;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how many buffers of a queue may hold data by the observed throughput. The queue keeps
+ * about HORIZON_NS of traffic, so a slow connection doesn't pin all the buffers a fast one would need.
+ */
+final class TcpQueueCapacity {
+
+    private static final long HORIZON_NS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final int EPOCH_READS = 16;
+
+    private static final int MIN_BUFFERS = 4;
+
+    private final int minBuffers;
+
+    private final int maxBuffers;
+
+    private final int bufferSize;
+
+    private int limit;
+
+    private long epochBytes;
+
+    private int epochReads;
+
+    private long epochStartedNs;
+
+    TcpQueueCapacity(int maxBuffers, int bufferSize) {
+        this.minBuffers = Math.min(MIN_BUFFERS, maxBuffers);
+        this.maxBuffers = maxBuffers;
+        this.bufferSize = bufferSize;
+        this.limit = minBuffers;
+        this.epochBytes = 0;
+        this.epochReads = 0;
+        this.epochStartedNs = System.nanoTime();
+    }
+
+    /**
+     * How many buffers may hold data now
+     * @return Buffer count
+     */
+    int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Record the read. The clock is checked once per epoch of reads only
+     * @param readBytes How many bytes have been read
+     */
+    void record(long readBytes) {
+        epochBytes += readBytes;
+
+        if (++epochReads >= EPOCH_READS) {
+            final long nowNs = System.nanoTime();
+            final long elapsedNs = nowNs - epochStartedNs;
+
+            if (elapsedNs > 0) {
+                final long horizonBytes = epochBytes * HORIZON_NS / elapsedNs;
+                final long buffers = (horizonBytes + bufferSize - 1) / bufferSize;
+
+                limit = (int) Math.max(minBuffers, Math.min(maxBuffers, buffers));
+            }
+
+            epochBytes = 0;
+            epochReads = 0;
+            epochStartedNs = nowNs;
+        }
+    }
+}
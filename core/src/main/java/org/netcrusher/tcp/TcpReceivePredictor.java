@@ -0,0 +1,83 @@
+package org.netcrusher.tcp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Predicts how many buffers the next read will fill by sizes of recent reads, so a read doesn't pass
+ * all free buffers of the queue to the kernel when only a few bytes arrive. The guess jumps up as soon as a read
+ * fills it completely and goes down only after two short reads in a row.
+ */
+final class TcpReceivePredictor {
+
+    private static final int INDEX_INCREMENT = 2;
+
+    private static final int INDEX_DECREMENT = 1;
+
+    private final int[] sizeTable;
+
+    private final int bufferSize;
+
+    private int index;
+
+    private boolean decreaseNow;
+
+    TcpReceivePredictor(int maxBuffers, int bufferSize) {
+        this.sizeTable = createSizeTable(maxBuffers);
+        this.bufferSize = bufferSize;
+        this.index = 0;
+        this.decreaseNow = false;
+    }
+
+    /**
+     * How many buffers should be passed to the next read
+     * @return Buffer count
+     */
+    int predictBuffers() {
+        return sizeTable[index];
+    }
+
+    /**
+     * Record the result of the read
+     * @param requestedBytes How many bytes the passed buffers could take
+     * @param readBytes How many bytes have been read
+     */
+    void record(long requestedBytes, long readBytes) {
+        if (readBytes >= requestedBytes) {
+            index = Math.min(index + INDEX_INCREMENT, sizeTable.length - 1);
+            decreaseNow = false;
+        } else if (readBytes <= (long) sizeTable[Math.max(0, index - INDEX_DECREMENT)] * bufferSize
+            && index > 0)
+        {
+            if (decreaseNow) {
+                index = Math.max(index - INDEX_DECREMENT, 0);
+                decreaseNow = false;
+            } else {
+                decreaseNow = true;
+            }
+        } else {
+            decreaseNow = false;
+        }
+    }
+
+    private static int[] createSizeTable(int maxBuffers) {
+        // steps of 1.5x and 1.33x in turn: 1, 2, 3, 4, 6, 8, 12, 16, ...
+        final List<Integer> sizes = new ArrayList<>();
+        for (int size = 1; size < maxBuffers; size <<= 1) {
+            sizes.add(size);
+
+            final int middle = size + size / 2;
+            if (middle > size && middle < maxBuffers) {
+                sizes.add(middle);
+            }
+        }
+        sizes.add(maxBuffers);
+
+        final int[] table = new int[sizes.size()];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = sizes.get(i);
+        }
+
+        return table;
+    }
+}
@@ -0,0 +1,401 @@
+package org.netcrusher.tcp;
+
+import org.netcrusher.core.buffer.BufferAllocator;
+import org.netcrusher.core.filter.TransformFilter;
+import org.netcrusher.core.throttle.PacingThrottler;
+import org.netcrusher.core.throttle.Throttler;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Queue backed by one contiguous ring of bytes. A read scatters into the free space and a write gathers the data
+ * so a wrap-around costs two segments at most, and the filter sees all fresh data at once instead of buffer-sized
+ * fragments. The ring is borrowed from the pool on a read and returned as soon as the queue is empty again.
+ */
+class TcpRingQueue implements TcpQueue {
+
+    private static final int MAX_SEGMENTS = 2;
+
+    private final BufferAllocator allocator;
+
+    private final TransformFilter filter;
+
+    private final Throttler throttler;
+
+    private final PacingThrottler pacer;
+
+    private final int capacity;
+
+    private final ByteBuffer[] readableArray;
+
+    private final int[] readableStarts;
+
+    private final TcpQueueBuffers readableBuffers;
+
+    private final ByteBuffer[] writableArray;
+
+    private final int[] writableStarts;
+
+    private final TcpQueueBuffers writableBuffers;
+
+    private final long[] markStartPositions;
+
+    private final long[] markDeadlinesNs;
+
+    private ByteBuffer ring;
+
+    private ByteBuffer throttleView;
+
+    private long sentPosition;
+
+    private long filteredPosition;
+
+    private long receivedPosition;
+
+    private int markHead;
+
+    private int markCount;
+
+    TcpRingQueue(
+            int maxMarks,
+            BufferAllocator allocator,
+            TransformFilter filter,
+            Throttler throttler)
+    {
+        this.allocator = allocator;
+        this.filter = filter;
+        this.capacity = allocator.getSize();
+
+        // a pacing throttler meters the output when it is sent instead of delaying whole ranges
+        this.pacer = throttler instanceof PacingThrottler ? (PacingThrottler) throttler : null;
+        this.throttler = pacer == null ? throttler : null;
+
+        this.readableArray = new ByteBuffer[MAX_SEGMENTS];
+        this.readableStarts = new int[MAX_SEGMENTS];
+        this.readableBuffers = new TcpQueueBuffers(readableArray);
+
+        this.writableArray = new ByteBuffer[MAX_SEGMENTS];
+        this.writableStarts = new int[MAX_SEGMENTS];
+        this.writableBuffers = new TcpQueueBuffers(writableArray);
+
+        // throttled ranges of the ring wait for their deadlines, the marks are merged if there are too many
+        this.markStartPositions = new long[maxMarks];
+        this.markDeadlinesNs = new long[maxMarks];
+
+        this.ring = null;
+    }
+
+    @Override
+    public void reset() {
+        releaseBuffers();
+    }
+
+    @Override
+    public void close() {
+        releaseBuffers();
+
+        if (throttler != null) {
+            throttler.release();
+        } else if (pacer != null) {
+            pacer.release();
+        }
+    }
+
+    @Override
+    public void releaseBuffers() {
+        if (ring != null) {
+            allocator.release(ring);
+
+            ring = null;
+            throttleView = null;
+
+            for (int i = 0; i < MAX_SEGMENTS; i++) {
+                readableArray[i] = null;
+                writableArray[i] = null;
+            }
+        }
+
+        sentPosition = 0;
+        filteredPosition = 0;
+        receivedPosition = 0;
+
+        markHead = 0;
+        markCount = 0;
+    }
+
+    @Override
+    public boolean hasReadable() {
+        return receivedPosition > sentPosition;
+    }
+
+    @Override
+    public long calculateReadableBytes() {
+        return receivedPosition - sentPosition;
+    }
+
+    @Override
+    public TcpQueueBuffers requestReadableBuffers() {
+        if (receivedPosition == sentPosition) {
+            return readableBuffers.set(0, 0, 0);
+        }
+
+        filterReceived();
+
+        long limitPosition = filteredPosition;
+        long delayNs = 0;
+
+        if (markCount > 0) {
+            final long nowNs = System.nanoTime();
+            while (markCount > 0) {
+                final long markDelayNs = markDeadlinesNs[markHead] - nowNs;
+                if (markDelayNs > 0) {
+                    limitPosition = markStartPositions[markHead];
+                    delayNs = markDelayNs;
+                    break;
+                }
+
+                markHead = nextMark(markHead);
+                markCount--;
+            }
+        }
+
+        long length = limitPosition - sentPosition;
+        if (length == 0) {
+            return readableBuffers.set(0, 0, delayNs);
+        }
+
+        if (pacer != null) {
+            final long allowed = pacer.calculateAllowedBytes(length);
+            if (allowed == 0) {
+                return readableBuffers.set(0, 0, pacer.calculateWaitNs(length));
+            }
+
+            length = Math.min(length, allowed);
+        }
+
+        final int count = prepareSegments(readableArray, readableStarts, sentPosition, length);
+
+        return readableBuffers.set(0, count, 0);
+    }
+
+    @Override
+    public void releaseReadableBuffers() {
+        final long sent = collectSegments(readableArray, readableStarts, readableBuffers.getCount());
+        readableBuffers.set(0, 0, 0);
+
+        if (pacer != null && sent > 0) {
+            pacer.consume(sent);
+        }
+
+        sentPosition += sent;
+
+        detachIfEmpty();
+    }
+
+    @Override
+    public boolean hasWritable() {
+        return receivedPosition - sentPosition < capacity;
+    }
+
+    @Override
+    public long calculateWritableBytes() {
+        return capacity - (receivedPosition - sentPosition);
+    }
+
+    @Override
+    public TcpQueueBuffers requestWritableBuffers() {
+        if (ring == null) {
+            attach();
+        }
+
+        final long length = capacity - (receivedPosition - sentPosition);
+        if (length == 0) {
+            return writableBuffers.set(0, 0, 0);
+        }
+
+        final int count = prepareSegments(writableArray, writableStarts, receivedPosition, length);
+
+        return writableBuffers.set(0, count, 0);
+    }
+
+    @Override
+    public void releaseWritableBuffers() {
+        receivedPosition += collectSegments(writableArray, writableStarts, writableBuffers.getCount());
+        writableBuffers.set(0, 0, 0);
+
+        detachIfEmpty();
+    }
+
+    private void attach() {
+        // the only buffer of the queue is always given so the quota can't stall the connection
+        ring = allocator.allocate(true);
+        ring.clear();
+
+        throttleView = ring.duplicate();
+
+        for (int i = 0; i < MAX_SEGMENTS; i++) {
+            readableArray[i] = ring.duplicate();
+            writableArray[i] = ring.duplicate();
+        }
+    }
+
+    private void detachIfEmpty() {
+        // an idle queue holds no memory and the next read gets the rewound ring as the only segment
+        if (sentPosition == receivedPosition && markCount == 0) {
+            releaseBuffers();
+        }
+    }
+
+    private void filterReceived() {
+        if (filter == null && throttler == null) {
+            filteredPosition = receivedPosition;
+            return;
+        }
+
+        while (filteredPosition < receivedPosition) {
+            final int index = index(filteredPosition);
+            final int length = (int) Math.min(receivedPosition - filteredPosition, capacity - index);
+
+            final int produced = filterSegment(index, length, calculateSpare(index, length));
+            if (produced < length) {
+                shrink(filteredPosition + produced, length - produced);
+            } else if (produced > length) {
+                receivedPosition += produced - length;
+            }
+
+            schedule(index, produced);
+
+            filteredPosition += produced;
+        }
+    }
+
+    private int calculateSpare(int index, int length) {
+        // only the last segment is followed by free space the filter could grow the data into
+        if (filteredPosition + length < receivedPosition) {
+            return 0;
+        }
+
+        return (int) Math.min(capacity - index - length, capacity - (receivedPosition - sentPosition));
+    }
+
+    private int filterSegment(int index, int length, int spare) {
+        if (filter == null) {
+            return length;
+        }
+
+        ByteBuffer view = ring.duplicate();
+        view.limit(index + length + spare);
+        view.position(index);
+
+        // the filter expects the data to start at position 0
+        ByteBuffer bb = view.slice();
+        bb.limit(length);
+        filter.transform(bb);
+
+        final int produced = bb.remaining();
+        if (produced > 0 && bb.position() > 0) {
+            bb.compact();
+        }
+
+        return produced;
+    }
+
+    private void shrink(long holePosition, int holeLength) {
+        // the filter has dropped some bytes so the data behind the segment moves back to close the hole,
+        // each copy stops where either range wraps around the end of the ring
+        long position = holePosition + holeLength;
+        while (position < receivedPosition) {
+            final int sourceIndex = index(position);
+            final int targetIndex = index(position - holeLength);
+            final int length = (int) Math.min(receivedPosition - position,
+                Math.min(capacity - sourceIndex, capacity - targetIndex));
+
+            final ByteBuffer source = ring.duplicate();
+            source.limit(sourceIndex + length);
+            source.position(sourceIndex);
+
+            final ByteBuffer target = ring.duplicate();
+            target.position(targetIndex);
+            target.put(source);
+
+            position += length;
+        }
+
+        receivedPosition -= holeLength;
+    }
+
+    private void schedule(int index, int length) {
+        if (throttler == null || length == 0) {
+            return;
+        }
+
+        throttleView.limit(index + length);
+        throttleView.position(index);
+
+        final long delayNs = throttler.calculateDelayNs(throttleView);
+        if (delayNs > 0) {
+            addMark(filteredPosition, System.nanoTime() + delayNs);
+        }
+    }
+
+    private void addMark(long startPosition, long deadlineNs) {
+        if (markCount == markDeadlinesNs.length) {
+            // the last mark is extended to hold the new range as well
+            final int lastMark = index(markHead + markCount - 1, markDeadlinesNs.length);
+
+            markDeadlinesNs[lastMark] = Math.max(markDeadlinesNs[lastMark], deadlineNs);
+        } else {
+            final int mark = index(markHead + markCount, markDeadlinesNs.length);
+
+            markStartPositions[mark] = startPosition;
+            markDeadlinesNs[mark] = deadlineNs;
+
+            markCount++;
+        }
+    }
+
+    private int nextMark(int mark) {
+        return index(mark + 1, markDeadlinesNs.length);
+    }
+
+    private int prepareSegments(ByteBuffer[] segments, int[] starts, long position, long length) {
+        final int index = index(position);
+        final int firstLength = (int) Math.min(length, capacity - index);
+
+        prepareSegment(segments[0], index, firstLength);
+        starts[0] = index;
+
+        if (firstLength < length) {
+            prepareSegment(segments[1], 0, (int) (length - firstLength));
+            starts[1] = 0;
+            return 2;
+        } else {
+            return 1;
+        }
+    }
+
+    private static void prepareSegment(ByteBuffer segment, int index, int length) {
+        segment.clear();
+        segment.position(index);
+        segment.limit(index + length);
+    }
+
+    private static long collectSegments(ByteBuffer[] segments, int[] starts, int count) {
+        long transferred = 0;
+
+        for (int i = 0; i < count; i++) {
+            transferred += segments[i].position() - starts[i];
+        }
+
+        return transferred;
+    }
+
+    private int index(long position) {
+        return (int) (position % capacity);
+    }
+
+    private static int index(int position, int length) {
+        return position < length ? position : position - length;
+    }
+
+}
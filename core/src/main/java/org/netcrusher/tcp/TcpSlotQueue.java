@@ -0,0 +1,443 @@
+package org.netcrusher.tcp;
+
+import org.netcrusher.core.buffer.BufferAllocator;
+import org.netcrusher.core.filter.TransformFilter;
+import org.netcrusher.core.throttle.PacingThrottler;
+import org.netcrusher.core.throttle.Throttler;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed ring of buffer slots. Readable slots (filled and waiting to be sent) start at the head and are followed
+ * by writable slots (waiting to be filled), so moving a slot between the queues is just an index shift.
+ */
+class TcpSlotQueue implements TcpQueue {
+
+    private static final long READY_NS = Long.MIN_VALUE;
+
+    private final ByteBuffer[] slotBuffers;
+
+    private final long[] slotDeadlinesNs;
+
+    private final ByteBuffer[] bufferArray;
+
+    private final TcpQueueBuffers queueBuffers;
+
+    private final int capacity;
+
+    private final BufferAllocator allocator;
+
+    private final TransformFilter filter;
+
+    private final Throttler throttler;
+
+    private final PacingThrottler pacer;
+
+    private int head;
+
+    private int readableCount;
+
+    private int attachedCount;
+
+    private final TcpReceivePredictor receivePredictor;
+
+    private final TcpQueueCapacity queueCapacity;
+
+    private int requestedCount;
+
+    private long requestedBytes;
+
+    private int pacedCount;
+
+    private long pacedBytes;
+
+    private ByteBuffer pacedBuffer;
+
+    private int pacedLimit;
+
+    TcpSlotQueue(
+            int count,
+            BufferAllocator allocator,
+            TransformFilter filter,
+            Throttler throttler)
+    {
+        // buffers are borrowed on demand so an idle queue doesn't hold any memory
+        this.slotBuffers = new ByteBuffer[count];
+        this.slotDeadlinesNs = new long[count];
+
+        this.bufferArray = new ByteBuffer[count];
+        this.queueBuffers = new TcpQueueBuffers(bufferArray);
+
+        this.capacity = count;
+        this.allocator = allocator;
+        this.filter = filter;
+
+        // a pacing throttler meters the output when it is sent instead of delaying whole buffers
+        this.pacer = throttler instanceof PacingThrottler ? (PacingThrottler) throttler : null;
+        this.throttler = pacer == null ? throttler : null;
+
+        this.head = 0;
+        this.readableCount = 0;
+        this.attachedCount = 0;
+        this.receivePredictor = new TcpReceivePredictor(count, allocator.getSize());
+        this.queueCapacity = new TcpQueueCapacity(count, allocator.getSize());
+        this.requestedCount = 0;
+        this.requestedBytes = 0;
+    }
+
+    @Override
+    public void reset() {
+        readableCount = 0;
+        releaseBuffers();
+    }
+
+    @Override
+    public void close() {
+        releaseBuffers();
+
+        if (throttler != null) {
+            throttler.release();
+        } else if (pacer != null) {
+            pacer.release();
+        }
+    }
+
+    @Override
+    public void releaseBuffers() {
+        pacedCount = 0;
+        pacedBytes = 0;
+        pacedBuffer = null;
+
+        for (int slot = 0; slot < capacity; slot++) {
+            detach(slot);
+        }
+    }
+
+    @Override
+    public boolean hasReadable() {
+        if (readableCount > 0) {
+            if (slotBuffers[head].hasRemaining()) {
+                return true;
+            } else {
+                throw new IllegalStateException("Illegal queue state. Possibly no release() call after request()");
+            }
+        }
+
+        ByteBuffer writableHead = slotBuffers[writableHead()];
+        return writableHead != null && writableHead.position() > 0;
+    }
+
+    @Override
+    public long calculateReadableBytes() {
+        long size = 0;
+
+        for (int i = 0; i < readableCount; i++) {
+            size += slotBuffers[slot(head, i)].remaining();
+        }
+
+        if (readableCount < capacity) {
+            ByteBuffer writableHead = slotBuffers[writableHead()];
+            if (writableHead != null) {
+                size += writableHead.position();
+            }
+        }
+
+        return size;
+    }
+
+    @Override
+    public TcpQueueBuffers requestReadableBuffers() {
+        if (readableCount < capacity) {
+            ByteBuffer bufferToSteal = slotBuffers[writableHead()];
+            if (bufferToSteal != null && bufferToSteal.position() > 0) {
+                freeWritableBuffer();
+            }
+        }
+
+        final int size = readableCount;
+        if (size == 0) {
+            return queueBuffers.set(0, 0, 0);
+        }
+
+        // the clock is read only when there is a throttled buffer in the queue
+        long nowNs = 0;
+        boolean nowKnown = false;
+
+        for (int i = 0; i < size; i++) {
+            final int slot = slot(head, i);
+
+            final long deadlineNs = slotDeadlinesNs[slot];
+            if (deadlineNs != READY_NS) {
+                if (!nowKnown) {
+                    nowNs = System.nanoTime();
+                    nowKnown = true;
+                }
+
+                long delayNs = deadlineNs - nowNs;
+                if (delayNs > 0) {
+                    return queueBuffers.set(0, i, delayNs);
+                } else {
+                    slotDeadlinesNs[slot] = READY_NS;
+                }
+            }
+
+            bufferArray[i] = slotBuffers[slot];
+        }
+
+        if (pacer != null) {
+            return pace(size);
+        }
+
+        return queueBuffers.set(0, size, 0);
+    }
+
+    private TcpQueueBuffers pace(int size) {
+        long pending = 0;
+        for (int i = 0; i < size; i++) {
+            pending += bufferArray[i].remaining();
+        }
+
+        long allowed = pacer.calculateAllowedBytes(pending);
+        if (allowed == 0) {
+            return queueBuffers.set(0, 0, pacer.calculateWaitNs(pending));
+        }
+
+        int count = 0;
+        long bytes = 0;
+        while (count < size && allowed > 0) {
+            final ByteBuffer bb = bufferArray[count++];
+
+            final int remaining = bb.remaining();
+            if (remaining > allowed) {
+                // only a slice of the buffer is passed, the limit is restored on release
+                pacedBuffer = bb;
+                pacedLimit = bb.limit();
+                bb.limit(bb.position() + (int) allowed);
+            }
+
+            final long slice = Math.min(remaining, allowed);
+            bytes += slice;
+            allowed -= slice;
+        }
+
+        pacedCount = count;
+        pacedBytes = bytes;
+
+        return queueBuffers.set(0, count, 0);
+    }
+
+    private void releasePaced() {
+        long remaining = 0;
+        for (int i = 0; i < pacedCount; i++) {
+            remaining += bufferArray[i].remaining();
+        }
+
+        pacer.consume(pacedBytes - remaining);
+
+        if (pacedBuffer != null) {
+            pacedBuffer.limit(pacedLimit);
+            pacedBuffer = null;
+        }
+
+        pacedCount = 0;
+        pacedBytes = 0;
+    }
+
+    @Override
+    public void releaseReadableBuffers() {
+        if (pacedCount > 0) {
+            releasePaced();
+        }
+
+        while (readableCount > 0 && !slotBuffers[head].hasRemaining()) {
+            // the sent buffer goes back to the pool and the slot becomes the tail of the writable part
+            detach(head);
+            head = slot(head, 1);
+            readableCount--;
+        }
+    }
+
+    @Override
+    public boolean hasWritable() {
+        if (calculateWritableSlots() > 0) {
+            ByteBuffer writableHead = slotBuffers[writableHead()];
+            if (writableHead == null || writableHead.hasRemaining()) {
+                return true;
+            } else {
+                throw new IllegalStateException("Illegal queue state. Possibly no release() call after request()");
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public long calculateWritableBytes() {
+        long size = 0;
+
+        final int writableHead = writableHead();
+        for (int i = 0, count = calculateWritableSlots(); i < count; i++) {
+            ByteBuffer bb = slotBuffers[slot(writableHead, i)];
+            if (bb != null) {
+                size += bb.remaining();
+            } else {
+                size += allocator.getSize();
+            }
+        }
+
+        return size;
+    }
+
+    @Override
+    public TcpQueueBuffers requestWritableBuffers() {
+        // the iovec is capped by the predicted read size so a small read doesn't pass all the buffers
+        final int limit = Math.min(calculateWritableSlots(), receivePredictor.predictBuffers());
+        final int writableHead = writableHead();
+
+        int count = 0;
+        long bytes = 0;
+        while (count < limit) {
+            final int slot = slot(writableHead, count);
+            if (slotBuffers[slot] == null && !attach(slot)) {
+                break;
+            }
+
+            bytes += slotBuffers[slot].remaining();
+            bufferArray[count++] = slotBuffers[slot];
+        }
+
+        requestedCount = count;
+        requestedBytes = bytes;
+
+        return queueBuffers.set(0, count, 0);
+    }
+
+    @Override
+    public void releaseWritableBuffers() {
+        recordRead();
+
+        while (readableCount < capacity) {
+            ByteBuffer bb = slotBuffers[writableHead()];
+            if (bb == null || bb.hasRemaining()) {
+                break;
+            } else {
+                freeWritableBuffer();
+            }
+        }
+
+        // only the head could be partially filled, other buffers which got no data go back to the pool
+        final int writableHead = writableHead();
+        for (int i = 0, count = capacity - readableCount; i < count; i++) {
+            final int slot = slot(writableHead, i);
+
+            ByteBuffer bb = slotBuffers[slot];
+            if (bb == null) {
+                break;
+            }
+
+            if (bb.position() == 0) {
+                detach(slot);
+            }
+        }
+    }
+
+    private void recordRead() {
+        final int requested = requestedCount;
+        if (requested == 0) {
+            return;
+        }
+
+        long remaining = 0;
+        for (int i = 0; i < requested; i++) {
+            remaining += bufferArray[i].remaining();
+        }
+
+        final long read = requestedBytes - remaining;
+
+        receivePredictor.record(requestedBytes, read);
+        queueCapacity.record(read);
+
+        requestedCount = 0;
+        requestedBytes = 0;
+    }
+
+    private int calculateWritableSlots() {
+        // slots over the capacity limit stay unused until the throughput grows
+        return Math.max(0, Math.min(capacity, queueCapacity.getLimit()) - readableCount);
+    }
+
+    private void freeWritableBuffer() {
+        final int slot = writableHead();
+
+        ByteBuffer bb = slotBuffers[slot];
+        bb.flip();
+
+        if (filter != null) {
+            filter.transform(bb);
+        }
+
+        if (bb.hasRemaining()) {
+            final long delayNs;
+            if (throttler != null) {
+                delayNs = throttler.calculateDelayNs(bb);
+            } else {
+                delayNs = Throttler.NO_DELAY_NS;
+            }
+
+            if (delayNs > 0) {
+                slotDeadlinesNs[slot] = System.nanoTime() + delayNs;
+            } else {
+                slotDeadlinesNs[slot] = READY_NS;
+            }
+
+            readableCount++;
+        } else {
+            detach(slot);
+            rotateWritableHead();
+        }
+    }
+
+    private void rotateWritableHead() {
+        // the emptied slot moves behind the other writable slots which may already hold data
+        final int writableHead = writableHead();
+        final int count = capacity - readableCount;
+
+        ByteBuffer emptied = slotBuffers[writableHead];
+        for (int i = 0; i < count - 1; i++) {
+            slotBuffers[slot(writableHead, i)] = slotBuffers[slot(writableHead, i + 1)];
+        }
+        slotBuffers[slot(writableHead, count - 1)] = emptied;
+    }
+
+    private boolean attach(int slot) {
+        // a queue without buffers always gets one so the quota can't stall the connection
+        ByteBuffer bb = allocator.allocate(attachedCount == 0);
+        if (bb != null) {
+            slotBuffers[slot] = bb;
+            slotDeadlinesNs[slot] = READY_NS;
+            attachedCount++;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    private void detach(int slot) {
+        ByteBuffer bb = slotBuffers[slot];
+        if (bb != null) {
+            slotBuffers[slot] = null;
+            allocator.release(bb);
+            attachedCount--;
+        }
+    }
+
+    private int writableHead() {
+        return slot(head, readableCount);
+    }
+
+    private int slot(int from, int offset) {
+        final int slot = from + offset;
+        return slot < capacity ? slot : slot - capacity;
+    }
+
+}
@@ -0,0 +1,308 @@
+package org.netcrusher.tcp;
+
+import org.netcrusher.core.nio.NioUtils;
+import org.netcrusher.core.reactor.NioSelector;
+import org.netcrusher.core.reactor.NioSelectorTimer;
+import org.netcrusher.core.upstream.Upstream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.UnresolvedAddressException;
+import java.nio.channels.UnsupportedAddressTypeException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Warm pool of upstream connections owned by an acceptor. The pool is refilled on the acceptor's selector loop
+ * in background and connections idle longer than the timeout are closed. Pooled connections are watched
+ * for reads so a connection closed by the upstream is replaced at once, and bytes the upstream sends first
+ * are kept to be passed to the client. All methods but counters should be called from the acceptor's
+ * selector loop.
+ */
+class TcpUpstreamPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TcpUpstreamPool.class);
+
+    private static final long RETRY_DELAY_MS = 1000;
+
+    private static final int PREFETCH_SIZE = 4096;
+
+    private final NioSelector selector;
+
+    private final Upstream upstream;
+
+    private final InetSocketAddress connectAddress;
+
+    private final TcpCrusherSocketOptions socketOptions;
+
+    private final int size;
+
+    private final long idleTimeoutNs;
+
+    private final Deque<Connection> ready;
+
+    private final Set<SocketChannel> connecting;
+
+    private final NioSelectorTimer expireTimer;
+
+    private final NioSelectorTimer refillTimer;
+
+    private final AtomicLong hitCount;
+
+    private final AtomicLong missCount;
+
+    private boolean open;
+
+    TcpUpstreamPool(
+        NioSelector selector,
+        Upstream upstream,
+        TcpCrusherSocketOptions socketOptions)
+    {
+        this.selector = selector;
+        this.upstream = upstream;
+        this.connectAddress = upstream.getAddress();
+        this.socketOptions = socketOptions;
+        this.size = socketOptions.getUpstreamPoolSize();
+        this.idleTimeoutNs = TimeUnit.MILLISECONDS.toNanos(socketOptions.getUpstreamPoolIdleMs());
+
+        this.ready = new ArrayDeque<>(size);
+        this.connecting = new HashSet<>(size);
+
+        this.expireTimer = selector.createTimer(this::expire);
+        this.refillTimer = selector.createTimer(this::refill);
+
+        this.hitCount = new AtomicLong(0);
+        this.missCount = new AtomicLong(0);
+
+        this.open = true;
+    }
+
+    void close() {
+        open = false;
+
+        expireTimer.cancel();
+        refillTimer.cancel();
+
+        for (Connection connection : ready) {
+            NioUtils.closeNoLinger(connection.channel);
+        }
+        ready.clear();
+
+        for (SocketChannel channel : connecting) {
+            NioUtils.closeNoLinger(channel);
+        }
+        connecting.clear();
+    }
+
+    /**
+     * Take the most recently connected upstream socket and start a new connection instead of it
+     * @param pairSelector Selector loop the socket is going to be registered on
+     * @return Connection or null if the pool is empty
+     */
+    Connection take(NioSelector pairSelector) {
+        final Connection connection = ready.pollLast();
+        if (connection == null) {
+            missCount.incrementAndGet();
+            refill();
+            return null;
+        }
+
+        // the socket leaves the acceptor's loop if the pair is placed on another one
+        if (pairSelector != selector) {
+            connection.selectionKey.cancel();
+        } else {
+            connection.selectionKey.interestOps(0);
+        }
+
+        hitCount.incrementAndGet();
+        refill();
+
+        return connection;
+    }
+
+    void refill() {
+        while (open && ready.size() + connecting.size() < size && !refillTimer.isScheduled()) {
+            try {
+                connect();
+            } catch (IOException | UnresolvedAddressException | UnsupportedAddressTypeException e) {
+                LOGGER.warn("Fail to open pooled connection to <{}>", connectAddress, e);
+                retry();
+            }
+        }
+    }
+
+    private void retry() {
+        refillTimer.schedule(TimeUnit.MILLISECONDS.toNanos(RETRY_DELAY_MS));
+    }
+
+    private void connect() throws IOException {
+        final SocketChannel channel = selector.getProvider().openSocketChannel();
+        try {
+            channel.configureBlocking(false);
+            socketOptions.setupSocketChannel(channel);
+
+            if (channel.connect(connectAddress)) {
+                append(channel);
+            } else {
+                connecting.add(channel);
+                connectDeferred(channel);
+            }
+        } catch (IOException | RuntimeException e) {
+            connecting.remove(channel);
+            NioUtils.closeNoLinger(channel);
+            throw e;
+        }
+    }
+
+    private void connectDeferred(SocketChannel channel) throws IOException {
+        final NioSelectorTimer connectionTimer = selector.createTimer(() -> {
+            if (connecting.remove(channel)) {
+                LOGGER.warn("Fail to open pooled connection to <{}> in {}ms",
+                    connectAddress, socketOptions.getConnectionTimeoutMs());
+
+                NioUtils.closeNoLinger(channel);
+                retry();
+            }
+        });
+
+        if (socketOptions.getConnectionTimeoutMs() > 0) {
+            connectionTimer.schedule(TimeUnit.MILLISECONDS.toNanos(socketOptions.getConnectionTimeoutMs()));
+        }
+
+        selector.register(channel, SelectionKey.OP_CONNECT, (selectionKey) -> {
+            connectionTimer.cancel();
+
+            if (!connecting.remove(channel)) {
+                return;
+            }
+
+            boolean connected;
+            try {
+                connected = channel.finishConnect();
+            } catch (IOException e) {
+                LOGGER.debug("Exception while finishing pooled connection to <{}>", connectAddress, e);
+                connected = false;
+            }
+
+            if (connected) {
+                append(channel);
+            } else {
+                LOGGER.warn("Fail to finish pooled connection to <{}>", connectAddress);
+                NioUtils.closeNoLinger(channel);
+                retry();
+            }
+        });
+    }
+
+    private void append(SocketChannel channel) {
+        final Connection connection = new Connection(channel, System.nanoTime());
+        connection.selectionKey = selector.register(channel, SelectionKey.OP_READ, (key) -> check(connection));
+
+        ready.addLast(connection);
+
+        if (idleTimeoutNs > 0 && !expireTimer.isScheduled()) {
+            expireTimer.schedule(idleTimeoutNs);
+        }
+    }
+
+    private void check(Connection connection) {
+        if (!ready.contains(connection)) {
+            return;
+        }
+
+        if (connection.prefetched == null) {
+            connection.prefetched = ByteBuffer.allocate(PREFETCH_SIZE);
+        }
+
+        int read;
+        try {
+            read = connection.channel.read(connection.prefetched);
+        } catch (IOException e) {
+            LOGGER.debug("Exception on pooled connection to <{}>", connectAddress, e);
+            read = -1;
+        }
+
+        if (read < 0) {
+            LOGGER.debug("Pooled connection to <{}> is closed by upstream", connectAddress);
+
+            ready.remove(connection);
+            NioUtils.closeNoLinger(connection.channel);
+            refill();
+        } else if (!connection.prefetched.hasRemaining()) {
+            // the rest stays in the socket till a client takes the connection
+            connection.selectionKey.interestOps(0);
+        }
+    }
+
+    private void expire() {
+        final long nowNs = System.nanoTime();
+
+        Connection connection;
+        while ((connection = ready.peekFirst()) != null) {
+            final long idleNs = nowNs - connection.connectedNs;
+            if (idleNs < idleTimeoutNs) {
+                expireTimer.schedule(idleTimeoutNs - idleNs);
+                break;
+            }
+
+            ready.pollFirst();
+            NioUtils.closeNoLinger(connection.channel);
+        }
+
+        refill();
+    }
+
+    Upstream getUpstream() {
+        return upstream;
+    }
+
+    long getHitCount() {
+        return hitCount.get();
+    }
+
+    long getMissCount() {
+        return missCount.get();
+    }
+
+    static final class Connection {
+
+        private final SocketChannel channel;
+
+        private final long connectedNs;
+
+        private SelectionKey selectionKey;
+
+        private ByteBuffer prefetched;
+
+        private Connection(SocketChannel channel, long connectedNs) {
+            this.channel = channel;
+            this.connectedNs = connectedNs;
+        }
+
+        SocketChannel getChannel() {
+            return channel;
+        }
+
+        /**
+         * Get bytes the upstream has sent while the connection was pooled
+         * @return Flipped buffer or null if nothing is sent
+         */
+        ByteBuffer getPrefetched() {
+            if (prefetched == null || prefetched.position() == 0) {
+                return null;
+            }
+
+            prefetched.flip();
+            return prefetched;
+        }
+    }
+}
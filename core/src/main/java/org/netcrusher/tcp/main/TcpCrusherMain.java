@@ -3,6 +3,8 @@ package org.netcrusher.tcp.main;
 import org.netcrusher.NetFreezer;
 import org.netcrusher.core.filter.LoggingFilter;
 import org.netcrusher.core.main.AbstractCrusherMain;
+import org.netcrusher.core.meter.LatencyMeter;
+import org.netcrusher.core.meter.RateMeter;
 import org.netcrusher.core.meter.RateMeters;
 import org.netcrusher.core.reactor.NioReactor;
 import org.netcrusher.core.throttle.rate.ByteRateThrottler;
@@ -40,8 +42,17 @@ public class TcpCrusherMain extends AbstractCrusherMain<TcpCrusher> {
 
         withIntProperty("crusher.buffer.count", builder::withBufferCount);
         withIntProperty("crusher.buffer.size", builder::withBufferSize);
+        withBoolProperty("crusher.buffer.contiguous", builder::withBufferContiguous);
+        withBoolProperty("crusher.passthrough", builder::withPassThrough);
 
         withIntProperty("crusher.socket.backlog", builder::withBacklog);
+        withIntProperty("crusher.socket.reuseport.shards", builder::withReusePortShards);
+        withIntProperty("crusher.accept.batch", builder::withAcceptBatch);
+        withIntProperty("crusher.accept.rate", builder::withAcceptRate);
+        withIntProperty("crusher.accept.burst", builder::withAcceptBurst);
+        withIntProperty("crusher.pairs.max", builder::withMaxPairs);
+        withIntProperty("crusher.upstream.pool.size", builder::withUpstreamPoolSize);
+        withLongProperty("crusher.upstream.pool.idle", builder::withUpstreamPoolIdleMs);
         withLongProperty("crusher.socket.conn.timeout", builder::withConnectionTimeoutMs);
         withIntProperty("crusher.socket.rcvbuf.size", builder::withRcvBufferSize);
         withIntProperty("crusher.socket.sndbuf.size", builder::withSndBufferSize);
@@ -63,6 +74,21 @@ public class TcpCrusherMain extends AbstractCrusherMain<TcpCrusher> {
         return builder.buildAndOpen();
     }
 
+    @Override
+    protected void status(TcpCrusher crusher) {
+        super.status(crusher);
+
+        RateMeter acceptMeter = crusher.getAcceptMeter();
+        if (acceptMeter != null) {
+            LOGGER.info("Accepted connections: {}", acceptMeter.getTotal());
+        }
+
+        LatencyMeter acceptLatencyMeter = crusher.getAcceptLatencyMeter();
+        if (acceptLatencyMeter != null) {
+            LOGGER.info("Accept latency: {}", acceptLatencyMeter.getTotal());
+        }
+    }
+
     @Override
     protected void statusClient(TcpCrusher crusher, InetSocketAddress address) {
         RateMeters byteMeters = crusher.getClientByteMeters(address);
@@ -0,0 +1,84 @@
+package org.netcrusher.core.buffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+public class BufferPoolTest {
+
+    private static final int SIZE = 1024;
+
+    @Test
+    public void testReuse() throws Exception {
+        BufferPool pool = new BufferPool(SIZE * 4);
+
+        ByteBuffer bb1 = pool.borrow(SIZE, false);
+        ByteBuffer bb2 = pool.borrow(SIZE, false);
+        Assert.assertEquals(2, pool.getMissMeter().getTotalCount());
+        Assert.assertEquals(0, pool.getHitMeter().getTotalCount());
+        Assert.assertEquals(2 * SIZE, pool.getBorrowedBytes());
+
+        bb1.put((byte) 1);
+        pool.release(bb1);
+        Assert.assertEquals(SIZE, pool.getRetainedBytes());
+        Assert.assertEquals(SIZE, pool.getBorrowedBytes());
+
+        ByteBuffer bb3 = pool.borrow(SIZE, false);
+        Assert.assertSame(bb1, bb3);
+        Assert.assertEquals(0, bb3.position());
+        Assert.assertEquals(1, pool.getHitMeter().getTotalCount());
+
+        // buffers of another geometry are not mixed up
+        ByteBuffer bb4 = pool.borrow(SIZE, true);
+        Assert.assertNotSame(bb2, bb4);
+        Assert.assertTrue(bb4.isDirect());
+        Assert.assertEquals(3, pool.getMissMeter().getTotalCount());
+
+        pool.release(bb2);
+        pool.release(bb3);
+        pool.release(bb4);
+        Assert.assertEquals(0, pool.getBorrowedBytes());
+        Assert.assertEquals(3 * SIZE, pool.getRetainedBytes());
+    }
+
+    @Test
+    public void testRetentionLimit() throws Exception {
+        BufferPool pool = new BufferPool(SIZE);
+
+        ByteBuffer bb1 = pool.borrow(SIZE, false);
+        ByteBuffer bb2 = pool.borrow(SIZE, false);
+
+        pool.release(bb1);
+        pool.release(bb2);
+
+        Assert.assertEquals(SIZE, pool.getRetainedBytes());
+        Assert.assertEquals(0, pool.getBorrowedBytes());
+    }
+
+    @Test
+    public void testQuota() throws Exception {
+        BufferPool pool = new BufferPool(0);
+        BufferQuota quota = new BufferQuota(SIZE);
+
+        BufferOptions options = new BufferOptions();
+        options.setSize(SIZE);
+
+        BufferAllocator allocator = new BufferAllocator(pool, quota, options);
+
+        ByteBuffer bb1 = allocator.allocate(false);
+        Assert.assertNotNull(bb1);
+        Assert.assertNull(allocator.allocate(false));
+        Assert.assertEquals(1, quota.getDeniedMeter().getTotalCount());
+
+        // the limit is soft so a forced allocation passes
+        ByteBuffer bb2 = allocator.allocate(true);
+        Assert.assertNotNull(bb2);
+        Assert.assertEquals(2 * SIZE, quota.getUsedBytes());
+
+        allocator.release(bb1);
+        allocator.release(bb2);
+        Assert.assertEquals(0, quota.getUsedBytes());
+        Assert.assertNotNull(allocator.allocate(false));
+    }
+}
@@ -0,0 +1,43 @@
+package org.netcrusher.core.meter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class LatencyMeterImplTest {
+
+    @Test
+    public void test() throws Exception {
+        LatencyMeterImpl latencyMeter = new LatencyMeterImpl();
+
+        LatencyMeterPeriod empty = latencyMeter.getTotal();
+        Assert.assertEquals(0, empty.getCount());
+        Assert.assertEquals(Double.NaN, empty.getAverageNs(), 0.1);
+
+        latencyMeter.update(TimeUnit.MILLISECONDS.toNanos(1));
+        latencyMeter.update(TimeUnit.MILLISECONDS.toNanos(3));
+
+        Assert.assertEquals(2, latencyMeter.getTotalCount());
+
+        LatencyMeterPeriod total = latencyMeter.getTotal();
+        Assert.assertEquals(2, total.getCount());
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(1), total.getMinNs());
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(3), total.getMaxNs());
+        Assert.assertEquals(2.0, total.getAverage(TimeUnit.MILLISECONDS), 0.001);
+
+        LatencyMeterPeriod period = latencyMeter.getPeriod(true);
+        Assert.assertEquals(2, period.getCount());
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(3), period.getMaxNs());
+
+        latencyMeter.update(TimeUnit.MILLISECONDS.toNanos(5));
+
+        period = latencyMeter.getPeriod(false);
+        Assert.assertEquals(1, period.getCount());
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(5), period.getMinNs());
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(5), period.getMaxNs());
+
+        Assert.assertEquals(3, latencyMeter.getTotal().getCount());
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(1), latencyMeter.getTotal().getMinNs());
+    }
+}
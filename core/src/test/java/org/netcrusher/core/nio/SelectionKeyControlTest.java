@@ -0,0 +1,96 @@
+package org.netcrusher.core.nio;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+
+public class SelectionKeyControlTest {
+
+    private Selector selector;
+
+    private DatagramChannel channel;
+
+    private Counter counter;
+
+    private SelectionKeyControl control;
+
+    @Before
+    public void setUp() throws Exception {
+        selector = Selector.open();
+
+        channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+
+        counter = new Counter();
+        control = new SelectionKeyControl(channel.register(selector, 0), counter);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        NioUtils.close(channel);
+        selector.close();
+    }
+
+    @Test
+    public void testRedundantUpdatesAreSkipped() throws Exception {
+        control.enableReads();
+        control.enableReads();
+        control.setReadsOnly();
+
+        Assert.assertEquals(SelectionKey.OP_READ, control.getInterestOps());
+        Assert.assertEquals(1, counter.changed);
+        Assert.assertEquals(2, counter.skipped);
+
+        control.disableWrites();
+        control.enableWrites();
+        control.setAll();
+
+        Assert.assertEquals(SelectionKey.OP_READ | SelectionKey.OP_WRITE, control.getInterestOps());
+        Assert.assertEquals(2, counter.changed);
+        Assert.assertEquals(4, counter.skipped);
+
+        control.setNone();
+        control.disableReads();
+
+        Assert.assertEquals(0, control.getInterestOps());
+        Assert.assertEquals(3, counter.changed);
+        Assert.assertEquals(5, counter.skipped);
+    }
+
+    @Test
+    public void testCachedValueMatchesKey() throws Exception {
+        SelectionKey selectionKey = channel.keyFor(selector);
+
+        control.setAll();
+        Assert.assertEquals(selectionKey.interestOps(), control.getInterestOps());
+
+        control.disableReads();
+        Assert.assertEquals(SelectionKey.OP_WRITE, selectionKey.interestOps());
+        Assert.assertEquals(selectionKey.interestOps(), control.getInterestOps());
+
+        control.setNone();
+        Assert.assertEquals(0, selectionKey.interestOps());
+    }
+
+    private static final class Counter implements InterestOpsCounter {
+
+        private int changed;
+
+        private int skipped;
+
+        @Override
+        public void changed() {
+            changed++;
+        }
+
+        @Override
+        public void skipped() {
+            skipped++;
+        }
+    }
+}
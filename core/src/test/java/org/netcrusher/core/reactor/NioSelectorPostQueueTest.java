@@ -0,0 +1,89 @@
+package org.netcrusher.core.reactor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+
+public class NioSelectorPostQueueTest {
+
+    private static final int PRODUCER_COUNT = 4;
+
+    private static final int OPERATION_COUNT = 100_000;
+
+    @Test
+    public void testOrder() throws Exception {
+        NioSelectorPostQueue queue = new NioSelectorPostQueue();
+        Assert.assertNull(queue.poll());
+
+        List<Integer> polled = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final int value = i;
+            queue.offer(new NioSelectorPostOp<>(() -> polled.add(value)));
+        }
+
+        NioSelectorPostOp<?> postOperation;
+        while ((postOperation = queue.poll()) != null) {
+            postOperation.run();
+        }
+
+        Assert.assertEquals(3, polled.size());
+        Assert.assertEquals(0, polled.get(0).intValue());
+        Assert.assertEquals(2, polled.get(2).intValue());
+        Assert.assertNull(queue.poll());
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+        final NioSelectorPostQueue queue = new NioSelectorPostQueue();
+        final CyclicBarrier barrier = new CyclicBarrier(PRODUCER_COUNT);
+        final int[] lastValues = new int[PRODUCER_COUNT];
+
+        List<Thread> producers = new ArrayList<>(PRODUCER_COUNT);
+        for (int p = 0; p < PRODUCER_COUNT; p++) {
+            final int producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    barrier.await();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+
+                for (int i = 1; i <= OPERATION_COUNT; i++) {
+                    final int value = i;
+                    queue.offer(new NioSelectorPostOp<>(() -> {
+                        // operations of the same producer should come in order
+                        Assert.assertEquals(lastValues[producer] + 1, value);
+                        lastValues[producer] = value;
+                        return true;
+                    }));
+                }
+            });
+            thread.start();
+            producers.add(thread);
+        }
+
+        int polled = 0;
+        while (polled < PRODUCER_COUNT * OPERATION_COUNT) {
+            NioSelectorPostOp<?> postOperation = queue.poll();
+            if (postOperation != null) {
+                postOperation.run();
+                Assert.assertFalse(postOperation.getFuture().isCompletedExceptionally());
+                polled++;
+            } else {
+                Thread.yield();
+            }
+        }
+
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        Assert.assertNull(queue.poll());
+        for (int p = 0; p < PRODUCER_COUNT; p++) {
+            Assert.assertEquals(OPERATION_COUNT, lastValues[p]);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package org.netcrusher.core.reactor;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class NioTimingWheelTest {
+
+    private static final long START_NS = TimeUnit.SECONDS.toNanos(100);
+
+    private NioTimingWheel wheel;
+
+    private List<String> fired;
+
+    @Before
+    public void setUp() throws Exception {
+        wheel = new NioTimingWheel(null, START_NS);
+        fired = new ArrayList<>();
+    }
+
+    private NioSelectorTimer timer(String name) {
+        return new NioSelectorTimer(null, () -> fired.add(name), false);
+    }
+
+    private static long at(long ms) {
+        return START_NS + TimeUnit.MILLISECONDS.toNanos(ms);
+    }
+
+    @Test
+    public void testOrder() throws Exception {
+        wheel.schedule(timer("B"), START_NS, TimeUnit.MILLISECONDS.toNanos(20));
+        wheel.schedule(timer("A"), START_NS, TimeUnit.MILLISECONDS.toNanos(10));
+        wheel.schedule(timer("C"), START_NS, TimeUnit.MILLISECONDS.toNanos(30));
+        Assert.assertEquals(3, wheel.size());
+
+        wheel.expire(at(9));
+        Assert.assertTrue(fired.isEmpty());
+
+        wheel.expire(at(10));
+        Assert.assertEquals(Arrays.asList("A"), fired);
+
+        wheel.expire(at(35));
+        Assert.assertEquals(Arrays.asList("A", "B", "C"), fired);
+        Assert.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testNeverEarly() throws Exception {
+        wheel.schedule(timer("A"), START_NS, TimeUnit.MICROSECONDS.toNanos(1500));
+
+        wheel.expire(START_NS + TimeUnit.MICROSECONDS.toNanos(1499));
+        Assert.assertTrue(fired.isEmpty());
+
+        wheel.expire(at(2));
+        Assert.assertEquals(Arrays.asList("A"), fired);
+    }
+
+    @Test
+    public void testCancelAndReschedule() throws Exception {
+        NioSelectorTimer a = timer("A");
+        NioSelectorTimer b = timer("B");
+
+        wheel.schedule(a, START_NS, TimeUnit.MILLISECONDS.toNanos(5));
+        wheel.schedule(b, START_NS, TimeUnit.MILLISECONDS.toNanos(5));
+        Assert.assertTrue(a.isScheduled());
+
+        wheel.cancel(a);
+        Assert.assertFalse(a.isScheduled());
+        Assert.assertEquals(1, wheel.size());
+
+        wheel.schedule(b, START_NS, TimeUnit.MILLISECONDS.toNanos(50));
+        Assert.assertEquals(1, wheel.size());
+
+        wheel.expire(at(10));
+        Assert.assertTrue(fired.isEmpty());
+
+        wheel.expire(at(50));
+        Assert.assertEquals(Arrays.asList("B"), fired);
+        Assert.assertFalse(b.isScheduled());
+    }
+
+    @Test
+    public void testLongDelay() throws Exception {
+        wheel.schedule(timer("A"), START_NS, TimeUnit.SECONDS.toNanos(3));
+
+        for (long ms = 100; ms < 3000; ms += 100) {
+            wheel.expire(at(ms));
+        }
+        Assert.assertTrue(fired.isEmpty());
+
+        wheel.expire(at(3000));
+        Assert.assertEquals(Arrays.asList("A"), fired);
+    }
+
+    @Test
+    public void testStall() throws Exception {
+        wheel.schedule(timer("A"), START_NS, TimeUnit.MILLISECONDS.toNanos(1));
+        wheel.schedule(timer("B"), START_NS, TimeUnit.MILLISECONDS.toNanos(700));
+        wheel.schedule(timer("C"), START_NS, TimeUnit.SECONDS.toNanos(20));
+
+        wheel.expire(at(10_000));
+        Assert.assertEquals(Arrays.asList("A", "B"), fired);
+        Assert.assertEquals(1, wheel.size());
+
+        wheel.expire(at(20_000));
+        Assert.assertEquals(Arrays.asList("A", "B", "C"), fired);
+    }
+
+    @Test
+    public void testRescheduleFromCallback() throws Exception {
+        final long[] nowNs = { START_NS };
+        final NioSelectorTimer[] holder = new NioSelectorTimer[1];
+        holder[0] = new NioSelectorTimer(null, () -> {
+            fired.add("A");
+            if (fired.size() < 3) {
+                wheel.schedule(holder[0], nowNs[0], TimeUnit.MILLISECONDS.toNanos(1));
+            }
+        }, false);
+
+        wheel.schedule(holder[0], START_NS, 0);
+        for (long ms = 1; ms <= 10; ms++) {
+            nowNs[0] = at(ms);
+            wheel.expire(nowNs[0]);
+        }
+
+        Assert.assertEquals(Arrays.asList("A", "A", "A"), fired);
+        Assert.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testOneShot() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            final String name = "T" + i;
+            wheel.schedule(() -> fired.add(name), START_NS, TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        wheel.expire(at(10));
+        Assert.assertEquals(10, fired.size());
+        Assert.assertEquals("T0", fired.get(0));
+        Assert.assertEquals("T9", fired.get(9));
+
+        wheel.schedule(() -> fired.add("X"), at(10), 0);
+        wheel.expire(at(11));
+        Assert.assertEquals("X", fired.get(10));
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        Assert.assertEquals(-1, wheel.getTimeoutNs(START_NS));
+
+        NioSelectorTimer a = timer("A");
+        wheel.schedule(a, START_NS, TimeUnit.MICROSECONDS.toNanos(2500));
+        wheel.schedule(timer("B"), START_NS, TimeUnit.MILLISECONDS.toNanos(7));
+
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(3), wheel.getTimeoutNs(START_NS));
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(2), wheel.getTimeoutNs(at(1)));
+        Assert.assertEquals(0, wheel.getTimeoutNs(at(4)));
+
+        wheel.cancel(a);
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(7), wheel.getTimeoutNs(START_NS));
+
+        wheel.expire(at(7));
+        Assert.assertEquals(-1, wheel.getTimeoutNs(at(7)));
+
+        wheel.schedule(timer("C"), at(7), TimeUnit.SECONDS.toNanos(5));
+        Assert.assertTrue(wheel.getTimeoutNs(at(7)) > 0);
+        Assert.assertTrue(wheel.getTimeoutNs(at(7)) <= TimeUnit.SECONDS.toNanos(5));
+    }
+
+    @Test
+    public void testTimeoutBeyondSpan() throws Exception {
+        // far timers share slots with near ones and must not hide them or be taken for them
+        for (int i = 0; i < 100; i++) {
+            wheel.schedule(timer("F" + i), START_NS, TimeUnit.MILLISECONDS.toNanos(5_000 + i * 10));
+        }
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(1024), wheel.getTimeoutNs(START_NS));
+
+        NioSelectorTimer a = timer("A");
+        NioSelectorTimer b = timer("B");
+        wheel.schedule(a, START_NS, TimeUnit.MILLISECONDS.toNanos(5_000 - 4 * 1024));
+        wheel.schedule(b, START_NS, TimeUnit.MILLISECONDS.toNanos(5_010 - 4 * 1024));
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(904), wheel.getTimeoutNs(START_NS));
+
+        wheel.cancel(a);
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(914), wheel.getTimeoutNs(START_NS));
+
+        wheel.expire(at(1000));
+        Assert.assertEquals(Arrays.asList("B"), fired);
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(1024), wheel.getTimeoutNs(at(1000)));
+
+        wheel.expire(at(4999));
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(1), wheel.getTimeoutNs(at(4999)));
+
+        wheel.expire(at(5000));
+        Assert.assertEquals(Arrays.asList("B", "F0"), fired);
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(10), wheel.getTimeoutNs(at(5000)));
+    }
+}
@@ -0,0 +1,91 @@
+package org.netcrusher.core.throttle.rate;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.chronometer.MockChronometer;
+import org.netcrusher.core.throttle.Throttler;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+public class BytePacingThrottlerTest {
+
+    private static final long TOLERANCE_NS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final long PENDING = 1000;
+
+    private MockChronometer mockChronometer;
+
+    private BytePacingThrottler throttler;
+
+    @Before
+    public void setUp() throws Exception {
+        this.mockChronometer = new MockChronometer();
+
+        // one byte per millisecond
+        this.throttler = new BytePacingThrottler(1000, 1, TimeUnit.SECONDS, TOLERANCE_NS, mockChronometer);
+    }
+
+    @Test
+    public void testAllowed() throws Exception {
+        Assert.assertEquals(10, throttler.calculateAllowedBytes(PENDING));
+
+        throttler.consume(10);
+        Assert.assertEquals(0, throttler.calculateAllowedBytes(PENDING));
+
+        mockChronometer.add(5, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(5, throttler.calculateAllowedBytes(PENDING));
+
+        throttler.consume(3);
+        Assert.assertEquals(2, throttler.calculateAllowedBytes(2));
+
+        // a slice is not smaller than the quantum unless it is the rest of the queue
+        Assert.assertEquals(0, throttler.calculateAllowedBytes(PENDING));
+    }
+
+    @Test
+    public void testWait() throws Exception {
+        throttler.consume(20);
+        Assert.assertEquals(0, throttler.calculateAllowedBytes(PENDING));
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(11), throttler.calculateWaitNs(1));
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(15), throttler.calculateWaitNs(PENDING));
+
+        mockChronometer.add(15, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(5, throttler.calculateAllowedBytes(PENDING));
+    }
+
+    @Test
+    public void testIdle() throws Exception {
+        throttler.consume(10);
+
+        // an idle connection saves only the tolerance
+        mockChronometer.add(1, TimeUnit.SECONDS);
+        Assert.assertEquals(10, throttler.calculateAllowedBytes(PENDING));
+    }
+
+    @Test
+    public void testLateTimer() throws Exception {
+        throttler.consume(10);
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(5), throttler.calculateWaitNs(PENDING));
+
+        // the waiting output keeps the time the timer was late for
+        mockChronometer.add(30, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(30, throttler.calculateAllowedBytes(PENDING));
+
+        throttler.consume(30);
+        mockChronometer.add(1, TimeUnit.SECONDS);
+        Assert.assertEquals(10, throttler.calculateAllowedBytes(PENDING));
+    }
+
+    @Test
+    public void testDelay() throws Exception {
+        ByteBuffer bb = ByteBuffer.allocate(100);
+
+        Assert.assertEquals(Throttler.NO_DELAY_NS, throttler.calculateDelayNs(bb));
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(90), throttler.calculateDelayNs(bb));
+
+        mockChronometer.add(190, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(Throttler.NO_DELAY_NS, throttler.calculateDelayNs(bb));
+    }
+}
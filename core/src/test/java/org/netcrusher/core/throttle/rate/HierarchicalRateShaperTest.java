@@ -0,0 +1,180 @@
+package org.netcrusher.core.throttle.rate;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.chronometer.MockChronometer;
+import org.netcrusher.core.throttle.Throttler;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+public class HierarchicalRateShaperTest {
+
+    private static final long GLOBAL_RATE_PER_SEC = 1000;
+
+    private static final long DURATION_SEC = 20;
+
+    private static final int SWEEP_INTERVAL = 1024;
+
+    private static final InetSocketAddress HOST1_CONNECTION1 = new InetSocketAddress("10.0.0.1", 40001);
+
+    private static final InetSocketAddress HOST1_CONNECTION2 = new InetSocketAddress("10.0.0.1", 40002);
+
+    private static final InetSocketAddress HOST2_CONNECTION1 = new InetSocketAddress("10.0.0.2", 40001);
+
+    private MockChronometer mockChronometer;
+
+    @Before
+    public void setUp() throws Exception {
+        this.mockChronometer = new MockChronometer();
+    }
+
+    private HierarchicalRateShaper shaper(long clientRate, long connectionRate) {
+        return new HierarchicalRateShaper(GLOBAL_RATE_PER_SEC, clientRate, connectionRate, 1, TimeUnit.SECONDS,
+            mockChronometer);
+    }
+
+    @Test
+    public void testBorrow() throws Exception {
+        HierarchicalRateShaper shaper = shaper(100, 0);
+
+        Sender sender = new Sender(shaper.allocate(HOST1_CONNECTION1), 50, 0);
+        simulate(sender);
+
+        // the only client takes all the global capacity
+        Assert.assertEquals(GLOBAL_RATE_PER_SEC, sender.ratePerSec(), 0.02 * GLOBAL_RATE_PER_SEC);
+    }
+
+    @Test
+    public void testShareBorrowed() throws Exception {
+        HierarchicalRateShaper shaper = shaper(100, 0);
+
+        Sender sender1 = new Sender(shaper.allocate(HOST1_CONNECTION1), 50, 0);
+        Sender sender2 = new Sender(shaper.allocate(HOST2_CONNECTION1), 50, 0);
+        simulate(sender1, sender2);
+
+        Assert.assertEquals(GLOBAL_RATE_PER_SEC / 2, sender1.ratePerSec(), 0.02 * GLOBAL_RATE_PER_SEC);
+        Assert.assertEquals(GLOBAL_RATE_PER_SEC / 2, sender2.ratePerSec(), 0.02 * GLOBAL_RATE_PER_SEC);
+        Assert.assertEquals(2, shaper.getClientCount());
+    }
+
+    @Test
+    public void testGuarantee() throws Exception {
+        HierarchicalRateShaper shaper = shaper(200, 0);
+
+        // the second host sends 150 bytes per second within its guaranteed rate
+        Sender busy = new Sender(shaper.allocate(HOST1_CONNECTION1), 50, 0);
+        Sender light = new Sender(shaper.allocate(HOST2_CONNECTION1), 15, TimeUnit.MILLISECONDS.toNanos(100));
+        simulate(busy, light);
+
+        Assert.assertEquals(0, light.delayedCount);
+        Assert.assertEquals(150, light.ratePerSec(), 0.02 * GLOBAL_RATE_PER_SEC);
+        Assert.assertEquals(GLOBAL_RATE_PER_SEC - 150, busy.ratePerSec(), 0.02 * GLOBAL_RATE_PER_SEC);
+    }
+
+    @Test
+    public void testConnectionCeiling() throws Exception {
+        HierarchicalRateShaper shaper = shaper(GLOBAL_RATE_PER_SEC, 200);
+
+        Sender sender1 = new Sender(shaper.allocate(HOST1_CONNECTION1), 10, 0);
+        Sender sender2 = new Sender(shaper.allocate(HOST1_CONNECTION2), 10, 0);
+        simulate(sender1, sender2);
+
+        Assert.assertEquals(200, sender1.ratePerSec(), 0.02 * GLOBAL_RATE_PER_SEC);
+        Assert.assertEquals(200, sender2.ratePerSec(), 0.02 * GLOBAL_RATE_PER_SEC);
+        Assert.assertEquals(1, shaper.getClientCount());
+    }
+
+    @Test
+    public void testSweep() throws Exception {
+        HierarchicalRateShaper shaper = shaper(100, 0);
+
+        Throttler open = shaper.allocate(HOST1_CONNECTION1);
+        shaper.allocate(HOST2_CONNECTION1).release();
+        Assert.assertEquals(2, shaper.getClientCount());
+
+        // the sweep runs on every 1024th allocation and keeps the idle host which has an open connection
+        mockChronometer.add(2, TimeUnit.MINUTES);
+        for (int i = 2; i < SWEEP_INTERVAL; i++) {
+            shaper.allocate(HOST2_CONNECTION1).release();
+        }
+        Assert.assertEquals(2, shaper.getClientCount());
+
+        open.release();
+        open.release();
+
+        mockChronometer.add(2, TimeUnit.MINUTES);
+        for (int i = 0; i < SWEEP_INTERVAL - 1; i++) {
+            shaper.allocate(HOST2_CONNECTION1).release();
+        }
+        shaper.allocate(HOST2_CONNECTION1);
+        Assert.assertEquals(1, shaper.getClientCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidClientRate() throws Exception {
+        shaper(GLOBAL_RATE_PER_SEC + 1, 0);
+    }
+
+    /**
+     * Every sender passes the next buffer as soon as the previous one leaves its queue but not more often
+     * than its interval
+     */
+    private void simulate(Sender... senders) {
+        final long startNs = mockChronometer.getTickNs();
+        final long durationNs = TimeUnit.SECONDS.toNanos(DURATION_SEC);
+
+        while (true) {
+            Sender next = senders[0];
+            for (Sender sender : senders) {
+                if (sender.nextNs < next.nextNs) {
+                    next = sender;
+                }
+            }
+
+            if (next.nextNs > durationNs) {
+                break;
+            }
+            mockChronometer.setTickNs(startNs + next.nextNs);
+
+            next.send();
+        }
+    }
+
+    private static final class Sender {
+
+        private final Throttler throttler;
+
+        private final ByteBuffer bb;
+
+        private final long intervalNs;
+
+        private long nextNs;
+
+        private long sent;
+
+        private int delayedCount;
+
+        private Sender(Throttler throttler, int bufferSize, long intervalNs) {
+            this.throttler = throttler;
+            this.bb = ByteBuffer.allocate(bufferSize);
+            this.intervalNs = intervalNs;
+        }
+
+        private void send() {
+            final long delayNs = throttler.calculateDelayNs(bb);
+            if (delayNs > 0) {
+                delayedCount++;
+            }
+
+            nextNs += Math.max(Math.max(0, delayNs), intervalNs);
+            sent += bb.remaining();
+        }
+
+        private double ratePerSec() {
+            return 1.0 * sent / DURATION_SEC;
+        }
+    }
+}
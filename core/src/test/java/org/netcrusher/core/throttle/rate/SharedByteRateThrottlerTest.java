@@ -0,0 +1,172 @@
+package org.netcrusher.core.throttle.rate;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.chronometer.MockChronometer;
+import org.netcrusher.core.throttle.Throttler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class SharedByteRateThrottlerTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedByteRateThrottlerTest.class);
+
+    private static final long RATE_PER_SEC = 1000;
+
+    private ByteBuffer stubBuffer;
+
+    private MockChronometer mockChronometer;
+
+    private SharedByteRateThrottler throttler;
+
+    @Before
+    public void setUp() throws Exception {
+        this.stubBuffer = ByteBuffer.allocate(10000);
+
+        this.mockChronometer = new MockChronometer();
+
+        this.throttler = new SharedByteRateThrottler(RATE_PER_SEC, 1, TimeUnit.SECONDS, 0, mockChronometer);
+    }
+
+    @Test
+    public void testBulk() throws Exception {
+        long totalSent = 0;
+        long totalElapsedNs = 0;
+
+        Random random = new Random(1);
+
+        for (int i = 0; i < 10_000; i++) {
+            int bufferSize = random.nextInt(100);
+            stubBuffer.limit(bufferSize);
+
+            long elapsedNs = random.nextInt(100_000);
+            mockChronometer.add(elapsedNs, TimeUnit.NANOSECONDS);
+
+            long delayNs = Math.max(0, throttler.calculateDelayNs(stubBuffer));
+            mockChronometer.add(delayNs, TimeUnit.NANOSECONDS);
+
+            totalSent += bufferSize;
+            totalElapsedNs += elapsedNs;
+            totalElapsedNs += delayNs;
+        }
+
+        double ratePerSec = 1.0 * TimeUnit.SECONDS.toNanos(1) * totalSent / totalElapsedNs;
+        Assert.assertEquals(RATE_PER_SEC, ratePerSec, 0.01 * RATE_PER_SEC);
+    }
+
+    @Test
+    public void testBurst() throws Exception {
+        SharedByteRateThrottler burstThrottler = new SharedByteRateThrottler(RATE_PER_SEC, 1, TimeUnit.SECONDS,
+            100, mockChronometer);
+
+        // an idle link passes the burst at once (the buffer which fills the burst up is not delayed too)
+        stubBuffer.limit(10);
+        for (int i = 0; i <= 10; i++) {
+            Assert.assertEquals(Throttler.NO_DELAY_NS, burstThrottler.calculateDelayNs(stubBuffer));
+        }
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(10), burstThrottler.calculateDelayNs(stubBuffer));
+
+        // idle time is not accumulated above the burst
+        mockChronometer.add(1, TimeUnit.HOURS);
+        stubBuffer.limit(200);
+        Assert.assertEquals(Throttler.NO_DELAY_NS, burstThrottler.calculateDelayNs(stubBuffer));
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(100), burstThrottler.calculateDelayNs(stubBuffer));
+    }
+
+    @Test
+    public void testFairShare() throws Exception {
+        final int clientCount = 4;
+        final int bufferSize = 50;
+        final long durationNs = TimeUnit.SECONDS.toNanos(10);
+
+        // every client sends the next buffer as soon as the previous one leaves its queue
+        final long startNs = mockChronometer.getTickNs();
+        final long[] deadlinesNs = new long[clientCount];
+        final long[] sent = new long[clientCount];
+
+        stubBuffer.limit(bufferSize);
+        while (true) {
+            int next = 0;
+            for (int i = 1; i < clientCount; i++) {
+                if (deadlinesNs[i] < deadlinesNs[next]) {
+                    next = i;
+                }
+            }
+
+            final long nowNs = Math.max(mockChronometer.getTickNs(), startNs + deadlinesNs[next]);
+            if (nowNs - startNs > durationNs) {
+                break;
+            }
+            mockChronometer.setTickNs(nowNs);
+
+            final long delayNs = Math.max(0, throttler.calculateDelayNs(stubBuffer));
+            deadlinesNs[next] = nowNs - startNs + delayNs;
+            sent[next] += bufferSize;
+        }
+
+        final long expected = RATE_PER_SEC * TimeUnit.NANOSECONDS.toSeconds(durationNs) / clientCount;
+        for (int i = 0; i < clientCount; i++) {
+            Assert.assertEquals("Client #" + i, expected, sent[i], 2 * bufferSize);
+        }
+    }
+
+    @Test
+    public void testContention() throws Exception {
+        final int threadCount = 8;
+        final int iterations = 200_000;
+        final int bufferSize = 100;
+
+        // a byte per nanosecond makes the transmission time of every buffer exact
+        final SharedByteRateThrottler sharedThrottler = new SharedByteRateThrottler(1_000_000_000L, 1,
+            TimeUnit.SECONDS, 0, mockChronometer);
+
+        final CyclicBarrier barrier = new CyclicBarrier(threadCount);
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            final List<Future<Long>> futures = new ArrayList<>(threadCount);
+            for (int t = 0; t < threadCount; t++) {
+                futures.add(executor.submit(() -> {
+                    final ByteBuffer bb = ByteBuffer.allocate(bufferSize);
+
+                    barrier.await();
+
+                    final long startedNs = System.nanoTime();
+                    for (int i = 0; i < iterations; i++) {
+                        sharedThrottler.calculateDelayNs(bb);
+                    }
+                    return System.nanoTime() - startedNs;
+                }));
+            }
+
+            long maxElapsedNs = 0;
+            for (Future<Long> future : futures) {
+                maxElapsedNs = Math.max(maxElapsedNs, future.get());
+            }
+
+            final long calls = (long) threadCount * iterations;
+            LOGGER.info("{} threads: {} calls in {}ms ({} calls/s)", new Object[] {
+                threadCount, calls, TimeUnit.NANOSECONDS.toMillis(maxElapsedNs),
+                calls * TimeUnit.SECONDS.toNanos(1) / Math.max(1, maxElapsedNs)
+            });
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        }
+
+        // no reservation is lost: the link is busy exactly for the time all the bytes take
+        stubBuffer.limit(0);
+        final long totalNs = (long) threadCount * iterations * bufferSize;
+        Assert.assertEquals(totalNs, sharedThrottler.calculateDelayNs(stubBuffer));
+    }
+}
@@ -0,0 +1,147 @@
+package org.netcrusher.core.upstream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class UpstreamBalancersTest {
+
+    private static final InetSocketAddress CLIENT = new InetSocketAddress("127.0.0.1", 50000);
+
+    private static List<Upstream> upstreams(int... weights) {
+        final Upstream[] array = new Upstream[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            array[i] = new Upstream(new InetSocketAddress("10.0.0." + (i + 1), 80), weights[i]);
+        }
+        return Arrays.asList(array);
+    }
+
+    private static Map<Upstream, Integer> count(UpstreamBalancer balancer, int times) {
+        final Map<Upstream, Integer> counts = new HashMap<>();
+        for (int i = 0; i < times; i++) {
+            counts.merge(balancer.select(CLIENT), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    private static InetSocketAddress host(int i, int port) {
+        return new InetSocketAddress("10.1." + (i / 256) + "." + (i % 256), port);
+    }
+
+    @Test
+    public void testRoundRobin() throws Exception {
+        final List<Upstream> upstreams = upstreams(1, 5, 1);
+        final UpstreamBalancer balancer = UpstreamBalancers.roundRobin().allocate(upstreams);
+
+        for (int i = 0; i < 9; i++) {
+            Assert.assertSame(upstreams.get(i % 3), balancer.select(CLIENT));
+        }
+    }
+
+    @Test
+    public void testWeighted() throws Exception {
+        final List<Upstream> upstreams = upstreams(5, 1, 1);
+        final UpstreamBalancer balancer = UpstreamBalancers.weighted().allocate(upstreams);
+
+        final Map<Upstream, Integer> counts = count(balancer, 70);
+        Assert.assertEquals(50, counts.get(upstreams.get(0)).intValue());
+        Assert.assertEquals(10, counts.get(upstreams.get(1)).intValue());
+        Assert.assertEquals(10, counts.get(upstreams.get(2)).intValue());
+
+        // the heavy upstream is interleaved with others instead of getting all its clients in a row
+        final StringBuilder sequence = new StringBuilder();
+        for (int i = 0; i < 7; i++) {
+            sequence.append(upstreams.indexOf(balancer.select(CLIENT)));
+        }
+        Assert.assertEquals("0010200", sequence.toString());
+    }
+
+    @Test
+    public void testLeastActive() throws Exception {
+        final List<Upstream> upstreams = upstreams(1, 1, 2);
+        final UpstreamBalancer balancer = UpstreamBalancers.leastActive().allocate(upstreams);
+
+        // select and hold: the weight of 2 lets the last upstream carry twice as many clients
+        for (int i = 0; i < 8; i++) {
+            balancer.select(CLIENT).acquire();
+        }
+        Assert.assertEquals(2, upstreams.get(0).getActiveCount());
+        Assert.assertEquals(2, upstreams.get(1).getActiveCount());
+        Assert.assertEquals(4, upstreams.get(2).getActiveCount());
+
+        upstreams.get(1).release();
+        upstreams.get(1).release();
+        Assert.assertSame(upstreams.get(1), balancer.select(CLIENT));
+    }
+
+    @Test
+    public void testConsistentHash() throws Exception {
+        final List<Upstream> upstreams = upstreams(1, 1, 1, 1);
+        final UpstreamBalancer balancer = UpstreamBalancers.consistentHash().allocate(upstreams);
+
+        final int hosts = 4000;
+        final Map<Upstream, Integer> counts = new HashMap<>();
+        for (int i = 0; i < hosts; i++) {
+            final InetSocketAddress client = host(i, 40000);
+            final Upstream upstream = balancer.select(client);
+            counts.merge(upstream, 1, Integer::sum);
+
+            // the client port doesn't matter
+            Assert.assertSame(upstream, balancer.select(host(i, 50000)));
+        }
+
+        for (Upstream upstream : upstreams) {
+            final int count = counts.getOrDefault(upstream, 0);
+            Assert.assertTrue(upstream + " has " + count, count > hosts / 8 && count < hosts / 2);
+        }
+
+        // removing an upstream moves only its own hosts
+        final UpstreamBalancer reduced = UpstreamBalancers.consistentHash().allocate(upstreams.subList(0, 3));
+        for (int i = 0; i < hosts; i++) {
+            final Upstream before = balancer.select(host(i, 40000));
+            if (before != upstreams.get(3)) {
+                Assert.assertSame(before, reduced.select(host(i, 40000)));
+            }
+        }
+    }
+
+    @Test
+    public void testCreateAll() throws Exception {
+        final InetSocketAddress first = new InetSocketAddress("10.0.0.1", 80);
+        final InetSocketAddress second = new InetSocketAddress("10.0.0.2", 80);
+
+        final Map<InetSocketAddress, Integer> weights = new LinkedHashMap<>();
+        weights.put(second, 3);
+
+        final List<Upstream> upstreams = Upstream.createAll(first, weights);
+        Assert.assertEquals(2, upstreams.size());
+        Assert.assertEquals(first, upstreams.get(0).getAddress());
+        Assert.assertEquals(1, upstreams.get(0).getWeight());
+        Assert.assertEquals(second, upstreams.get(1).getAddress());
+        Assert.assertEquals(3, upstreams.get(1).getWeight());
+    }
+
+    @Test
+    public void testCreateAllWeightedConnectAddress() throws Exception {
+        final InetSocketAddress first = new InetSocketAddress("10.0.0.1", 80);
+        final InetSocketAddress second = new InetSocketAddress("10.0.0.2", 80);
+
+        // the connect address is also given a weight after another upstream
+        final Map<InetSocketAddress, Integer> weights = new LinkedHashMap<>();
+        weights.put(second, 3);
+        weights.put(first, 2);
+
+        final List<Upstream> upstreams = Upstream.createAll(first, weights);
+        Assert.assertEquals(2, upstreams.size());
+        Assert.assertEquals(first, upstreams.get(0).getAddress());
+        Assert.assertEquals(2, upstreams.get(0).getWeight());
+        Assert.assertEquals(second, upstreams.get(1).getAddress());
+        Assert.assertEquals(3, upstreams.get(1).getWeight());
+    }
+}
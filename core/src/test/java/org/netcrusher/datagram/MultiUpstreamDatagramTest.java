@@ -0,0 +1,139 @@
+package org.netcrusher.datagram;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.nio.NioUtils;
+import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.upstream.Upstream;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class MultiUpstreamDatagramTest {
+
+    private static final InetSocketAddress CRUSHER_ADDRESS = new InetSocketAddress("127.0.0.1", 10182);
+
+    private static final InetSocketAddress REFLECTOR_ADDRESS1 = new InetSocketAddress("127.0.0.1", 10183);
+
+    private static final InetSocketAddress REFLECTOR_ADDRESS2 = new InetSocketAddress("127.0.0.1", 10184);
+
+    private static final int CLIENT_COUNT = 6;
+
+    private static final int DATAGRAM_SIZE = 100;
+
+    private static final long WAIT_MS = 10_000;
+
+    private ExecutorService executor;
+
+    private DatagramChannel reflector1;
+
+    private DatagramChannel reflector2;
+
+    private NioReactor reactor;
+
+    private DatagramCrusher crusher;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newCachedThreadPool();
+
+        reflector1 = openReflector(REFLECTOR_ADDRESS1);
+        reflector2 = openReflector(REFLECTOR_ADDRESS2);
+
+        reactor = new NioReactor();
+
+        crusher = DatagramCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(CRUSHER_ADDRESS)
+            .withConnectAddress(REFLECTOR_ADDRESS1)
+            .withUpstreamAddress(REFLECTOR_ADDRESS2)
+            .buildAndOpen();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (crusher != null) {
+            crusher.close();
+            Assert.assertFalse(crusher.isOpen());
+        }
+
+        if (reactor != null) {
+            reactor.close();
+            Assert.assertFalse(reactor.isOpen());
+        }
+
+        NioUtils.close(reflector1);
+        NioUtils.close(reflector2);
+
+        if (executor != null) {
+            executor.shutdownNow();
+            executor.awaitTermination(WAIT_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Test
+    public void test() throws Exception {
+        List<DatagramChannel> channels = new ArrayList<>(CLIENT_COUNT);
+        try {
+            for (int i = 0; i < CLIENT_COUNT; i++) {
+                DatagramChannel channel = DatagramChannel.open();
+                channel.configureBlocking(true);
+                channels.add(channel);
+
+                ByteBuffer bb = ByteBuffer.allocate(DATAGRAM_SIZE);
+                Assert.assertEquals(DATAGRAM_SIZE, channel.send(bb, CRUSHER_ADDRESS));
+
+                bb.clear();
+                Assert.assertEquals(CRUSHER_ADDRESS, channel.receive(bb));
+                Assert.assertEquals(DATAGRAM_SIZE, bb.position());
+            }
+
+            List<Upstream> upstreams = crusher.getUpstreams();
+            Assert.assertEquals(2, upstreams.size());
+
+            for (Upstream upstream : upstreams) {
+                Assert.assertEquals(CLIENT_COUNT / 2, upstream.getActiveCount());
+                Assert.assertEquals(CLIENT_COUNT / 2, upstream.getPacketMeters().getSentMeter().getTotalCount());
+                Assert.assertEquals(CLIENT_COUNT / 2, upstream.getPacketMeters().getReadMeter().getTotalCount());
+                Assert.assertEquals(CLIENT_COUNT / 2 * DATAGRAM_SIZE,
+                    upstream.getByteMeters().getReadMeter().getTotalCount());
+            }
+
+            // an outer which has gone releases its upstream
+            InetSocketAddress clientAddress = crusher.getClientAddresses().iterator().next();
+            Assert.assertTrue(crusher.closeClient(clientAddress));
+            Assert.assertEquals(CLIENT_COUNT - 1, upstreams.stream().mapToInt(Upstream::getActiveCount).sum());
+        } finally {
+            for (DatagramChannel channel : channels) {
+                NioUtils.close(channel);
+            }
+        }
+    }
+
+    private DatagramChannel openReflector(InetSocketAddress address) throws Exception {
+        final DatagramChannel channel = DatagramChannel.open();
+        channel.bind(address);
+        channel.configureBlocking(true);
+
+        executor.submit(() -> {
+            final ByteBuffer bb = ByteBuffer.allocate(DATAGRAM_SIZE);
+            while (true) {
+                bb.clear();
+                SocketAddress source = channel.receive(bb);
+                bb.flip();
+                channel.send(bb, source);
+            }
+        });
+
+        return channel;
+    }
+}
@@ -0,0 +1,148 @@
+package org.netcrusher.datagram;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.nio.NioUtils;
+import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.datagram.bulk.DatagramBulkClient;
+import org.netcrusher.datagram.bulk.DatagramBulkReflector;
+import org.netcrusher.datagram.bulk.DatagramBulkResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * Measures how many datagrams per second pass the crusher in both directions and how much CPU time
+ * the selector thread spends per datagram
+ */
+public class PacketRateDatagramTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PacketRateDatagramTest.class);
+
+    private static final int CLIENT_PORT = 10182;
+
+    private static final int CRUSHER_PORT = 10183;
+
+    private static final int REFLECTOR_PORT = 10184;
+
+    private static final String HOSTNAME = "127.0.0.1";
+
+    private static final long WARMUP_COUNT = 20_000;
+
+    private static final long COUNT = 100_000;
+
+    private static final int DATAGRAM_PER_SEC = 20_000;
+
+    private static final int DATAGRAM_SIZE = 1400;
+
+    private static final int SOCKET_BUFFER_SIZE = 4 * 1024 * 1024;
+
+    private static final int BUDGET_DATAGRAMS = 256;
+
+    private static final int BUFFER_COUNT = 4096;
+
+    private static final long SEND_WAIT_MS = 60_000;
+
+    private static final long READ_WAIT_MS = 30_000;
+
+    private NioReactor reactor;
+
+    @Before
+    public void setUp() throws Exception {
+        reactor = new NioReactor();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (reactor != null) {
+            reactor.close();
+            Assert.assertFalse(reactor.isOpen());
+        }
+    }
+
+    @Test
+    public void test() throws Exception {
+        DatagramCrusher crusher = DatagramCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, CRUSHER_PORT)
+            .withConnectAddress(HOSTNAME, REFLECTOR_PORT)
+            .withRcvBufferSize(SOCKET_BUFFER_SIZE)
+            .withSndBufferSize(SOCKET_BUFFER_SIZE)
+            .withBufferCount(BUFFER_COUNT)
+            .withEventBudgetDatagrams(BUDGET_DATAGRAMS)
+            .buildAndOpen();
+
+        try {
+            transfer(WARMUP_COUNT);
+
+            final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+            final long selectorThreadId = reactor.getSelector().execute(() -> Thread.currentThread().getId());
+            final long cpuBeforeNs = threadBean.getThreadCpuTime(selectorThreadId);
+
+            final long elapsedMs = Math.max(1, transfer(COUNT).getElapsedMs());
+
+            final long cpuNs = threadBean.getThreadCpuTime(selectorThreadId) - cpuBeforeNs;
+
+            Assert.assertEquals(WARMUP_COUNT + COUNT,
+                crusher.getInnerPacketMeters().getSentMeter().getTotalCount());
+
+            LOGGER.info("{} datagrams in {}ms, {} datagrams/s, {}ns of selector CPU per datagram",
+                new Object[] {
+                    COUNT,
+                    elapsedMs,
+                    COUNT * 1000 / elapsedMs,
+                    cpuNs / (2 * COUNT)
+                });
+        } finally {
+            crusher.close();
+        }
+    }
+
+    private DatagramBulkResult transfer(long count) throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(3);
+
+        DatagramBulkClient client = new DatagramBulkClient("CLIENT",
+            new InetSocketAddress(HOSTNAME, CLIENT_PORT),
+            new InetSocketAddress(HOSTNAME, CRUSHER_PORT),
+            count,
+            DATAGRAM_PER_SEC,
+            DATAGRAM_SIZE,
+            barrier,
+            barrier);
+
+        DatagramBulkReflector reflector = new DatagramBulkReflector("REFLECTOR",
+            new InetSocketAddress(HOSTNAME, REFLECTOR_PORT),
+            count,
+            barrier);
+
+        // small datagrams quickly overflow default receive buffers when threads compete for CPU
+        reflector.setRcvBufferSize(SOCKET_BUFFER_SIZE);
+        client.setRcvBufferSize(SOCKET_BUFFER_SIZE);
+
+        // an empty datagram waits for OP_WRITE so it would measure selector loops rather than datagrams
+        client.setEmptyDatagrams(false);
+
+        reflector.open();
+        client.open();
+
+        try {
+            final byte[] producerDigest = client.awaitProducerResult(SEND_WAIT_MS).getDigest();
+            final DatagramBulkResult consumerResult = client.awaitConsumerResult(READ_WAIT_MS);
+
+            reflector.awaitReflectorResult(READ_WAIT_MS);
+
+            Assert.assertArrayEquals(producerDigest, consumerResult.getDigest());
+
+            return consumerResult;
+        } finally {
+            NioUtils.close(client);
+            NioUtils.close(reflector);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.netcrusher.datagram;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.meter.RateMeters;
+import org.netcrusher.core.nio.NioUtils;
+import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.reactor.NioReactorBuilder;
+import org.netcrusher.datagram.bulk.DatagramBulkReflector;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+public class ReusePortDatagramTest {
+
+    private static final InetSocketAddress CRUSHER_ADDRESS = new InetSocketAddress("127.0.0.1", 10183);
+
+    private static final InetSocketAddress REFLECTOR_ADDRESS = new InetSocketAddress("127.0.0.1", 10184);
+
+    private static final int SELECTOR_COUNT = 3;
+
+    private static final int SHARD_COUNT = 2;
+
+    private static final int CLIENT_COUNT = 8;
+
+    private static final int DATAGRAM_SIZE = 100;
+
+    private static final long READ_WAIT_MS = 10_000;
+
+    private NioReactor reactor;
+
+    private DatagramCrusher crusher;
+
+    @Before
+    public void setUp() throws Exception {
+        try (DatagramChannel channel = DatagramChannel.open()) {
+            Assume.assumeTrue("SO_REUSEPORT is not supported", NioUtils.isReusePortSupported(channel));
+        }
+
+        reactor = NioReactorBuilder.builder()
+            .withSelectorCount(SELECTOR_COUNT)
+            .build();
+
+        crusher = DatagramCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(CRUSHER_ADDRESS)
+            .withConnectAddress(REFLECTOR_ADDRESS)
+            .withReusePortShards(SHARD_COUNT)
+            .buildAndOpen();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (crusher != null) {
+            crusher.close();
+            Assert.assertFalse(crusher.isOpen());
+        }
+
+        if (reactor != null) {
+            reactor.close();
+            Assert.assertFalse(reactor.isOpen());
+        }
+    }
+
+    @Test
+    public void test() throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(2);
+
+        DatagramBulkReflector reflector = new DatagramBulkReflector("REFLECTOR", REFLECTOR_ADDRESS,
+            CLIENT_COUNT, barrier);
+        reflector.open();
+
+        barrier.await();
+
+        List<DatagramChannel> channels = new ArrayList<>(CLIENT_COUNT);
+        try {
+            for (int i = 0; i < CLIENT_COUNT; i++) {
+                DatagramChannel channel = DatagramChannel.open();
+                channel.configureBlocking(true);
+                channels.add(channel);
+
+                ByteBuffer bb = ByteBuffer.allocate(DATAGRAM_SIZE);
+                int sent = channel.send(bb, CRUSHER_ADDRESS);
+                Assert.assertEquals(DATAGRAM_SIZE, sent);
+            }
+
+            for (DatagramChannel channel : channels) {
+                ByteBuffer bb = ByteBuffer.allocate(DATAGRAM_SIZE);
+                InetSocketAddress address = (InetSocketAddress) channel.receive(bb);
+                Assert.assertEquals(CRUSHER_ADDRESS, address);
+                Assert.assertEquals(DATAGRAM_SIZE, bb.position());
+            }
+
+            reflector.awaitReflectorResult(READ_WAIT_MS);
+
+            // shards update their meters right after the datagram is sent
+            Thread.sleep(500);
+
+            Assert.assertEquals(CLIENT_COUNT, crusher.getClientTotalCount());
+            Assert.assertEquals(CLIENT_COUNT, crusher.getClientAddresses().size());
+
+            RateMeters innerPacketMeters = crusher.getInnerPacketMeters();
+            Assert.assertEquals(CLIENT_COUNT, innerPacketMeters.getReadMeter().getTotalCount());
+            Assert.assertEquals(CLIENT_COUNT, innerPacketMeters.getSentMeter().getTotalCount());
+
+            InetSocketAddress clientAddress = crusher.getClientAddresses().iterator().next();
+            Assert.assertNotNull(crusher.getClientPacketMeters(clientAddress));
+            Assert.assertTrue(crusher.closeClient(clientAddress));
+            Assert.assertEquals(CLIENT_COUNT - 1, crusher.getClientAddresses().size());
+
+            // idle outers are closed on the loops of their shards
+            Assert.assertEquals(0, crusher.closeIdleClients(1, TimeUnit.HOURS));
+            Assert.assertEquals(CLIENT_COUNT - 1, crusher.closeIdleClients(0, TimeUnit.MILLISECONDS));
+            Assert.assertEquals(0, crusher.getClientAddresses().size());
+
+            crusher.freeze();
+            crusher.unfreeze();
+        } finally {
+            for (DatagramChannel channel : channels) {
+                NioUtils.close(channel);
+            }
+            NioUtils.close(reflector);
+        }
+    }
+}
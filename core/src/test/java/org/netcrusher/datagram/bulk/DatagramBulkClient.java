@@ -12,6 +12,7 @@ import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.net.SocketException;
 import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.DatagramChannel;
@@ -24,7 +25,9 @@ public class DatagramBulkClient implements AutoCloseable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DatagramBulkClient.class);
 
-    private static final int MAX_DATAGRAM_SIZE = 1400;
+    private static final int DEFAULT_DATAGRAM_SIZE = 1400;
+
+    private static final int DEFAULT_DATAGRAM_PER_SEC = 100;
 
     private static final long SENDER_PAUSE_MS = 1000;
 
@@ -40,6 +43,19 @@ public class DatagramBulkClient implements AutoCloseable {
                               long limit,
                               CyclicBarrier readBarrier,
                               CyclicBarrier sentBarrier) throws IOException
+    {
+        this(name, bindAddress, connectAddress, limit, DEFAULT_DATAGRAM_PER_SEC, DEFAULT_DATAGRAM_SIZE,
+            readBarrier, sentBarrier);
+    }
+
+    public DatagramBulkClient(String name,
+                              InetSocketAddress bindAddress,
+                              InetSocketAddress connectAddress,
+                              long limit,
+                              int datagramPerSec,
+                              int maxDatagramSize,
+                              CyclicBarrier readBarrier,
+                              CyclicBarrier sentBarrier) throws IOException
     {
         this.channel = DatagramChannel.open(StandardProtocolFamily.INET);
         this.channel.configureBlocking(true);
@@ -51,7 +67,16 @@ public class DatagramBulkClient implements AutoCloseable {
         }
 
         this.consumer = new Consumer(channel, name, limit, connectAddress, readBarrier);
-        this.producer = new Producer(channel, name, limit, connectAddress, sentBarrier);
+        this.producer = new Producer(channel, name, limit, datagramPerSec, maxDatagramSize,
+            connectAddress, sentBarrier);
+    }
+
+    public void setRcvBufferSize(int rcvBufferSize) throws IOException {
+        this.channel.setOption(StandardSocketOptions.SO_RCVBUF, rcvBufferSize);
+    }
+
+    public void setEmptyDatagrams(boolean emptyDatagrams) {
+        this.producer.emptyDatagrams = emptyDatagrams;
     }
 
     public void open() throws Exception {
@@ -197,8 +222,6 @@ public class DatagramBulkClient implements AutoCloseable {
 
     private static final class Producer extends Thread {
 
-        private static final int DATAGRAM_PER_SEC = 100;
-
         private final DatagramChannel channel;
 
         private final String name;
@@ -211,20 +234,27 @@ public class DatagramBulkClient implements AutoCloseable {
 
         private final Throttler throttler;
 
+        private final int maxDatagramSize;
+
         private final Random random;
 
+        private boolean emptyDatagrams;
+
         private DatagramBulkResult result;
 
         public Producer(DatagramChannel channel, String name, long limit,
+                        int datagramPerSec, int maxDatagramSize,
                         InetSocketAddress connectAddress,
                         CyclicBarrier barrier) {
             this.channel = channel;
-            this.throttler = new PacketRateThrottler(DATAGRAM_PER_SEC, 1, TimeUnit.SECONDS);
+            this.throttler = new PacketRateThrottler(datagramPerSec, 1, TimeUnit.SECONDS);
+            this.maxDatagramSize = maxDatagramSize;
             this.name = name;
             this.limit = limit;
             this.connectAddress = connectAddress;
             this.barrier = barrier;
             this.random = new Random();
+            this.emptyDatagrams = true;
             this.result = null;
 
             this.setName("Producer thread");
@@ -242,7 +272,7 @@ public class DatagramBulkClient implements AutoCloseable {
         private void loop() throws Exception {
             LOGGER.debug("Send loop {} started", name);
 
-            final ByteBuffer bb = ByteBuffer.allocate(MAX_DATAGRAM_SIZE);
+            final ByteBuffer bb = ByteBuffer.allocate(maxDatagramSize);
             final MessageDigest md5 = Md5DigestFactory.createDigest();
 
             if (barrier != null) {
@@ -259,7 +289,7 @@ public class DatagramBulkClient implements AutoCloseable {
                 while (sentDatagrams < this.limit && !Thread.currentThread().isInterrupted()) {
                     random.nextBytes(bb.array());
 
-                    final boolean empty = random.nextInt(20) == 0;
+                    final boolean empty = emptyDatagrams && random.nextInt(20) == 0;
                     final int limit = empty ? 0 : 1 + random.nextInt(bb.capacity());
 
                     bb.limit(limit);
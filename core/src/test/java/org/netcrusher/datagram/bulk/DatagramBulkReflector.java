@@ -10,6 +10,7 @@ import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.net.SocketException;
 import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.DatagramChannel;
@@ -38,6 +39,10 @@ public class DatagramBulkReflector implements AutoCloseable {
         this.reflector = new Reflector(channel, name, limit, readBarrier);
     }
 
+    public void setRcvBufferSize(int rcvBufferSize) throws IOException {
+        this.channel.setOption(StandardSocketOptions.SO_RCVBUF, rcvBufferSize);
+    }
+
     public void open() {
         this.reflector.start();
     }
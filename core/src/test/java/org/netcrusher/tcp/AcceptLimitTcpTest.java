@@ -0,0 +1,162 @@
+package org.netcrusher.tcp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.nio.NioUtils;
+import org.netcrusher.core.reactor.NioReactor;
+
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+public class AcceptLimitTcpTest {
+
+    private static final int PORT_CRUSHER = 10081;
+
+    private static final int PORT_SERVER = 10082;
+
+    private static final String HOSTNAME = "127.0.0.1";
+
+    private static final int BACKLOG = 64;
+
+    private static final long WAIT_MS = 10_000;
+
+    private ServerSocketChannel serverChannel;
+
+    private NioReactor reactor;
+
+    private TcpCrusher crusher;
+
+    private List<SocketChannel> clients;
+
+    @Before
+    public void setUp() throws Exception {
+        // the server never accepts, connections to it are completed in the backlog
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(new InetSocketAddress(HOSTNAME, PORT_SERVER), BACKLOG);
+
+        reactor = new NioReactor();
+
+        clients = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (SocketChannel client : clients) {
+            NioUtils.close(client);
+        }
+
+        if (crusher != null) {
+            crusher.close();
+        }
+
+        if (reactor != null) {
+            reactor.close();
+        }
+
+        if (serverChannel != null) {
+            NioUtils.close(serverChannel);
+        }
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        final int count = 32;
+
+        crusher = builder()
+            .withAcceptBatch(16)
+            .buildAndOpen();
+
+        connect(count);
+
+        await(() -> crusher.getClientAddresses().size() == count);
+
+        Assert.assertEquals(count, crusher.getClientTotalCount());
+        Assert.assertEquals(count, crusher.getAcceptMeter().getTotalCount());
+        Assert.assertEquals(0, crusher.getAcceptThrottledCount());
+        Assert.assertEquals(0, crusher.getAcceptRejectedCount());
+    }
+
+    @Test
+    public void testRate() throws Exception {
+        final int count = 5;
+        final int rate = 10;
+
+        crusher = builder()
+            .withAcceptBatch(count)
+            .withAcceptRate(rate)
+            .withAcceptBurst(1)
+            .buildAndOpen();
+
+        final long startedNs = System.nanoTime();
+
+        connect(count);
+
+        await(() -> crusher.getClientAddresses().size() == count);
+
+        final long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNs);
+
+        // the first connection takes the only token of the bucket, others wait for the refill
+        Assert.assertTrue("Elapsed " + elapsedMs + "ms", elapsedMs >= (count - 1) * 1000 / rate - 50);
+        Assert.assertTrue(crusher.getAcceptThrottledCount() > 0);
+        Assert.assertEquals(0, crusher.getAcceptRejectedCount());
+    }
+
+    @Test
+    public void testMaxPairs() throws Exception {
+        final int maxPairs = 2;
+
+        crusher = builder()
+            .withMaxPairs(maxPairs)
+            .buildAndOpen();
+
+        connect(maxPairs);
+        await(() -> crusher.getClientAddresses().size() == maxPairs);
+
+        connect(1);
+        await(() -> crusher.getAcceptRejectedCount() == 1);
+
+        Assert.assertEquals(maxPairs, crusher.getClientAddresses().size());
+        Assert.assertEquals(maxPairs, crusher.getClientTotalCount());
+
+        // a closed pair frees the slot for a new connection
+        InetSocketAddress closedAddress = crusher.getClientAddresses().iterator().next();
+        Assert.assertTrue(crusher.closeClient(closedAddress));
+
+        connect(1);
+        await(() -> crusher.getClientTotalCount() == maxPairs + 1);
+
+        Assert.assertEquals(maxPairs, crusher.getClientAddresses().size());
+        Assert.assertEquals(1, crusher.getAcceptRejectedCount());
+    }
+
+    private TcpCrusherBuilder builder() {
+        return TcpCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, PORT_CRUSHER)
+            .withConnectAddress(HOSTNAME, PORT_SERVER)
+            .withBacklog(BACKLOG);
+    }
+
+    private void connect(int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            clients.add(SocketChannel.open(new InetSocketAddress(HOSTNAME, PORT_CRUSHER)));
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws Exception {
+        final long deadlineMs = System.currentTimeMillis() + WAIT_MS;
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue("Condition is not met in time", System.currentTimeMillis() < deadlineMs);
+            Thread.sleep(10);
+        }
+    }
+}
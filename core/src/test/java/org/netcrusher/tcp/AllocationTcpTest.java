@@ -0,0 +1,123 @@
+package org.netcrusher.tcp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.tcp.bulk.TcpBulkClient;
+import org.netcrusher.tcp.bulk.TcpBulkServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+
+/**
+ * Counts bytes allocated by the selector thread while a large transfer goes through the crusher: the steady-state
+ * read-filter-throttle-write path should not allocate at all, so only the pair setup is allowed to
+ */
+public class AllocationTcpTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AllocationTcpTest.class);
+
+    private static final int PORT_CRUSHER = 10081;
+
+    private static final int PORT_SERVER = 10082;
+
+    private static final String HOSTNAME = "127.0.0.1";
+
+    private static final long WARMUP_COUNT = 16 * 1024 * 1024;
+
+    private static final long COUNT = 256 * 1024 * 1024;
+
+    private static final long MAX_ALLOCATED_BYTES = 256 * 1024;
+
+    private static final long SEND_WAIT_MS = 60_000;
+
+    private static final long READ_WAIT_MS = 30_000;
+
+    private NioReactor reactor;
+
+    private TcpCrusher crusher;
+
+    private TcpBulkServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        reactor = new NioReactor();
+
+        crusher = TcpCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, PORT_CRUSHER)
+            .withConnectAddress(HOSTNAME, PORT_SERVER)
+            .buildAndOpen();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (crusher != null) {
+            crusher.close();
+            Assert.assertFalse(crusher.isOpen());
+        }
+
+        if (reactor != null) {
+            reactor.close();
+            Assert.assertFalse(reactor.isOpen());
+        }
+
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testAllocations() throws Exception {
+        final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+
+        final com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        Assume.assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+        final long selectorThreadId = reactor.getSelector().execute(() -> Thread.currentThread().getId());
+
+        // the first transfer warms up the code and fills the buffer pool
+        transfer(WARMUP_COUNT);
+
+        final long allocatedBeforeBytes = allocationBean.getThreadAllocatedBytes(selectorThreadId);
+        transfer(COUNT);
+        final long allocatedBytes = allocationBean.getThreadAllocatedBytes(selectorThreadId) - allocatedBeforeBytes;
+
+        LOGGER.info("Selector thread has allocated {} bytes while transferring {} bytes in both directions",
+            allocatedBytes, COUNT);
+
+        Assert.assertTrue("Too many allocations: " + allocatedBytes, allocatedBytes < MAX_ALLOCATED_BYTES);
+    }
+
+    private void transfer(long count) throws Exception {
+        server = new TcpBulkServer(new InetSocketAddress(HOSTNAME, PORT_SERVER), count);
+        server.open();
+        try {
+            final InetSocketAddress crusherAddress = new InetSocketAddress(HOSTNAME, PORT_CRUSHER);
+            try (TcpBulkClient client1 = TcpBulkClient.forAddress("EXT", crusherAddress, count)) {
+                final byte[] producer1Digest = client1.awaitProducerResult(SEND_WAIT_MS).getDigest();
+
+                try (TcpBulkClient client2 = server.getClients().iterator().next()) {
+                    final byte[] producer2Digest = client2.awaitProducerResult(SEND_WAIT_MS).getDigest();
+
+                    final byte[] consumer1Digest = client1.awaitConsumerResult(READ_WAIT_MS).getDigest();
+                    final byte[] consumer2Digest = client2.awaitConsumerResult(READ_WAIT_MS).getDigest();
+
+                    Assert.assertArrayEquals(producer1Digest, consumer2Digest);
+                    Assert.assertArrayEquals(producer2Digest, consumer1Digest);
+                }
+            }
+        } finally {
+            server.close();
+            server = null;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package org.netcrusher.tcp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.NetFreezer;
+import org.netcrusher.core.nio.NioUtils;
+import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.reactor.NioReactorBuilder;
+import org.netcrusher.tcp.bulk.TcpBulkClient;
+import org.netcrusher.tcp.bulk.TcpBulkServer;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncControlTcpTest {
+
+    private static final int PORT_CRUSHER = 10081;
+
+    private static final int PORT_SERVER = 10082;
+
+    private static final String HOSTNAME = "127.0.0.1";
+
+    private static final int SELECTOR_COUNT = 4;
+
+    private static final int CLIENT_COUNT = 32;
+
+    private static final long COUNT = 64 * 1024;
+
+    private static final long SEND_WAIT_MS = 30_000;
+
+    private static final long FUTURE_WAIT_MS = 10_000;
+
+    private NioReactor reactor;
+
+    private TcpCrusher crusher;
+
+    private TcpBulkServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new TcpBulkServer(new InetSocketAddress(HOSTNAME, PORT_SERVER), COUNT);
+        server.open();
+
+        reactor = NioReactorBuilder.builder()
+            .withSelectorCount(SELECTOR_COUNT)
+            .build();
+
+        crusher = TcpCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, PORT_CRUSHER)
+            .withConnectAddress(HOSTNAME, PORT_SERVER)
+            .buildAndOpen();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (crusher != null) {
+            crusher.close();
+            Assert.assertFalse(crusher.isOpen());
+        }
+
+        if (reactor != null) {
+            reactor.close();
+            Assert.assertFalse(reactor.isOpen());
+        }
+
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testAsync() throws Exception {
+        final InetSocketAddress crusherAddress = new InetSocketAddress(HOSTNAME, PORT_CRUSHER);
+
+        final List<TcpBulkClient> clients = new ArrayList<>(CLIENT_COUNT);
+        try {
+            for (int i = 0; i < CLIENT_COUNT; i++) {
+                clients.add(TcpBulkClient.forAddress("EXT" + i, crusherAddress, COUNT));
+            }
+
+            for (TcpBulkClient client : clients) {
+                client.awaitProducerResult(SEND_WAIT_MS);
+            }
+
+            // connections could be still waiting in the listening backlog
+            final long deadlineMs = System.currentTimeMillis() + SEND_WAIT_MS;
+            while (crusher.getClientAddresses().size() < CLIENT_COUNT && System.currentTimeMillis() < deadlineMs) {
+                Thread.sleep(10);
+            }
+
+            Assert.assertEquals(CLIENT_COUNT, crusher.getClientAddresses().size());
+
+            crusher.freezeAsync().get(FUTURE_WAIT_MS, TimeUnit.MILLISECONDS);
+            Assert.assertTrue(crusher.isFrozen());
+            Assert.assertTrue(crusher.getAcceptorFreezer().isFrozen());
+            for (InetSocketAddress clientAddress : crusher.getClientAddresses()) {
+                Assert.assertTrue(crusher.getClientFreezer(clientAddress).isFrozen());
+            }
+
+            crusher.unfreezeAsync().get(FUTURE_WAIT_MS, TimeUnit.MILLISECONDS);
+            Assert.assertFalse(crusher.isFrozen());
+            for (InetSocketAddress clientAddress : crusher.getClientAddresses()) {
+                Assert.assertFalse(crusher.getClientFreezer(clientAddress).isFrozen());
+            }
+
+            crusher.freezeAllPairsAsync().get(FUTURE_WAIT_MS, TimeUnit.MILLISECONDS);
+            Assert.assertFalse(crusher.getAcceptorFreezer().isFrozen());
+
+            final List<CompletableFuture<Void>> freezerFutures = new ArrayList<>();
+            for (InetSocketAddress clientAddress : crusher.getClientAddresses()) {
+                NetFreezer freezer = crusher.getClientFreezer(clientAddress);
+                freezerFutures.add(freezer.unfreezeAsync());
+            }
+            CompletableFuture.allOf(freezerFutures.toArray(new CompletableFuture[freezerFutures.size()]))
+                .get(FUTURE_WAIT_MS, TimeUnit.MILLISECONDS);
+
+            final List<CompletableFuture<Boolean>> closeFutures = new ArrayList<>();
+            for (InetSocketAddress clientAddress : crusher.getClientAddresses()) {
+                closeFutures.add(crusher.closeClientAsync(clientAddress));
+            }
+            closeFutures.add(crusher.closeClientAsync(new InetSocketAddress(HOSTNAME, 1)));
+
+            for (int i = 0; i < CLIENT_COUNT; i++) {
+                Assert.assertTrue(closeFutures.get(i).get(FUTURE_WAIT_MS, TimeUnit.MILLISECONDS));
+            }
+            Assert.assertFalse(closeFutures.get(CLIENT_COUNT).get(FUTURE_WAIT_MS, TimeUnit.MILLISECONDS));
+
+            Assert.assertTrue(crusher.getClientAddresses().isEmpty());
+            Assert.assertEquals(CLIENT_COUNT, crusher.getClientTotalCount());
+
+            crusher.closeAsync().get(FUTURE_WAIT_MS, TimeUnit.MILLISECONDS);
+            Assert.assertFalse(crusher.isOpen());
+        } finally {
+            for (TcpBulkClient client : clients) {
+                NioUtils.close(client);
+            }
+        }
+    }
+}
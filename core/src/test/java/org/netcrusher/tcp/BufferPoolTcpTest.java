@@ -0,0 +1,159 @@
+package org.netcrusher.tcp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.buffer.BufferPool;
+import org.netcrusher.core.nio.NioUtils;
+import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.tcp.bulk.TcpBulkClient;
+import org.netcrusher.tcp.bulk.TcpBulkServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BufferPoolTcpTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BufferPoolTcpTest.class);
+
+    private static final int PORT_CRUSHER = 10081;
+
+    private static final int PORT_SERVER = 10082;
+
+    private static final int PORT_IDLE_CRUSHER = 10083;
+
+    private static final int PORT_QUIET_SERVER = 10084;
+
+    private static final String HOSTNAME = "127.0.0.1";
+
+    private static final int IDLE_CLIENT_COUNT = 64;
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private static final long LIMIT_BYTES = 16 * BUFFER_SIZE;
+
+    private static final long COUNT = 16 * 1024 * 1024;
+
+    private static final long SEND_WAIT_MS = 60_000;
+
+    private static final long READ_WAIT_MS = 30_000;
+
+    private static final long ACCEPT_WAIT_MS = 10_000;
+
+    private NioReactor reactor;
+
+    private TcpCrusher crusher;
+
+    private TcpBulkServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new TcpBulkServer(new InetSocketAddress(HOSTNAME, PORT_SERVER), COUNT);
+        server.open();
+
+        reactor = new NioReactor();
+
+        crusher = TcpCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, PORT_CRUSHER)
+            .withConnectAddress(HOSTNAME, PORT_SERVER)
+            .withBufferSize(BUFFER_SIZE)
+            .withBufferLimitBytes(LIMIT_BYTES)
+            .buildAndOpen();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (crusher != null) {
+            crusher.close();
+            Assert.assertFalse(crusher.isOpen());
+        }
+
+        if (reactor != null) {
+            reactor.close();
+            Assert.assertFalse(reactor.isOpen());
+        }
+
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testIdleClients() throws Exception {
+        final InetSocketAddress crusherAddress = new InetSocketAddress(HOSTNAME, PORT_CRUSHER);
+        final BufferPool pool = reactor.getSelector().getBufferPool();
+
+        // connections are established by the backlog while the server keeps silent
+        final ServerSocketChannel quietServer = ServerSocketChannel.open();
+        quietServer.bind(new InetSocketAddress(HOSTNAME, PORT_QUIET_SERVER), IDLE_CLIENT_COUNT * 2);
+
+        final TcpCrusher idleCrusher = TcpCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, PORT_IDLE_CRUSHER)
+            .withConnectAddress(HOSTNAME, PORT_QUIET_SERVER)
+            .withBacklog(IDLE_CLIENT_COUNT)
+            .buildAndOpen();
+
+        final List<SocketChannel> idleClients = new ArrayList<>(IDLE_CLIENT_COUNT);
+        try {
+            for (int i = 0; i < IDLE_CLIENT_COUNT; i++) {
+                idleClients.add(SocketChannel.open(new InetSocketAddress(HOSTNAME, PORT_IDLE_CRUSHER)));
+            }
+
+            final long deadlineMs = System.currentTimeMillis() + ACCEPT_WAIT_MS;
+            while (idleCrusher.getClientTotalCount() < IDLE_CLIENT_COUNT
+                && System.currentTimeMillis() < deadlineMs)
+            {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(IDLE_CLIENT_COUNT, idleCrusher.getClientTotalCount());
+
+            // idle connections hold no buffers at all
+            Assert.assertEquals(0, pool.getBorrowedBytes());
+            Assert.assertEquals(0, idleCrusher.getBufferQuota().getUsedBytes());
+
+            TcpBulkClient client = TcpBulkClient.forAddress("EXT", crusherAddress, COUNT);
+            try {
+                final byte[] producerDigest = client.awaitProducerResult(SEND_WAIT_MS).getDigest();
+
+                TcpBulkClient serverClient = server.getClients().iterator().next();
+                final byte[] consumerDigest = serverClient.awaitConsumerResult(READ_WAIT_MS).getDigest();
+
+                Assert.assertArrayEquals(producerDigest, consumerDigest);
+
+                serverClient.awaitProducerResult(SEND_WAIT_MS);
+                client.awaitConsumerResult(READ_WAIT_MS);
+            } finally {
+                client.close();
+            }
+
+            crusher.closeAllPairs();
+            idleCrusher.closeAllPairs();
+        } finally {
+            for (SocketChannel idleClient : idleClients) {
+                NioUtils.close(idleClient);
+            }
+
+            idleCrusher.close();
+            NioUtils.close(quietServer);
+        }
+
+        LOGGER.info("Pool hits: {}, misses: {}, retained: {} bytes, quota denials: {}", new Object[] {
+            pool.getHitMeter().getTotalCount(),
+            pool.getMissMeter().getTotalCount(),
+            pool.getRetainedBytes(),
+            crusher.getBufferQuota().getDeniedMeter().getTotalCount()
+        });
+
+        Assert.assertTrue(pool.getHitMeter().getTotalCount() > 0);
+        Assert.assertEquals(0, pool.getBorrowedBytes());
+        Assert.assertEquals(0, crusher.getBufferQuota().getUsedBytes());
+    }
+}
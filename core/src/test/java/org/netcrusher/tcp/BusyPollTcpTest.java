@@ -0,0 +1,14 @@
+package org.netcrusher.tcp;
+
+import org.netcrusher.core.reactor.NioReactorBuilder;
+
+public class BusyPollTcpTest extends SmallMessageTcpTest {
+
+    private static final long BUSY_POLL_US = 200;
+
+    @Override
+    protected NioReactorBuilder createReactorBuilder() {
+        return NioReactorBuilder.builder()
+            .withBusyPollUs(BUSY_POLL_US);
+    }
+}
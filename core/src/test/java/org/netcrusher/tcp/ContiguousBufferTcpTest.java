@@ -0,0 +1,109 @@
+package org.netcrusher.tcp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.filter.TransformFilter;
+import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.tcp.bulk.TcpBulkClient;
+import org.netcrusher.tcp.bulk.TcpBulkServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk transfer through queues of separate buffers and through contiguous rings,
+ * reports how often the transform filter is called
+ */
+public class ContiguousBufferTcpTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContiguousBufferTcpTest.class);
+
+    private static final int PORT_CRUSHER = 10081;
+
+    private static final int PORT_SERVER = 10082;
+
+    private static final String HOSTNAME = "127.0.0.1";
+
+    private static final long COUNT = 256 * 1024 * 1024;
+
+    private static final long SEND_WAIT_MS = 60_000;
+
+    private static final long READ_WAIT_MS = 30_000;
+
+    private NioReactor reactor;
+
+    private TcpBulkServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new TcpBulkServer(new InetSocketAddress(HOSTNAME, PORT_SERVER), COUNT);
+        server.open();
+
+        reactor = new NioReactor();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (reactor != null) {
+            reactor.close();
+            Assert.assertFalse(reactor.isOpen());
+        }
+
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testSeparateBuffers() throws Exception {
+        bulk(false);
+    }
+
+    @Test
+    public void testContiguousRing() throws Exception {
+        bulk(true);
+    }
+
+    private void bulk(boolean contiguous) throws Exception {
+        final AtomicLong transformCount = new AtomicLong();
+        final TransformFilter countingFilter = (bb) -> transformCount.incrementAndGet();
+
+        TcpCrusher crusher = TcpCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, PORT_CRUSHER)
+            .withConnectAddress(HOSTNAME, PORT_SERVER)
+            .withBufferContiguous(contiguous)
+            .withIncomingTransformFilterFactory((addr) -> countingFilter)
+            .withOutgoingTransformFilterFactory((addr) -> countingFilter)
+            .buildAndOpen();
+        try {
+            final InetSocketAddress crusherAddress = new InetSocketAddress(HOSTNAME, PORT_CRUSHER);
+            try (TcpBulkClient client1 = TcpBulkClient.forAddress("EXT", crusherAddress, COUNT)) {
+                final byte[] producer1Digest = client1.awaitProducerResult(SEND_WAIT_MS).getDigest();
+
+                try (TcpBulkClient client2 = server.getClients().iterator().next()) {
+                    final byte[] producer2Digest = client2.awaitProducerResult(SEND_WAIT_MS).getDigest();
+
+                    final byte[] consumer1Digest = client1.awaitConsumerResult(READ_WAIT_MS).getDigest();
+                    final byte[] consumer2Digest = client2.awaitConsumerResult(READ_WAIT_MS).getDigest();
+
+                    Assert.assertArrayEquals(producer1Digest, consumer2Digest);
+                    Assert.assertArrayEquals(producer2Digest, consumer1Digest);
+                }
+            }
+        } finally {
+            crusher.close();
+        }
+
+        final long megabytes = 2 * COUNT / (1024 * 1024);
+        LOGGER.info("Queue {}: {} transform calls, {} calls per megabyte", new Object[] {
+            contiguous ? "contiguous" : "separate",
+            transformCount.get(),
+            transformCount.get() / megabytes
+        });
+    }
+}
@@ -0,0 +1,127 @@
+package org.netcrusher.tcp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.meter.LatencyMeterPeriod;
+import org.netcrusher.core.nio.NioUtils;
+import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.reactor.NioReactorBuilder;
+import org.netcrusher.tcp.bulk.TcpBulkClient;
+import org.netcrusher.tcp.bulk.TcpBulkServer;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class DedicatedAcceptorTcpTest {
+
+    private static final int PORT_CRUSHER = 10081;
+
+    private static final int PORT_SERVER = 10082;
+
+    private static final String HOSTNAME = "127.0.0.1";
+
+    private static final int SELECTOR_COUNT = 2;
+
+    private static final int CLIENT_COUNT = 16;
+
+    private static final long COUNT = 4 * 1024 * 1024;
+
+    private static final long SEND_WAIT_MS = 60_000;
+
+    private static final long READ_WAIT_MS = 30_000;
+
+    private NioReactor reactor;
+
+    private TcpCrusher crusher;
+
+    private TcpBulkServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new TcpBulkServer(new InetSocketAddress(HOSTNAME, PORT_SERVER), COUNT);
+        server.open();
+
+        reactor = NioReactorBuilder.builder()
+            .withSelectorCount(SELECTOR_COUNT)
+            .withDedicatedAcceptor(true)
+            .build();
+
+        crusher = TcpCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, PORT_CRUSHER)
+            .withConnectAddress(HOSTNAME, PORT_SERVER)
+            .buildAndOpen();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (crusher != null) {
+            crusher.close();
+            Assert.assertFalse(crusher.isOpen());
+        }
+
+        if (reactor != null) {
+            reactor.close();
+            Assert.assertFalse(reactor.isOpen());
+        }
+
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testBulk() throws Exception {
+        Assert.assertTrue(reactor.hasDedicatedAcceptor());
+        Assert.assertEquals(SELECTOR_COUNT + 1, reactor.getSelectors().size());
+
+        for (int i = 0; i < CLIENT_COUNT; i++) {
+            Assert.assertNotSame(reactor.getSelector(), reactor.nextSelector());
+        }
+
+        final InetSocketAddress crusherAddress = new InetSocketAddress(HOSTNAME, PORT_CRUSHER);
+
+        final List<TcpBulkClient> clients = new ArrayList<>(CLIENT_COUNT);
+        try {
+            for (int i = 0; i < CLIENT_COUNT; i++) {
+                clients.add(TcpBulkClient.forAddress("EXT" + i, crusherAddress, COUNT));
+            }
+
+            final Set<String> producerDigests = new HashSet<>();
+            for (TcpBulkClient client : clients) {
+                producerDigests.add(NioUtils.toHexString(client.awaitProducerResult(SEND_WAIT_MS).getDigest()));
+            }
+
+            // producers may finish into the crusher's buffers before the server has accepted all connections
+            final long deadlineMs = System.currentTimeMillis() + READ_WAIT_MS;
+            while (server.getClients().size() < CLIENT_COUNT && System.currentTimeMillis() < deadlineMs) {
+                Thread.sleep(10);
+            }
+
+            final Set<String> consumerDigests = new HashSet<>();
+            for (TcpBulkClient client : server.getClients()) {
+                consumerDigests.add(NioUtils.toHexString(client.awaitConsumerResult(READ_WAIT_MS).getDigest()));
+            }
+
+            Assert.assertEquals(producerDigests, consumerDigests);
+            Assert.assertEquals(CLIENT_COUNT, crusher.getClientAddresses().size());
+        } finally {
+            for (TcpBulkClient client : clients) {
+                client.close();
+            }
+        }
+
+        Assert.assertEquals(CLIENT_COUNT, crusher.getAcceptMeter().getTotalCount());
+        Assert.assertEquals(CLIENT_COUNT, crusher.getAcceptLatencyMeter().getTotalCount());
+
+        LatencyMeterPeriod latency = crusher.getAcceptLatencyMeter().getTotal();
+        Assert.assertEquals(CLIENT_COUNT, latency.getCount());
+        Assert.assertTrue(latency.getMinNs() <= latency.getMaxNs());
+        Assert.assertTrue(latency.getAverageNs() <= latency.getMaxNs());
+    }
+}
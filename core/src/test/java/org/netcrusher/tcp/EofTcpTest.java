@@ -0,0 +1,129 @@
+package org.netcrusher.tcp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.nio.NioUtils;
+import org.netcrusher.core.reactor.NioReactor;
+
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Data followed by FIN must reach the server even if the server socket is full when EOF is read
+ */
+public class EofTcpTest {
+
+    private static final int PORT_CRUSHER = 10081;
+
+    private static final int PORT_SERVER = 10082;
+
+    private static final String HOSTNAME = "127.0.0.1";
+
+    private static final int SOCKET_BUFFER_SIZE = 4096;
+
+    private static final int COUNT = 256 * 1024;
+
+    private static final long SERVER_DELAY_MS = 500;
+
+    private static final int WAIT_MS = 10_000;
+
+    private ServerSocket serverSocket;
+
+    private ExecutorService executor;
+
+    private NioReactor reactor;
+
+    private TcpCrusher crusher;
+
+    @Before
+    public void setUp() throws Exception {
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.setReceiveBufferSize(SOCKET_BUFFER_SIZE);
+        serverSocket.bind(new InetSocketAddress(HOSTNAME, PORT_SERVER));
+
+        executor = Executors.newSingleThreadExecutor();
+
+        reactor = new NioReactor();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (crusher != null) {
+            crusher.close();
+        }
+
+        if (reactor != null) {
+            reactor.close();
+        }
+
+        if (serverSocket != null) {
+            NioUtils.close(serverSocket);
+        }
+
+        if (executor != null) {
+            executor.shutdownNow();
+            executor.awaitTermination(WAIT_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Test
+    public void testSlots() throws Exception {
+        test(false);
+    }
+
+    @Test
+    public void testContiguous() throws Exception {
+        test(true);
+    }
+
+    private void test(boolean contiguous) throws Exception {
+        crusher = TcpCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, PORT_CRUSHER)
+            .withConnectAddress(HOSTNAME, PORT_SERVER)
+            .withSndBufferSize(SOCKET_BUFFER_SIZE)
+            .withBufferContiguous(contiguous)
+            .buildAndOpen();
+
+        // the server starts reading when the crusher has queued the rest of the data
+        Future<Long> received = executor.submit(() -> {
+            try (Socket socket = serverSocket.accept()) {
+                socket.setSoTimeout(WAIT_MS);
+                Thread.sleep(SERVER_DELAY_MS);
+
+                final InputStream input = socket.getInputStream();
+                final byte[] bytes = new byte[SOCKET_BUFFER_SIZE];
+
+                long total = 0;
+                int read;
+                while ((read = input.read(bytes)) >= 0) {
+                    total += read;
+                }
+
+                return total;
+            }
+        });
+
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(HOSTNAME, PORT_CRUSHER))) {
+            final ByteBuffer bb = ByteBuffer.allocate(COUNT);
+            while (bb.hasRemaining()) {
+                channel.write(bb);
+            }
+
+            channel.shutdownOutput();
+
+            Assert.assertEquals(COUNT, received.get(WAIT_MS, TimeUnit.MILLISECONDS).longValue());
+        }
+    }
+}
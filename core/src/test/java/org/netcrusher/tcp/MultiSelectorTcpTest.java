@@ -0,0 +1,139 @@
+package org.netcrusher.tcp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.NetFreezer;
+import org.netcrusher.core.nio.NioUtils;
+import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.reactor.NioReactorBuilder;
+import org.netcrusher.tcp.bulk.TcpBulkClient;
+import org.netcrusher.tcp.bulk.TcpBulkServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class MultiSelectorTcpTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultiSelectorTcpTest.class);
+
+    private static final int PORT_CRUSHER = 10081;
+
+    private static final int PORT_SERVER = 10082;
+
+    private static final String HOSTNAME = "127.0.0.1";
+
+    private static final int SELECTOR_COUNT = 4;
+
+    private static final int CLIENT_COUNT = 8;
+
+    private static final long COUNT = 32 * 1024 * 1024;
+
+    private static final long SEND_WAIT_MS = 60_000;
+
+    private static final long READ_WAIT_MS = 30_000;
+
+    private NioReactor reactor;
+
+    private TcpCrusher crusher;
+
+    private TcpBulkServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new TcpBulkServer(new InetSocketAddress(HOSTNAME, PORT_SERVER), COUNT);
+        server.open();
+
+        reactor = NioReactorBuilder.builder()
+            .withSelectorCount(SELECTOR_COUNT)
+            .build();
+
+        crusher = TcpCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, PORT_CRUSHER)
+            .withConnectAddress(HOSTNAME, PORT_SERVER)
+            .withCreationListener((addr) -> LOGGER.info("Client is created <{}>", addr))
+            .withDeletionListener((addr, byteMeters) -> LOGGER.info("Client is deleted <{}>", addr))
+            .buildAndOpen();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (crusher != null) {
+            crusher.close();
+            Assert.assertFalse(crusher.isOpen());
+        }
+
+        if (reactor != null) {
+            reactor.close();
+            Assert.assertFalse(reactor.isOpen());
+        }
+
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testBulk() throws Exception {
+        Assert.assertEquals(SELECTOR_COUNT, reactor.getSelectors().size());
+
+        final InetSocketAddress crusherAddress = new InetSocketAddress(HOSTNAME, PORT_CRUSHER);
+
+        final List<TcpBulkClient> clients = new ArrayList<>(CLIENT_COUNT);
+        try {
+            for (int i = 0; i < CLIENT_COUNT; i++) {
+                clients.add(TcpBulkClient.forAddress("EXT" + i, crusherAddress, COUNT));
+            }
+
+            final Set<String> producerDigests = new HashSet<>();
+            for (TcpBulkClient client : clients) {
+                producerDigests.add(NioUtils.toHexString(client.awaitProducerResult(SEND_WAIT_MS).getDigest()));
+            }
+
+            Assert.assertEquals(CLIENT_COUNT, server.getClients().size());
+            Assert.assertEquals(CLIENT_COUNT, crusher.getClientAddresses().size());
+
+            for (InetSocketAddress clientAddress : crusher.getClientAddresses()) {
+                NetFreezer freezer = crusher.getClientFreezer(clientAddress);
+                freezer.freeze();
+                Assert.assertTrue(freezer.isFrozen());
+                freezer.unfreeze();
+                Assert.assertFalse(freezer.isFrozen());
+            }
+
+            final Set<String> consumerDigests = new HashSet<>();
+            for (TcpBulkClient client : server.getClients()) {
+                consumerDigests.add(NioUtils.toHexString(client.awaitConsumerResult(READ_WAIT_MS).getDigest()));
+            }
+
+            Assert.assertEquals(producerDigests, consumerDigests);
+
+            for (TcpBulkClient client : server.getClients()) {
+                client.awaitProducerResult(SEND_WAIT_MS);
+            }
+            for (TcpBulkClient client : clients) {
+                client.awaitConsumerResult(READ_WAIT_MS);
+            }
+
+            crusher.freeze();
+            Assert.assertTrue(crusher.isFrozen());
+            crusher.unfreeze();
+            Assert.assertFalse(crusher.isFrozen());
+
+            InetSocketAddress closedAddress = crusher.getClientAddresses().iterator().next();
+            Assert.assertTrue(crusher.closeClient(closedAddress));
+            Assert.assertEquals(CLIENT_COUNT - 1, crusher.getClientAddresses().size());
+        } finally {
+            for (TcpBulkClient client : clients) {
+                client.close();
+            }
+        }
+    }
+}
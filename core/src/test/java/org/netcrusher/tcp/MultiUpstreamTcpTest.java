@@ -0,0 +1,237 @@
+package org.netcrusher.tcp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.nio.NioUtils;
+import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.upstream.Upstream;
+import org.netcrusher.core.upstream.UpstreamBalancers;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+public class MultiUpstreamTcpTest {
+
+    private static final int PORT_CRUSHER = 10081;
+
+    private static final int PORT_SERVER1 = 10082;
+
+    private static final int PORT_SERVER2 = 10083;
+
+    private static final String HOSTNAME = "127.0.0.1";
+
+    private static final int MESSAGE_SIZE = 4;
+
+    private static final long WAIT_MS = 10_000;
+
+    private ExecutorService executor;
+
+    private ServerSocketChannel serverChannel1;
+
+    private ServerSocketChannel serverChannel2;
+
+    private AtomicInteger serverAccepted1;
+
+    private AtomicInteger serverAccepted2;
+
+    private NioReactor reactor;
+
+    private TcpCrusher crusher;
+
+    private List<SocketChannel> clients;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newCachedThreadPool();
+
+        serverAccepted1 = new AtomicInteger(0);
+        serverChannel1 = openServer(PORT_SERVER1, serverAccepted1);
+
+        serverAccepted2 = new AtomicInteger(0);
+        serverChannel2 = openServer(PORT_SERVER2, serverAccepted2);
+
+        reactor = new NioReactor();
+
+        clients = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (SocketChannel client : clients) {
+            NioUtils.close(client);
+        }
+
+        if (crusher != null) {
+            crusher.close();
+        }
+
+        if (reactor != null) {
+            reactor.close();
+        }
+
+        NioUtils.close(serverChannel1);
+        NioUtils.close(serverChannel2);
+
+        if (executor != null) {
+            executor.shutdownNow();
+            executor.awaitTermination(WAIT_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Test
+    public void testRoundRobin() throws Exception {
+        crusher = TcpCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, PORT_CRUSHER)
+            .withConnectAddress(HOSTNAME, PORT_SERVER1)
+            .withUpstreamAddress(HOSTNAME, PORT_SERVER2)
+            .buildAndOpen();
+
+        final List<Upstream> upstreams = crusher.getUpstreams();
+        Assert.assertEquals(2, upstreams.size());
+        Assert.assertEquals(new InetSocketAddress(HOSTNAME, PORT_SERVER1), crusher.getConnectAddress());
+
+        final int count = 6;
+        for (int i = 0; i < count; i++) {
+            clients.add(roundTrip(SocketChannel.open(new InetSocketAddress(HOSTNAME, PORT_CRUSHER))));
+        }
+
+        Assert.assertEquals(count / 2, serverAccepted1.get());
+        Assert.assertEquals(count / 2, serverAccepted2.get());
+
+        for (Upstream upstream : upstreams) {
+            Assert.assertEquals(count / 2, upstream.getActiveCount());
+            Assert.assertEquals(count / 2 * MESSAGE_SIZE, upstream.getByteMeters().getSentMeter().getTotalCount());
+            Assert.assertEquals(count / 2 * MESSAGE_SIZE, upstream.getByteMeters().getReadMeter().getTotalCount());
+        }
+
+        // closed pairs are not active anymore
+        crusher.closeAllPairs();
+        for (Upstream upstream : upstreams) {
+            Assert.assertEquals(0, upstream.getActiveCount());
+        }
+    }
+
+    @Test
+    public void testLeastActive() throws Exception {
+        crusher = TcpCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, PORT_CRUSHER)
+            .withUpstreamAddress(new InetSocketAddress(HOSTNAME, PORT_SERVER1), 1)
+            .withUpstreamAddress(new InetSocketAddress(HOSTNAME, PORT_SERVER2), 3)
+            .withUpstreamBalancer(UpstreamBalancers.leastActive())
+            .buildAndOpen();
+
+        for (int i = 0; i < 8; i++) {
+            clients.add(roundTrip(SocketChannel.open(new InetSocketAddress(HOSTNAME, PORT_CRUSHER))));
+        }
+
+        Assert.assertEquals(2, serverAccepted1.get());
+        Assert.assertEquals(6, serverAccepted2.get());
+
+        // clients of the second upstream leave so new clients go there
+        final Upstream second = crusher.getUpstreams().get(1);
+        for (int i = 0; i < 3; i++) {
+            clients.remove(clients.size() - 1).close();
+        }
+        await(() -> second.getActiveCount() < 6);
+
+        clients.add(roundTrip(SocketChannel.open(new InetSocketAddress(HOSTNAME, PORT_CRUSHER))));
+
+        Assert.assertEquals(2, serverAccepted1.get());
+        Assert.assertEquals(7, serverAccepted2.get());
+    }
+
+    @Test
+    public void testConsistentHash() throws Exception {
+        crusher = TcpCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, PORT_CRUSHER)
+            .withConnectAddress(HOSTNAME, PORT_SERVER1)
+            .withUpstreamAddress(HOSTNAME, PORT_SERVER2)
+            .withUpstreamBalancer(UpstreamBalancers.consistentHash())
+            .buildAndOpen();
+
+        final int count = 4;
+        for (int i = 0; i < count; i++) {
+            clients.add(roundTrip(SocketChannel.open(new InetSocketAddress(HOSTNAME, PORT_CRUSHER))));
+        }
+
+        // all clients come from the same host
+        Assert.assertTrue(serverAccepted1.get() == count || serverAccepted2.get() == count);
+    }
+
+    private ServerSocketChannel openServer(int port, AtomicInteger accepted) throws IOException {
+        final ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(new InetSocketAddress(HOSTNAME, port));
+
+        executor.submit(() -> {
+            while (true) {
+                SocketChannel channel = serverChannel.accept();
+                accepted.incrementAndGet();
+                executor.submit(() -> {
+                    echo(channel);
+                    return null;
+                });
+            }
+        });
+
+        return serverChannel;
+    }
+
+    private static SocketChannel roundTrip(SocketChannel channel) throws Exception {
+        final ByteBuffer bb = ByteBuffer.allocate(MESSAGE_SIZE);
+        bb.putInt(0x12345678);
+        bb.flip();
+        while (bb.hasRemaining()) {
+            channel.write(bb);
+        }
+
+        bb.clear();
+        while (bb.hasRemaining()) {
+            Assert.assertTrue(channel.read(bb) > 0);
+        }
+        bb.flip();
+
+        Assert.assertEquals(0x12345678, bb.getInt());
+
+        return channel;
+    }
+
+    private static void echo(SocketChannel channel) throws IOException {
+        try {
+            final ByteBuffer bb = ByteBuffer.allocate(1024);
+            while (channel.read(bb) >= 0) {
+                bb.flip();
+                while (bb.hasRemaining()) {
+                    channel.write(bb);
+                }
+                bb.clear();
+            }
+        } finally {
+            NioUtils.close(channel);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws Exception {
+        final long deadlineMs = System.currentTimeMillis() + WAIT_MS;
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue("Condition is not met in time", System.currentTimeMillis() < deadlineMs);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package org.netcrusher.tcp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.nio.NioUtils;
+import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.throttle.Throttler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares throughput of the regular copy path with the pass-through mode of an unfiltered crusher.
+ * The source and the sink don't touch the data so the crusher is the bottleneck
+ */
+public class PassThroughTcpTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PassThroughTcpTest.class);
+
+    private static final int PORT_CRUSHER = 10081;
+
+    private static final int PORT_SERVER = 10082;
+
+    private static final String HOSTNAME = "127.0.0.1";
+
+    private static final long WARMUP_COUNT = 256L * 1024 * 1024;
+
+    private static final long COUNT = 2L * 1024 * 1024 * 1024;
+
+    private static final int CHUNK_SIZE = 256 * 1024;
+
+    private static final long WAIT_MS = 60_000;
+
+    private ServerSocketChannel serverChannel;
+
+    private ExecutorService executor;
+
+    private NioReactor reactor;
+
+    @Before
+    public void setUp() throws Exception {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(new InetSocketAddress(HOSTNAME, PORT_SERVER));
+
+        executor = Executors.newCachedThreadPool();
+
+        reactor = new NioReactor();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (reactor != null) {
+            reactor.close();
+            Assert.assertFalse(reactor.isOpen());
+        }
+
+        if (serverChannel != null) {
+            NioUtils.close(serverChannel);
+        }
+
+        if (executor != null) {
+            executor.shutdownNow();
+            executor.awaitTermination(WAIT_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Test
+    public void testCopy() throws Exception {
+        benchmark(false);
+    }
+
+    @Test
+    public void testPassThrough() throws Exception {
+        benchmark(true);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPassThroughWithThrottler() throws Exception {
+        TcpCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, PORT_CRUSHER)
+            .withConnectAddress(HOSTNAME, PORT_SERVER)
+            .withPassThrough(true)
+            .withOutgoingThrottlerFactory((addr) -> Throttler.NOOP)
+            .build();
+    }
+
+    private void benchmark(boolean passThrough) throws Exception {
+        TcpCrusher crusher = TcpCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, PORT_CRUSHER)
+            .withConnectAddress(HOSTNAME, PORT_SERVER)
+            .withPassThrough(passThrough)
+            .buildAndOpen();
+        try {
+            transfer(WARMUP_COUNT);
+
+            final long startedNs = System.nanoTime();
+            transfer(COUNT);
+            final long elapsedMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNs));
+
+            final long megabytes = COUNT / (1024 * 1024);
+            LOGGER.info("Mode {}: {}MB in {}ms, {}MB/s", new Object[] {
+                passThrough ? "pass-through" : "copy",
+                megabytes,
+                elapsedMs,
+                megabytes * 1000 / elapsedMs
+            });
+        } finally {
+            crusher.close();
+        }
+    }
+
+    private void transfer(long count) throws Exception {
+        final Future<Long> sink = executor.submit(() -> {
+            try (SocketChannel channel = serverChannel.accept()) {
+                return drain(channel);
+            }
+        });
+
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(HOSTNAME, PORT_CRUSHER))) {
+            final ByteBuffer bb = ByteBuffer.allocateDirect(CHUNK_SIZE);
+
+            long sent = 0;
+            while (sent < count) {
+                bb.clear();
+                bb.limit((int) Math.min(CHUNK_SIZE, count - sent));
+                while (bb.hasRemaining()) {
+                    sent += channel.write(bb);
+                }
+            }
+        }
+
+        Assert.assertEquals(count, sink.get(WAIT_MS, TimeUnit.MILLISECONDS).longValue());
+    }
+
+    private static long drain(SocketChannel channel) throws IOException {
+        final ByteBuffer bb = ByteBuffer.allocateDirect(CHUNK_SIZE);
+
+        long received = 0;
+        while (true) {
+            bb.clear();
+            final int read = channel.read(bb);
+            if (read < 0) {
+                return received;
+            }
+            received += read;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.netcrusher.tcp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.NetFreezer;
+import org.netcrusher.core.nio.NioUtils;
+import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.reactor.NioReactorBuilder;
+import org.netcrusher.tcp.bulk.TcpBulkClient;
+import org.netcrusher.tcp.bulk.TcpBulkServer;
+
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class ReusePortTcpTest {
+
+    private static final int PORT_CRUSHER = 10081;
+
+    private static final int PORT_SERVER = 10082;
+
+    private static final String HOSTNAME = "127.0.0.1";
+
+    private static final int SELECTOR_COUNT = 3;
+
+    private static final int SHARD_COUNT = 2;
+
+    private static final int CLIENT_COUNT = 8;
+
+    private static final long COUNT = 4 * 1024 * 1024;
+
+    private static final long SEND_WAIT_MS = 60_000;
+
+    private static final long READ_WAIT_MS = 30_000;
+
+    private NioReactor reactor;
+
+    private TcpCrusher crusher;
+
+    private TcpBulkServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        try (ServerSocketChannel channel = ServerSocketChannel.open()) {
+            Assume.assumeTrue("SO_REUSEPORT is not supported", NioUtils.isReusePortSupported(channel));
+        }
+
+        server = new TcpBulkServer(new InetSocketAddress(HOSTNAME, PORT_SERVER), COUNT);
+        server.open();
+
+        reactor = NioReactorBuilder.builder()
+            .withSelectorCount(SELECTOR_COUNT)
+            .build();
+
+        crusher = TcpCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, PORT_CRUSHER)
+            .withConnectAddress(HOSTNAME, PORT_SERVER)
+            .withReusePortShards(SHARD_COUNT)
+            .buildAndOpen();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (crusher != null) {
+            crusher.close();
+            Assert.assertFalse(crusher.isOpen());
+        }
+
+        if (reactor != null) {
+            reactor.close();
+            Assert.assertFalse(reactor.isOpen());
+        }
+
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testBulk() throws Exception {
+        final InetSocketAddress crusherAddress = new InetSocketAddress(HOSTNAME, PORT_CRUSHER);
+
+        final List<TcpBulkClient> clients = new ArrayList<>(CLIENT_COUNT);
+        try {
+            for (int i = 0; i < CLIENT_COUNT; i++) {
+                clients.add(TcpBulkClient.forAddress("EXT" + i, crusherAddress, COUNT));
+            }
+
+            final Set<String> producerDigests = new HashSet<>();
+            for (TcpBulkClient client : clients) {
+                producerDigests.add(NioUtils.toHexString(client.awaitProducerResult(SEND_WAIT_MS).getDigest()));
+            }
+
+            final Set<String> consumerDigests = new HashSet<>();
+            for (TcpBulkClient client : server.getClients()) {
+                consumerDigests.add(NioUtils.toHexString(client.awaitConsumerResult(READ_WAIT_MS).getDigest()));
+            }
+
+            Assert.assertEquals(producerDigests, consumerDigests);
+
+            Assert.assertEquals(CLIENT_COUNT, crusher.getClientAddresses().size());
+            Assert.assertEquals(CLIENT_COUNT, crusher.getClientTotalCount());
+            Assert.assertEquals(CLIENT_COUNT, crusher.getAcceptMeter().getTotalCount());
+        } finally {
+            for (TcpBulkClient client : clients) {
+                client.close();
+            }
+        }
+    }
+
+    @Test
+    public void testFreeze() throws Exception {
+        NetFreezer freezer = crusher.getAcceptorFreezer();
+        Assert.assertFalse(freezer.isFrozen());
+
+        crusher.freeze();
+        Assert.assertTrue(freezer.isFrozen());
+
+        crusher.unfreeze();
+        Assert.assertFalse(freezer.isFrozen());
+
+        crusher.reopen();
+        Assert.assertTrue(crusher.isOpen());
+    }
+}
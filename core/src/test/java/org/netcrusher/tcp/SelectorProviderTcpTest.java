@@ -0,0 +1,29 @@
+package org.netcrusher.tcp;
+
+import org.junit.Assume;
+import org.netcrusher.core.reactor.NioReactorBuilder;
+
+import java.nio.channels.spi.SelectorProvider;
+
+/**
+ * Runs the small message benchmark on the poll(2) transport of the JDK to compare with the default one
+ */
+public class SelectorProviderTcpTest extends SmallMessageTcpTest {
+
+    private static final String POLL_PROVIDER_CLASS = "sun.nio.ch.PollSelectorProvider";
+
+    @Override
+    protected NioReactorBuilder createReactorBuilder() {
+        SelectorProvider provider;
+        try {
+            provider = (SelectorProvider) Class.forName(POLL_PROVIDER_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            provider = null;
+        }
+
+        Assume.assumeNotNull(provider);
+
+        return NioReactorBuilder.builder()
+            .withSelectorProvider(provider);
+    }
+}
@@ -0,0 +1,208 @@
+package org.netcrusher.tcp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.nio.NioUtils;
+import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.reactor.NioReactorBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ping-pong of many small messages over many pairs: the transfer cost is negligible so the measured time
+ * is dominated by the per-event cost of the selector loop
+ */
+public class SmallMessageTcpTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SmallMessageTcpTest.class);
+
+    private static final int PORT_CRUSHER = 10081;
+
+    private static final int PORT_SERVER = 10082;
+
+    private static final String HOSTNAME = "127.0.0.1";
+
+    private static final int PAIR_COUNT = 32;
+
+    private static final int MESSAGE_COUNT = 2_000;
+
+    private static final int WARMUP_MESSAGE_COUNT = 200;
+
+    private static final int MESSAGE_SIZE = 64;
+
+    private static final long WAIT_MS = 60_000;
+
+    private ServerSocketChannel serverChannel;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(new InetSocketAddress(HOSTNAME, PORT_SERVER), PAIR_COUNT);
+
+        executor = Executors.newCachedThreadPool();
+        executor.submit(this::acceptEchoClients);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (serverChannel != null) {
+            NioUtils.close(serverChannel);
+        }
+
+        if (executor != null) {
+            executor.shutdownNow();
+            executor.awaitTermination(WAIT_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Test
+    public void testPlainSelectedKeys() throws Exception {
+        benchmark(false);
+    }
+
+    @Test
+    public void testOptimizedSelectedKeys() throws Exception {
+        benchmark(true);
+    }
+
+    protected NioReactorBuilder createReactorBuilder() {
+        return NioReactorBuilder.builder();
+    }
+
+    private void benchmark(boolean optimizedSelectedKeys) throws Exception {
+        NioReactor reactor = createReactorBuilder()
+            .withOptimizedSelectedKeys(optimizedSelectedKeys)
+            .build();
+        try {
+            TcpCrusher crusher = TcpCrusherBuilder.builder()
+                .withReactor(reactor)
+                .withBindAddress(HOSTNAME, PORT_CRUSHER)
+                .withConnectAddress(HOSTNAME, PORT_SERVER)
+                .buildAndOpen();
+            try {
+                final boolean optimized = reactor.getSelector().isOptimizedSelectedKeys();
+                if (optimizedSelectedKeys && !optimized) {
+                    LOGGER.warn("Selected key set optimization is not available on this JVM");
+                }
+
+                run(WARMUP_MESSAGE_COUNT);
+
+                final long startedNs = System.nanoTime();
+                run(MESSAGE_COUNT);
+                final long elapsedNs = System.nanoTime() - startedNs;
+
+                // every round-trip fires a read event on each side of the pair
+                final long events = 2L * PAIR_COUNT * MESSAGE_COUNT;
+                LOGGER.info("Selected keys {} on {}: {} events in {}ms, {}ns per event", new Object[] {
+                    optimized ? "optimized" : "plain",
+                    reactor.getSelector().getProvider().getClass().getSimpleName(),
+                    events,
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNs),
+                    elapsedNs / events
+                });
+                LOGGER.info("Selector stats: {}", reactor.getSelector().getStats());
+            } finally {
+                crusher.close();
+            }
+        } finally {
+            reactor.close();
+        }
+    }
+
+    private void run(int messageCount) throws Exception {
+        final InetSocketAddress crusherAddress = new InetSocketAddress(HOSTNAME, PORT_CRUSHER);
+
+        final List<Future<Integer>> futures = new ArrayList<>(PAIR_COUNT);
+        for (int i = 0; i < PAIR_COUNT; i++) {
+            final long seed = i;
+            futures.add(executor.submit(() -> pingPong(crusherAddress, seed, messageCount)));
+        }
+
+        for (Future<Integer> future : futures) {
+            Assert.assertEquals(messageCount, future.get(WAIT_MS, TimeUnit.MILLISECONDS).intValue());
+        }
+    }
+
+    private static int pingPong(InetSocketAddress address, long seed, int messageCount) throws IOException {
+        final Random random = new Random(seed);
+        final ByteBuffer sent = ByteBuffer.allocate(MESSAGE_SIZE);
+        final ByteBuffer received = ByteBuffer.allocate(MESSAGE_SIZE);
+
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+            for (int i = 0; i < messageCount; i++) {
+                random.nextBytes(sent.array());
+                sent.clear();
+                while (sent.hasRemaining()) {
+                    channel.write(sent);
+                }
+
+                received.clear();
+                while (received.hasRemaining()) {
+                    if (channel.read(received) < 0) {
+                        throw new IOException("Unexpected EOF");
+                    }
+                }
+
+                sent.flip();
+                received.flip();
+                if (!sent.equals(received)) {
+                    throw new IOException("Echo mismatch");
+                }
+            }
+        }
+
+        return messageCount;
+    }
+
+    private void acceptEchoClients() {
+        while (serverChannel.isOpen()) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                executor.submit(() -> echo(channel));
+            } catch (IOException e) {
+                break;
+            }
+        }
+    }
+
+    private static void echo(SocketChannel channel) {
+        final ByteBuffer buffer = ByteBuffer.allocate(MESSAGE_SIZE);
+
+        try {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                buffer.clear();
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Echo connection is broken", e);
+        } finally {
+            NioUtils.close(channel);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.netcrusher.tcp;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TcpReceivePredictorTest {
+
+    private static final int MAX_BUFFERS = 64;
+
+    private static final int BUFFER_SIZE = 1024;
+
+    @Test
+    public void testGrowth() throws Exception {
+        TcpReceivePredictor predictor = new TcpReceivePredictor(MAX_BUFFERS, BUFFER_SIZE);
+        Assert.assertEquals(1, predictor.predictBuffers());
+
+        int previous = predictor.predictBuffers();
+        while (predictor.predictBuffers() < MAX_BUFFERS) {
+            final long requested = (long) predictor.predictBuffers() * BUFFER_SIZE;
+            predictor.record(requested, requested);
+
+            Assert.assertTrue(predictor.predictBuffers() > previous);
+            previous = predictor.predictBuffers();
+        }
+
+        // full reads never go over the queue size
+        predictor.record(MAX_BUFFERS * BUFFER_SIZE, MAX_BUFFERS * BUFFER_SIZE);
+        Assert.assertEquals(MAX_BUFFERS, predictor.predictBuffers());
+    }
+
+    @Test
+    public void testShrink() throws Exception {
+        TcpReceivePredictor predictor = new TcpReceivePredictor(MAX_BUFFERS, BUFFER_SIZE);
+        while (predictor.predictBuffers() < MAX_BUFFERS) {
+            final long requested = (long) predictor.predictBuffers() * BUFFER_SIZE;
+            predictor.record(requested, requested);
+        }
+
+        // the only short read is tolerated
+        predictor.record(MAX_BUFFERS * BUFFER_SIZE, 100);
+        Assert.assertEquals(MAX_BUFFERS, predictor.predictBuffers());
+
+        predictor.record(MAX_BUFFERS * BUFFER_SIZE, 100);
+        Assert.assertTrue(predictor.predictBuffers() < MAX_BUFFERS);
+
+        // a read in between resets the decrease
+        final int predicted = predictor.predictBuffers();
+        predictor.record((long) predicted * BUFFER_SIZE, 100);
+        predictor.record((long) predicted * BUFFER_SIZE, (long) (predicted - 1) * BUFFER_SIZE + 1);
+        predictor.record((long) predicted * BUFFER_SIZE, 100);
+        Assert.assertEquals(predicted, predictor.predictBuffers());
+
+        for (int i = 0; i < 2 * MAX_BUFFERS; i++) {
+            predictor.record((long) predictor.predictBuffers() * BUFFER_SIZE, 100);
+        }
+        Assert.assertEquals(1, predictor.predictBuffers());
+    }
+}
@@ -0,0 +1,273 @@
+package org.netcrusher.tcp;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.buffer.BufferAllocator;
+import org.netcrusher.core.buffer.BufferPool;
+import org.netcrusher.core.buffer.BufferQuota;
+import org.netcrusher.core.filter.TransformFilter;
+import org.netcrusher.core.throttle.PacingThrottler;
+import org.netcrusher.core.throttle.Throttler;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+public class TcpRingQueueTest {
+
+    private static final int CAPACITY = 16;
+
+    private static final int MAX_MARKS = 4;
+
+    private BufferPool pool;
+
+    private BufferAllocator allocator;
+
+    @Before
+    public void setUp() throws Exception {
+        pool = new BufferPool(BufferPool.DEFAULT_MAX_RETAINED_BYTES);
+        allocator = new BufferAllocator(pool, new BufferQuota(0), CAPACITY, false);
+    }
+
+    @Test
+    public void testWrapAround() throws Exception {
+        TcpQueue queue = new TcpRingQueue(MAX_MARKS, allocator, null, null);
+        Assert.assertFalse(queue.hasReadable());
+        Assert.assertEquals(0, pool.getBorrowedBytes());
+
+        Assert.assertEquals(10, receive(queue, bytes(0, 10)));
+        Assert.assertEquals(CAPACITY, pool.getBorrowedBytes());
+        Assert.assertEquals(10, queue.calculateReadableBytes());
+
+        Assert.assertArrayEquals(bytes(0, 6), send(queue, 6));
+        Assert.assertEquals(CAPACITY - 4, queue.calculateWritableBytes());
+
+        // the free space wraps around the end of the ring
+        TcpQueueBuffers writable = queue.requestWritableBuffers();
+        Assert.assertEquals(2, writable.getCount());
+        Assert.assertEquals(6, writable.getArray()[0].remaining());
+        Assert.assertEquals(6, writable.getArray()[1].remaining());
+        writable.getArray()[0].put(bytes(10, 6));
+        writable.getArray()[1].put(bytes(16, 4));
+        queue.releaseWritableBuffers();
+
+        Assert.assertEquals(14, queue.calculateReadableBytes());
+
+        TcpQueueBuffers readable = queue.requestReadableBuffers();
+        Assert.assertEquals(2, readable.getCount());
+        Assert.assertArrayEquals(bytes(6, 14), send(queue, readable, Integer.MAX_VALUE));
+
+        Assert.assertFalse(queue.hasReadable());
+        Assert.assertEquals(CAPACITY, queue.calculateWritableBytes());
+
+        queue.releaseBuffers();
+        Assert.assertEquals(0, pool.getBorrowedBytes());
+    }
+
+    @Test
+    public void testFull() throws Exception {
+        TcpQueue queue = new TcpRingQueue(MAX_MARKS, allocator, null, null);
+
+        Assert.assertEquals(CAPACITY, receive(queue, bytes(0, CAPACITY + 4)));
+        Assert.assertFalse(queue.hasWritable());
+        Assert.assertTrue(queue.requestWritableBuffers().isEmpty());
+        queue.releaseWritableBuffers();
+
+        Assert.assertArrayEquals(bytes(0, CAPACITY), send(queue, Integer.MAX_VALUE));
+        Assert.assertTrue(queue.hasWritable());
+
+        queue.releaseBuffers();
+    }
+
+    @Test
+    public void testShrinkingFilter() throws Exception {
+        // the filter drops every byte divisible by 3 so the output doesn't depend on how the data is split
+        TransformFilter filter = (bb) -> {
+            int output = bb.position();
+            for (int i = bb.position(); i < bb.limit(); i++) {
+                byte value = bb.get(i);
+                if (value % 3 != 0) {
+                    bb.put(output++, value);
+                }
+            }
+            bb.limit(output);
+        };
+
+        TcpQueue queue = new TcpRingQueue(MAX_MARKS, allocator, filter, null);
+
+        receive(queue, bytes(0, 10));
+        Assert.assertArrayEquals(new byte[] { 1, 2, 4, 5 }, send(queue, 4));
+
+        // the rest of the first read and the second read wrap around the end of the ring
+        receive(queue, bytes(10, 12));
+        Assert.assertArrayEquals(new byte[] { 7, 8, 10, 11, 13, 14, 16, 17, 19, 20 },
+            send(queue, Integer.MAX_VALUE));
+        Assert.assertFalse(queue.hasReadable());
+
+        queue.releaseBuffers();
+    }
+
+    @Test
+    public void testIdleRelease() throws Exception {
+        TcpQueue queue = new TcpRingQueue(MAX_MARKS, allocator, null, null);
+
+        receive(queue, bytes(0, 10));
+        Assert.assertEquals(CAPACITY, pool.getBorrowedBytes());
+
+        // a drained ring goes back to the pool
+        Assert.assertArrayEquals(bytes(0, 10), send(queue, Integer.MAX_VALUE));
+        Assert.assertEquals(0, pool.getBorrowedBytes());
+
+        // a read which gets nothing doesn't keep the ring either
+        Assert.assertEquals(0, receive(queue, new byte[0]));
+        Assert.assertEquals(0, pool.getBorrowedBytes());
+    }
+
+    @Test
+    public void testGrowingFilter() throws Exception {
+        // the filter repeats every byte
+        TransformFilter filter = (bb) -> {
+            final int length = bb.remaining();
+            bb.limit(2 * length);
+            for (int i = length - 1; i >= 0; i--) {
+                byte value = bb.get(i);
+                bb.put(2 * i, value);
+                bb.put(2 * i + 1, value);
+            }
+        };
+
+        TcpQueue queue = new TcpRingQueue(MAX_MARKS, allocator, filter, null);
+
+        receive(queue, bytes(0, 4));
+        Assert.assertArrayEquals(new byte[] { 0, 0, 1, 1, 2, 2, 3, 3 }, send(queue, Integer.MAX_VALUE));
+        Assert.assertFalse(queue.hasReadable());
+
+        queue.releaseBuffers();
+    }
+
+    @Test
+    public void testThrottling() throws Exception {
+        final long delayNs = TimeUnit.SECONDS.toNanos(10);
+
+        // only the second chunk is postponed
+        final int[] calls = new int[1];
+        Throttler throttler = (bb) -> calls[0]++ == 1 ? delayNs : Throttler.NO_DELAY_NS;
+
+        TcpQueue queue = new TcpRingQueue(MAX_MARKS, allocator, null, throttler);
+
+        receive(queue, bytes(0, 4));
+        TcpQueueBuffers readable = queue.requestReadableBuffers();
+        Assert.assertEquals(1, readable.getCount());
+        queue.releaseReadableBuffers();
+
+        receive(queue, bytes(4, 4));
+        receive(queue, bytes(8, 4));
+
+        Assert.assertArrayEquals(bytes(0, 4), send(queue, Integer.MAX_VALUE));
+
+        readable = queue.requestReadableBuffers();
+        Assert.assertTrue(readable.isEmpty());
+        Assert.assertTrue(readable.getDelayNs() > 0);
+        Assert.assertTrue(readable.getDelayNs() <= delayNs);
+        queue.releaseReadableBuffers();
+
+        Assert.assertTrue(queue.hasReadable());
+        Assert.assertEquals(8, queue.calculateReadableBytes());
+
+        queue.releaseBuffers();
+    }
+
+    @Test
+    public void testPacing() throws Exception {
+        final long waitNs = TimeUnit.MILLISECONDS.toNanos(1);
+
+        final long[] allowed = { 5 };
+        PacingThrottler pacer = new PacingThrottler() {
+            @Override
+            public long calculateAllowedBytes(long pendingBytes) {
+                return allowed[0];
+            }
+
+            @Override
+            public long calculateWaitNs(long pendingBytes) {
+                return waitNs;
+            }
+
+            @Override
+            public void consume(long bytes) {
+                allowed[0] -= bytes;
+            }
+
+            @Override
+            public long calculateDelayNs(ByteBuffer bb) {
+                throw new IllegalStateException("Pacing queue must not delay ranges");
+            }
+        };
+
+        TcpQueue queue = new TcpRingQueue(MAX_MARKS, allocator, null, pacer);
+
+        receive(queue, bytes(0, 12));
+
+        // only a slice of the range is passed and only sent bytes are consumed
+        Assert.assertArrayEquals(bytes(0, 3), send(queue, 3));
+        Assert.assertEquals(2, allowed[0]);
+        Assert.assertArrayEquals(bytes(3, 2), send(queue, Integer.MAX_VALUE));
+        Assert.assertEquals(0, allowed[0]);
+
+        TcpQueueBuffers readable = queue.requestReadableBuffers();
+        Assert.assertTrue(readable.isEmpty());
+        Assert.assertEquals(waitNs, readable.getDelayNs());
+        queue.releaseReadableBuffers();
+
+        allowed[0] = 100;
+        Assert.assertArrayEquals(bytes(5, 7), send(queue, Integer.MAX_VALUE));
+        Assert.assertEquals(93, allowed[0]);
+        Assert.assertFalse(queue.hasReadable());
+
+        queue.releaseBuffers();
+    }
+
+    private static byte[] bytes(int from, int count) {
+        byte[] bytes = new byte[count];
+        for (int i = 0; i < count; i++) {
+            bytes[i] = (byte) (from + i);
+        }
+        return bytes;
+    }
+
+    private static int receive(TcpQueue queue, byte[] bytes) {
+        TcpQueueBuffers writable = queue.requestWritableBuffers();
+
+        int received = 0;
+        for (int i = writable.getOffset(); i < writable.getOffset() + writable.getCount(); i++) {
+            ByteBuffer bb = writable.getArray()[i];
+            int length = Math.min(bb.remaining(), bytes.length - received);
+            bb.put(bytes, received, length);
+            received += length;
+        }
+
+        queue.releaseWritableBuffers();
+
+        return received;
+    }
+
+    private static byte[] send(TcpQueue queue, int limit) {
+        return send(queue, queue.requestReadableBuffers(), limit);
+    }
+
+    private static byte[] send(TcpQueue queue, TcpQueueBuffers readable, int limit) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        for (int i = readable.getOffset(); i < readable.getOffset() + readable.getCount(); i++) {
+            ByteBuffer bb = readable.getArray()[i];
+            while (bb.hasRemaining() && output.size() < limit) {
+                output.write(bb.get());
+            }
+        }
+
+        queue.releaseReadableBuffers();
+
+        return output.toByteArray();
+    }
+}
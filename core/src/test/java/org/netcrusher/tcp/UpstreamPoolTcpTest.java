@@ -0,0 +1,245 @@
+package org.netcrusher.tcp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.nio.NioUtils;
+import org.netcrusher.core.reactor.NioReactor;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+public class UpstreamPoolTcpTest {
+
+    private static final int PORT_CRUSHER = 10081;
+
+    private static final int PORT_SERVER = 10082;
+
+    private static final String HOSTNAME = "127.0.0.1";
+
+    private static final int POOL_SIZE = 4;
+
+    private static final long WAIT_MS = 10_000;
+
+    private static final int GREETING = 0x0BADBEEF;
+
+    private ServerSocketChannel serverChannel;
+
+    private ExecutorService executor;
+
+    private AtomicInteger serverAccepted;
+
+    private volatile int serverRejected;
+
+    private volatile boolean serverGreeting;
+
+    private NioReactor reactor;
+
+    private TcpCrusher crusher;
+
+    @Before
+    public void setUp() throws Exception {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(new InetSocketAddress(HOSTNAME, PORT_SERVER));
+
+        serverAccepted = new AtomicInteger(0);
+
+        executor = Executors.newCachedThreadPool();
+        executor.submit(() -> {
+            while (true) {
+                SocketChannel channel = serverChannel.accept();
+                if (serverAccepted.incrementAndGet() <= serverRejected) {
+                    NioUtils.close(channel);
+                    continue;
+                }
+
+                if (serverGreeting) {
+                    write(channel, GREETING);
+                }
+
+                executor.submit(() -> {
+                    echo(channel);
+                    return null;
+                });
+            }
+        });
+
+        reactor = new NioReactor();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (crusher != null) {
+            crusher.close();
+        }
+
+        if (reactor != null) {
+            reactor.close();
+        }
+
+        if (serverChannel != null) {
+            NioUtils.close(serverChannel);
+        }
+
+        if (executor != null) {
+            executor.shutdownNow();
+            executor.awaitTermination(WAIT_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Test
+    public void testPool() throws Exception {
+        crusher = builder()
+            .withUpstreamPoolSize(POOL_SIZE)
+            .buildAndOpen();
+
+        // the pool is filled before any client comes
+        await(() -> serverAccepted.get() == POOL_SIZE);
+
+        final int clientCount = 2 * POOL_SIZE;
+        for (int i = 0; i < clientCount; i++) {
+            roundTrip();
+        }
+
+        Assert.assertEquals(clientCount, crusher.getClientTotalCount());
+        Assert.assertEquals(clientCount, crusher.getUpstreamPoolHitCount() + crusher.getUpstreamPoolMissCount());
+        Assert.assertTrue(crusher.getUpstreamPoolHitCount() >= POOL_SIZE);
+        Assert.assertEquals(clientCount, crusher.getAcceptLatencyMeter().getTotal().getCount());
+
+        // each taken connection is replaced with a new one
+        await(() -> serverAccepted.get() == POOL_SIZE + clientCount);
+    }
+
+    @Test
+    public void testIdleExpiry() throws Exception {
+        crusher = builder()
+            .withUpstreamPoolSize(POOL_SIZE)
+            .withUpstreamPoolIdleMs(200)
+            .buildAndOpen();
+
+        // expired connections are replaced with fresh ones
+        await(() -> serverAccepted.get() >= 3 * POOL_SIZE);
+
+        roundTrip();
+
+        Assert.assertEquals(1, crusher.getUpstreamPoolHitCount());
+    }
+
+    @Test
+    public void testUpstreamClose() throws Exception {
+        serverRejected = POOL_SIZE;
+
+        crusher = builder()
+            .withUpstreamPoolSize(POOL_SIZE)
+            .buildAndOpen();
+
+        // connections closed by the upstream are replaced before any client comes
+        await(() -> serverAccepted.get() == 2 * POOL_SIZE);
+
+        roundTrip();
+
+        Assert.assertEquals(1, crusher.getUpstreamPoolHitCount());
+        Assert.assertEquals(0, crusher.getUpstreamPoolMissCount());
+    }
+
+    @Test
+    public void testGreeting() throws Exception {
+        serverGreeting = true;
+
+        crusher = builder()
+            .withUpstreamPoolSize(POOL_SIZE)
+            .buildAndOpen();
+
+        await(() -> serverAccepted.get() == POOL_SIZE);
+        Thread.sleep(100);
+
+        // bytes the upstream has sent to the pooled connection reach the client
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(HOSTNAME, PORT_CRUSHER))) {
+            Assert.assertEquals(GREETING, read(channel));
+
+            write(channel, 0x12345678);
+            Assert.assertEquals(0x12345678, read(channel));
+        }
+
+        Assert.assertEquals(1, crusher.getUpstreamPoolHitCount());
+    }
+
+    @Test
+    public void testNoPool() throws Exception {
+        crusher = builder()
+            .buildAndOpen();
+
+        roundTrip();
+
+        Assert.assertEquals(1, serverAccepted.get());
+        Assert.assertEquals(0, crusher.getUpstreamPoolHitCount());
+        Assert.assertEquals(0, crusher.getUpstreamPoolMissCount());
+    }
+
+    private TcpCrusherBuilder builder() {
+        return TcpCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, PORT_CRUSHER)
+            .withConnectAddress(HOSTNAME, PORT_SERVER);
+    }
+
+    private void roundTrip() throws Exception {
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(HOSTNAME, PORT_CRUSHER))) {
+            write(channel, 0x12345678);
+            Assert.assertEquals(0x12345678, read(channel));
+        }
+    }
+
+    private static void write(SocketChannel channel, int value) throws IOException {
+        final ByteBuffer bb = ByteBuffer.allocate(4);
+        bb.putInt(value);
+        bb.flip();
+        while (bb.hasRemaining()) {
+            channel.write(bb);
+        }
+    }
+
+    private static int read(SocketChannel channel) throws IOException {
+        final ByteBuffer bb = ByteBuffer.allocate(4);
+        while (bb.hasRemaining()) {
+            Assert.assertTrue(channel.read(bb) > 0);
+        }
+        bb.flip();
+
+        return bb.getInt();
+    }
+
+    private static void echo(SocketChannel channel) throws IOException {
+        try {
+            final ByteBuffer bb = ByteBuffer.allocate(1024);
+            while (channel.read(bb) >= 0) {
+                bb.flip();
+                while (bb.hasRemaining()) {
+                    channel.write(bb);
+                }
+                bb.clear();
+            }
+        } finally {
+            NioUtils.close(channel);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws Exception {
+        final long deadlineMs = System.currentTimeMillis() + WAIT_MS;
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue("Condition is not met in time", System.currentTimeMillis() < deadlineMs);
+            Thread.sleep(10);
+        }
+    }
+}
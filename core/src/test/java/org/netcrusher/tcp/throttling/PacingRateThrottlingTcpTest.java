@@ -0,0 +1,15 @@
+package org.netcrusher.tcp.throttling;
+
+import org.netcrusher.core.throttle.Throttler;
+import org.netcrusher.core.throttle.rate.BytePacingThrottler;
+
+import java.util.concurrent.TimeUnit;
+
+public class PacingRateThrottlingTcpTest extends RateThrottlingTcpTest {
+
+    @Override
+    protected Throttler createThrottler(long bytesPerSec) {
+        return new BytePacingThrottler(bytesPerSec, 1, TimeUnit.SECONDS);
+    }
+
+}
@@ -5,6 +5,7 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.throttle.Throttler;
 import org.netcrusher.core.throttle.rate.ByteRateThrottler;
 import org.netcrusher.tcp.TcpCrusher;
 import org.netcrusher.tcp.TcpCrusherBuilder;
@@ -14,6 +15,7 @@ import org.netcrusher.tcp.bulk.TcpBulkServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.concurrent.TimeUnit;
 
@@ -50,21 +52,27 @@ public class RateThrottlingTcpTest {
         server = new TcpBulkServer(new InetSocketAddress(HOSTNAME, PORT_SERVER), COUNT);
         server.open();
 
-        reactor = new NioReactor(10);
+        reactor = createReactor();
 
         crusher = TcpCrusherBuilder.builder()
             .withReactor(reactor)
             .withBindAddress(HOSTNAME, PORT_CRUSHER)
             .withConnectAddress(HOSTNAME, PORT_SERVER)
-            .withIncomingThrottlerFactory((addr) ->
-                new ByteRateThrottler(INCOMING_BYTES_PER_SEC, 1, TimeUnit.SECONDS))
-            .withOutgoingThrottlerFactory((addr) ->
-                new ByteRateThrottler(OUTGOING_BYTES_PER_SEC, 1, TimeUnit.SECONDS))
+            .withIncomingThrottlerFactory((addr) -> createThrottler(INCOMING_BYTES_PER_SEC))
+            .withOutgoingThrottlerFactory((addr) -> createThrottler(OUTGOING_BYTES_PER_SEC))
             .withCreationListener((addr) -> LOGGER.info("Client is created <{}>", addr))
             .withDeletionListener((addr, byteMeters) -> LOGGER.info("Client is deleted <{}>", addr))
             .buildAndOpen();
     }
 
+    protected NioReactor createReactor() throws IOException {
+        return new NioReactor(10);
+    }
+
+    protected Throttler createThrottler(long bytesPerSec) {
+        return new ByteRateThrottler(bytesPerSec, 1, TimeUnit.SECONDS);
+    }
+
     @After
     public void tearDown() throws Exception {
         if (crusher != null) {
@@ -0,0 +1,16 @@
+package org.netcrusher.tcp.throttling;
+
+import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.reactor.NioReactorBuilder;
+
+import java.io.IOException;
+
+public class TicklessRateThrottlingTcpTest extends RateThrottlingTcpTest {
+
+    @Override
+    protected NioReactor createReactor() throws IOException {
+        return NioReactorBuilder.builder()
+            .withTickless(true)
+            .build();
+    }
+}